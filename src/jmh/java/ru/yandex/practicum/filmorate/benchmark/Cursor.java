@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Позиция потока в заранее сгенерированной выборке. Размер выборки должен быть степенью двойки.
+ * Потоки начинают с разных позиций, чтобы не обращаться к одним и тем же данным синхронно.
+ */
+@State(Scope.Thread)
+public class Cursor {
+	private int position = (int) Thread.currentThread().threadId() * 7919;
+
+	int next(int samples) {
+		position = (position + 1) & (samples - 1);
+		return position;
+	}
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Генерация наборов данных для бенчмарков. Данные детерминированы (фиксированный seed),
+ * поэтому результаты разных сборок сравнимы.
+ */
+final class Datasets {
+	static final long SEED = 42;
+	private static final int CHUNK_SIZE = 10_000;
+	private static final int MAX_DEGREE = 100_000;
+
+	private Datasets() {
+	}
+
+	static InMemoryUserStorage users(int count, DegreeDistribution distribution, int meanDegree) {
+		InMemoryUserStorage storage = new InMemoryUserStorage();
+		List<User> chunk = new ArrayList<>(CHUNK_SIZE);
+		for (int i = 0; i < count; i++) {
+			chunk.add(user(i));
+			if (chunk.size() == CHUNK_SIZE) {
+				storage.addUsers(chunk);
+				chunk.clear();
+			}
+		}
+		storage.addUsers(chunk);
+
+		SplittableRandom random = new SplittableRandom(SEED);
+		for (int userId = 1; userId <= count; userId++) {
+			int degree = distribution.sample(random, meanDegree, Math.min(MAX_DEGREE, count - 1)) / 2;
+			for (int i = 0; i < degree; i++) {
+				int friendId = 1 + random.nextInt(count);
+				if (friendId != userId) {
+					storage.addFriend(userId, friendId);
+				}
+			}
+		}
+		return storage;
+	}
+
+	static InMemoryFilmStorage films(int count, int userCount, DegreeDistribution distribution, int meanLikes) {
+		return films(new InMemoryFilmStorage(), count, userCount, distribution, meanLikes);
+	}
+
+	/**
+	 * Заполняет переданное хранилище тем же набором фильмов и лайков, что и {@link #films(int, int,
+	 * DegreeDistribution, int)}, чтобы разные реализации сравнивались на одинаковых данных.
+	 */
+	static <S extends FilmStorage> S films(S storage, int count, int userCount, DegreeDistribution distribution,
+			int meanLikes) {
+		List<Film> chunk = new ArrayList<>(CHUNK_SIZE);
+		for (int i = 0; i < count; i++) {
+			chunk.add(film(i));
+			if (chunk.size() == CHUNK_SIZE) {
+				storage.addFilms(chunk);
+				chunk.clear();
+			}
+		}
+		storage.addFilms(chunk);
+
+		SplittableRandom random = new SplittableRandom(SEED + 1);
+		for (int filmId = 1; filmId <= count; filmId++) {
+			int likes = distribution.sample(random, meanLikes, Math.min(MAX_DEGREE, userCount));
+			for (int i = 0; i < likes; i++) {
+				storage.addLike(filmId, 1 + random.nextInt(userCount));
+			}
+		}
+		return storage;
+	}
+
+	static Film film(int index) {
+		Film film = new Film();
+		film.setName("Фильм " + index);
+		film.setDescription("Описание фильма номер " + index);
+		film.setReleaseDate(LocalDate.of(1950, 1, 1).plusDays(index % 25_000));
+		film.setDuration(60 + index % 120);
+		return film;
+	}
+
+	static User user(int index) {
+		User user = new User();
+		user.setEmail("user" + index + "@mail.com");
+		user.setLogin("user" + index);
+		user.setName("Пользователь " + index);
+		user.setBirthday(LocalDate.of(1960, 1, 1).plusDays(index % 15_000));
+		return user;
+	}
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Распределение числа связей (лайков у фильма, друзей у пользователя) со средним значением mean.
+ */
+public enum DegreeDistribution {
+	/**
+	 * У всех сущностей одинаковое число связей.
+	 */
+	FIXED {
+		@Override
+		int sample(SplittableRandom random, int mean, int max) {
+			return Math.min(mean, max);
+		}
+	},
+	/**
+	 * Равномерно от 0 до 2 * mean.
+	 */
+	UNIFORM {
+		@Override
+		int sample(SplittableRandom random, int mean, int max) {
+			return Math.min(random.nextInt(2 * mean + 1), max);
+		}
+	},
+	/**
+	 * Распределение Парето с показателем 2: большинство сущностей с малым числом связей и длинный хвост
+	 * «звёзд», как у реальных лайков и дружб.
+	 */
+	POWER_LAW {
+		private static final double ALPHA = 2.0;
+
+		@Override
+		int sample(SplittableRandom random, int mean, int max) {
+			double scale = mean * (ALPHA - 1) / ALPHA;
+			double value = scale / Math.pow(1.0 - random.nextDouble(), 1.0 / ALPHA);
+			return (int) Math.min(value, max);
+		}
+	};
+
+	abstract int sample(SplittableRandom random, int mean, int max);
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Топ популярных фильмов в хранилище с лайками по заданному распределению.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+
+	@Param({"10000", "1000000", "10000000"})
+	int films;
+
+	@Param({"UNIFORM", "POWER_LAW"})
+	DegreeDistribution distribution;
+
+	@Param("20")
+	int meanLikes;
+
+	@Param({"10", "100"})
+	int count;
+
+	private InMemoryFilmStorage storage;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		storage = Datasets.films(films, films, distribution, meanLikes);
+	}
+
+	@Benchmark
+	public List<Film> getPopularFilms() {
+		return storage.getPopularFilms(count);
+	}
+}
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.metrics.ServiceTimingAspect;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikePipeline;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы таймеров сервисов: один и тот же UserService без инструментирования
+ * и за прокси с ServiceTimingAspect и Prometheus-реестром.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentationOverheadBenchmark {
+	private static final int SAMPLES = 4096;
+
+	@Param({"10000", "1000000"})
+	int users;
+
+	@Param("POWER_LAW")
+	DegreeDistribution distribution;
+
+	@Param("20")
+	int meanFriends;
+
+	private LikePipeline likePipeline;
+	private UserService plain;
+	private UserService timed;
+	private int[] firstIds;
+	private int[] secondIds;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		InMemoryUserStorage storage = Datasets.users(users, distribution, meanFriends);
+		PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+		likePipeline = new LikePipeline(filmStorage, 1, 1024, 64, false);
+		Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+		FilmService filmService = new FilmService(filmStorage, storage, validator, likePipeline, registry, 256);
+		plain = new UserService(storage, filmService, validator, registry, 1024, 1024);
+
+		AspectJProxyFactory proxyFactory = new AspectJProxyFactory(plain);
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAspect(new ServiceTimingAspect(registry));
+		timed = proxyFactory.getProxy();
+
+		SplittableRandom random = new SplittableRandom(Datasets.SEED + 5);
+		firstIds = new int[SAMPLES];
+		secondIds = new int[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			firstIds[i] = 1 + random.nextInt(users);
+			secondIds[i] = 1 + random.nextInt(users);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		likePipeline.stop();
+	}
+
+	@Benchmark
+	public User getUserByIdPlain(Cursor cursor) {
+		return plain.getUserById(firstIds[cursor.next(SAMPLES)]);
+	}
+
+	@Benchmark
+	public User getUserByIdTimed(Cursor cursor) {
+		return timed.getUserById(firstIds[cursor.next(SAMPLES)]);
+	}
+
+	@Benchmark
+	public List<User> getCommonFriendsPlain(Cursor cursor) {
+		int i = cursor.next(SAMPLES);
+		return plain.getCommonFriends(firstIds[i], secondIds[i]);
+	}
+
+	@Benchmark
+	public List<User> getCommonFriendsTimed(Cursor cursor) {
+		int i = cursor.next(SAMPLES);
+		return timed.getCommonFriends(firstIds[i], secondIds[i]);
+	}
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация Film и User в JSON тем же ObjectMapper, что настраивает Spring Boot.
+ * Размер сущности определяется числом лайков и друзей; ID связей берутся из пространства размера entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+	private static final int SAMPLES = 1024;
+
+	@Param({"10000", "1000000", "10000000"})
+	int entities;
+
+	@Param({"UNIFORM", "POWER_LAW"})
+	DegreeDistribution distribution;
+
+	@Param({"20", "1000"})
+	int meanDegree;
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private Film[] films;
+	private User[] users;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(Datasets.SEED + 4);
+		films = new Film[SAMPLES];
+		users = new User[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			Film film = Datasets.film(i);
+			film.setId(i + 1);
+			int likes = distribution.sample(random, meanDegree, entities);
+			for (int j = 0; j < likes; j++) {
+				film.addLike(1 + random.nextInt(entities));
+			}
+			films[i] = film;
+
+			User user = Datasets.user(i);
+			user.setId(i + 1);
+			int friends = distribution.sample(random, meanDegree, entities);
+			for (int j = 0; j < friends; j++) {
+				user.addFriend(1 + random.nextInt(entities));
+			}
+			users[i] = user;
+		}
+	}
+
+	@Benchmark
+	public byte[] serializeFilm(Cursor cursor) throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(films[cursor.next(SAMPLES)]);
+	}
+
+	@Benchmark
+	public byte[] serializeUser(Cursor cursor) throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(users[cursor.next(SAMPLES)]);
+	}
+}
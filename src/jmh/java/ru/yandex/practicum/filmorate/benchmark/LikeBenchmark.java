@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikePipeline;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import jakarta.validation.Validation;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Добавление лайка через FilmService: проверки пользователя и фильма, конвейер и запись в хранилище.
+ * При POWER_LAW лайки чаще приходят фильмам с малыми ID, что создаёт конкуренцию за «горячие» фильмы.
+ * Число потоков задаётся параметром -t.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LikeBenchmark {
+	private static final int SAMPLES = 1 << 16;
+
+	@Param({"10000", "1000000", "10000000"})
+	int entities;
+
+	@Param({"UNIFORM", "POWER_LAW"})
+	DegreeDistribution distribution;
+
+	@Param("20")
+	int meanLikes;
+
+	private FilmService filmService;
+	private LikePipeline likePipeline;
+	private int[] filmIds;
+	private int[] userIds;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		InMemoryUserStorage userStorage = Datasets.users(entities, DegreeDistribution.FIXED, 0);
+		InMemoryFilmStorage filmStorage = Datasets.films(entities, entities, distribution, meanLikes);
+		likePipeline = new LikePipeline(filmStorage, 4, 65536, 1024, false);
+		filmService = new FilmService(filmStorage, userStorage,
+				Validation.buildDefaultValidatorFactory().getValidator(), likePipeline, new SimpleMeterRegistry(),
+				256);
+
+		SplittableRandom random = new SplittableRandom(Datasets.SEED + 3);
+		filmIds = new int[SAMPLES];
+		userIds = new int[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			filmIds[i] = distribution == DegreeDistribution.POWER_LAW
+					? 1 + distribution.sample(random, meanLikes, entities - 1)
+					: 1 + random.nextInt(entities);
+			userIds[i] = 1 + random.nextInt(entities);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		likePipeline.stop();
+	}
+
+	@Benchmark
+	public void addLike(Cursor cursor) {
+		int i = cursor.next(SAMPLES);
+		filmService.addLike(filmIds[i], userIds[i]);
+	}
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Смешанная нагрузка на хранилища: читатели берут страницы фильмов и списки друзей и обходят их
+ * лайки и друзей, как при сериализации ответа, писатели одновременно ставят и снимают лайки и
+ * меняют дружбу. Группа readMostly — 7 читателей на 1 писателя, balanced — 4 на 4.
+ *
+ * <p>В группе 8 потоков, параметр -t задаёт общее число потоков кратно 8, например 8, 16, 32, 64:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec@jmh -Djmh.args="MixedReadWrite -t 64"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class MixedReadWriteBenchmark {
+	private static final int SAMPLES = 1 << 16;
+	private static final int PAGE_SIZE = 20;
+
+	@Param({"10000", "1000000"})
+	int entities;
+
+	@Param({"UNIFORM", "POWER_LAW"})
+	DegreeDistribution distribution;
+
+	@Param("20")
+	int meanDegree;
+
+	private InMemoryFilmStorage filmStorage;
+	private InMemoryUserStorage userStorage;
+	private int[] filmIds;
+	private int[] userIds;
+	private int[] otherUserIds;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		userStorage = Datasets.users(entities, distribution, meanDegree);
+		filmStorage = Datasets.films(entities, entities, distribution, meanDegree);
+
+		SplittableRandom random = new SplittableRandom(Datasets.SEED + 5);
+		filmIds = new int[SAMPLES];
+		userIds = new int[SAMPLES];
+		otherUserIds = new int[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			filmIds[i] = distribution == DegreeDistribution.POWER_LAW
+					? 1 + distribution.sample(random, meanDegree, entities - 1)
+					: 1 + random.nextInt(entities);
+			userIds[i] = 1 + random.nextInt(entities);
+			int other = 1 + random.nextInt(entities - 1);
+			otherUserIds[i] = other >= userIds[i] ? other + 1 : other;
+		}
+	}
+
+	@Benchmark
+	@Group("readMostly")
+	@GroupThreads(7)
+	public void readMostlyRead(Cursor cursor, Blackhole blackhole) {
+		read(cursor, blackhole);
+	}
+
+	@Benchmark
+	@Group("readMostly")
+	@GroupThreads(1)
+	public void readMostlyWrite(Cursor cursor) {
+		write(cursor);
+	}
+
+	@Benchmark
+	@Group("balanced")
+	@GroupThreads(4)
+	public void balancedRead(Cursor cursor, Blackhole blackhole) {
+		read(cursor, blackhole);
+	}
+
+	@Benchmark
+	@Group("balanced")
+	@GroupThreads(4)
+	public void balancedWrite(Cursor cursor) {
+		write(cursor);
+	}
+
+	private void read(Cursor cursor, Blackhole blackhole) {
+		int i = cursor.next(SAMPLES);
+		for (Film film : filmStorage.getFilmsPage(filmIds[i] - 1, PAGE_SIZE)) {
+			blackhole.consume(film.getLikes().toArray());
+		}
+		for (User friend : userStorage.getFriends(userIds[i])) {
+			blackhole.consume(friend.getFriends().size());
+		}
+	}
+
+	private void write(Cursor cursor) {
+		int i = cursor.next(SAMPLES);
+		if ((i & 1) == 0) {
+			filmStorage.addLike(filmIds[i], userIds[i]);
+			userStorage.addFriend(userIds[i], otherUserIds[i]);
+		} else {
+			filmStorage.removeLike(filmIds[i ^ 1], userIds[i ^ 1]);
+			userStorage.removeFriend(userIds[i ^ 1], otherUserIds[i ^ 1]);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.OffHeapFilmStorage;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Колоночное хранилище вне кучи против хранилища в памяти: проходы по каталогу (топ популярных,
+ * топ с фильтром, поиск по диапазону) и пауза полной сборки мусора при том же наборе данных.
+ * После заполнения печатается занятая куча и память прямых буферов. Паузы сборщика по всем
+ * бенчмаркам дополнительно показывает профайлер -prof gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OffHeapFilmStorageBenchmark {
+	private static final FilmFilter FILTER = new FilmFilter(LocalDate.of(1970, 1, 1), LocalDate.of(1980, 1, 1), null, 120);
+
+	@Param({"IN_MEMORY", "OFF_HEAP"})
+	Implementation implementation;
+
+	@Param({"1000000", "10000000"})
+	int films;
+
+	@Param("POWER_LAW")
+	DegreeDistribution distribution;
+
+	@Param("20")
+	int meanLikes;
+
+	@Param("100")
+	int count;
+
+	private FilmStorage storage;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		storage = Datasets.films(implementation.create(), films, films, distribution, meanLikes);
+		System.gc();
+		long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		long direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+				.filter(pool -> pool.getName().equals("direct"))
+				.mapToLong(BufferPoolMXBean::getMemoryUsed)
+				.sum();
+		System.out.printf("%n%s, %d фильмов: куча %d МБ, прямые буферы %d МБ%n",
+				implementation, films, heap >> 20, direct >> 20);
+	}
+
+	@Benchmark
+	public List<Film> getPopularFilms() {
+		return storage.getPopularFilms(count);
+	}
+
+	@Benchmark
+	public List<Film> getPopularFilmsFiltered() {
+		return storage.getPopularFilms(FILTER, count);
+	}
+
+	@Benchmark
+	public List<Film> findFilms() {
+		return storage.findFilms(FILTER, count);
+	}
+
+	/**
+	 * Полная сборка мусора: время растёт с живым набором в куче, который колонки вне кучи уменьшают.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 10)
+	public void fullGc() {
+		System.gc();
+	}
+
+	public enum Implementation {
+		IN_MEMORY {
+			@Override
+			FilmStorage create() {
+				return new InMemoryFilmStorage();
+			}
+		},
+		OFF_HEAP {
+			@Override
+			FilmStorage create() {
+				return new OffHeapFilmStorage();
+			}
+		};
+
+		abstract FilmStorage create();
+	}
+}
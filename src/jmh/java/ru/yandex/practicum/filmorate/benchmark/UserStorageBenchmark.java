@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikePipeline;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение пользователей и друзей: пакетный запрос по ID, проверка существования и общие друзья
+ * на уровне хранилища и сервиса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStorageBenchmark {
+	private static final int SAMPLES = 4096;
+
+	@Param({"10000", "1000000", "10000000"})
+	int users;
+
+	@Param({"UNIFORM", "POWER_LAW"})
+	DegreeDistribution distribution;
+
+	@Param("20")
+	int meanFriends;
+
+	@Param("100")
+	int batchSize;
+
+	private InMemoryUserStorage storage;
+	private LikePipeline likePipeline;
+	private UserService userService;
+	private int[][] batches;
+	private int[] firstIds;
+	private int[] secondIds;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		storage = Datasets.users(users, distribution, meanFriends);
+		InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+		likePipeline = new LikePipeline(filmStorage, 1, 1024, 64, false);
+		Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		FilmService filmService = new FilmService(filmStorage, storage, validator, likePipeline, registry, 256);
+		userService = new UserService(storage, filmService, validator, registry, 1024, 1024);
+
+		SplittableRandom random = new SplittableRandom(Datasets.SEED + 2);
+		batches = new int[SAMPLES][batchSize];
+		firstIds = new int[SAMPLES];
+		secondIds = new int[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			for (int j = 0; j < batchSize; j++) {
+				batches[i][j] = 1 + random.nextInt(users);
+			}
+			firstIds[i] = 1 + random.nextInt(users);
+			secondIds[i] = 1 + random.nextInt(users);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		likePipeline.stop();
+	}
+
+	@Benchmark
+	public List<User> getUsersByIds(Cursor cursor) {
+		return storage.getUsersByIds(batches[cursor.next(SAMPLES)]);
+	}
+
+	@Benchmark
+	public boolean userExists(Cursor cursor) {
+		return storage.userExists(firstIds[cursor.next(SAMPLES)]);
+	}
+
+	@Benchmark
+	public List<User> storageCommonFriends(Cursor cursor) {
+		int i = cursor.next(SAMPLES);
+		return storage.getCommonFriends(firstIds[i], secondIds[i]);
+	}
+
+	@Benchmark
+	public List<User> serviceCommonFriends(Cursor cursor) {
+		int i = cursor.next(SAMPLES);
+		return userService.getCommonFriends(firstIds[i], secondIds[i]);
+	}
+}
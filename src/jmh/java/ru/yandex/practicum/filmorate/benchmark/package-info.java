@@ -0,0 +1,18 @@
+/**
+ * JMH-бенчмарки хранилищ, сервисов и сериализации.
+ *
+ * <p>Запуск всех бенчмарков с результатом в target/jmh-result.json:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec@jmh
+ * </pre>
+ * Дополнительные аргументы JMH передаются через свойство jmh.args, например только 10 млн
+ * сущностей со степенным распределением и увеличенной кучей:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec@jmh -Djmh.args="UserStorage -p users=10000000 -p distribution=POWER_LAW -jvmArgsAppend -Xmx16g"
+ * </pre>
+ * Сравнение хранилища вне кучи с хранилищем в памяти вместе с паузами сборщика:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec@jmh -Djmh.args="OffHeapFilmStorage -prof gc -jvmArgsAppend -Xmx16g"
+ * </pre>
+ */
+package ru.yandex.practicum.filmorate.benchmark;
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поисковый индекс на каталоге из миллиона фильмов: запросы из одного, двух и трёх слов
+ * и переиндексация фильма при обновлении. Частоты слов распределены по закону Ципфа, поэтому
+ * в запросах встречаются и редкие слова, и слова из сотен тысяч описаний.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FilmSearchIndexBenchmark {
+	private static final String[] SYLLABLES = {
+			"ка", "ро", "ми", "на", "ль", "те", "ви", "за", "по", "ст", "ер", "ан", "ки", "do", "re", "la"
+	};
+
+	@Param("1000000")
+	int films;
+
+	@Param("50000")
+	int vocabulary;
+
+	@Param({"1", "2", "3"})
+	int queryTerms;
+
+	private String[] words;
+	private List<Film> catalog;
+	private FilmSearchIndex index;
+	private String[] queries;
+	private int cursor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(42);
+		words = new String[vocabulary];
+		for (int i = 0; i < vocabulary; i++) {
+			StringBuilder word = new StringBuilder();
+			for (int rest = i; word.isEmpty() || rest > 0; rest /= SYLLABLES.length) {
+				word.append(SYLLABLES[rest % SYLLABLES.length]);
+			}
+			words[i] = word.toString();
+		}
+		catalog = new ArrayList<>(films);
+		for (int id = 1; id <= films; id++) {
+			Film film = new Film();
+			film.setId(id);
+			film.setName(text(random, 1 + random.nextInt(3)));
+			film.setDescription(text(random, 10 + random.nextInt(15)));
+			catalog.add(film);
+		}
+		index = new FilmSearchIndex();
+		index.rebuild(catalog);
+		queries = new String[1024];
+		for (int i = 0; i < queries.length; i++) {
+			queries[i] = text(random, queryTerms);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 2)
+	@Measurement(iterations = 5, time = 2)
+	public int[] search() {
+		cursor = (cursor + 1) & (queries.length - 1);
+		return index.search(queries[cursor], 10, id -> id & 0xFF);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 2)
+	@Measurement(iterations = 5, time = 2)
+	public void update() {
+		cursor = (cursor + 1) & (queries.length - 1);
+		Film film = catalog.get((cursor * 7919) % films);
+		Film changed = new Film();
+		changed.setId(film.getId());
+		changed.setName(film.getName());
+		changed.setDescription(queries[cursor] + " " + film.getDescription());
+		index.update(film, changed);
+		index.update(changed, film);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public FilmSearchIndex rebuild() {
+		FilmSearchIndex rebuilt = new FilmSearchIndex();
+		rebuilt.rebuild(catalog);
+		return rebuilt;
+	}
+
+	private String text(SplittableRandom random, int length) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			if (i > 0) {
+				text.append(' ');
+			}
+			text.append(words[zipf(random)]);
+		}
+		return text.toString();
+	}
+
+	private int zipf(SplittableRandom random) {
+		return (int) Math.min(vocabulary - 1, Math.exp(random.nextDouble() * Math.log(vocabulary)) - 1);
+	}
+}
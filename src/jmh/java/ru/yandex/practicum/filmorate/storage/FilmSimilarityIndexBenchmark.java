@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Индекс похожих фильмов: полное перестроение, запрос рекомендаций и инкрементальный лайк.
+ * Популярность фильмов распределена по степенному закону.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class FilmSimilarityIndexBenchmark {
+
+	@Param("1000000")
+	int likes;
+
+	@Param("50000")
+	int films;
+
+	@Param("100000")
+	int users;
+
+	private List<Film> catalog;
+	private FilmSimilarityIndex index;
+	private int[] queryUsers;
+	private int cursor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(42);
+		catalog = new ArrayList<>(films);
+		for (int id = 1; id <= films; id++) {
+			Film film = new Film();
+			film.setId(id);
+			catalog.add(film);
+		}
+		for (int i = 0; i < likes; i++) {
+			int filmIndex = (int) Math.min(films - 1, films * Math.pow(random.nextDouble(), 3));
+			catalog.get(filmIndex).addLike(1 + random.nextInt(users));
+		}
+		index = new FilmSimilarityIndex();
+		index.rebuild(catalog);
+		queryUsers = new int[4096];
+		for (int i = 0; i < queryUsers.length; i++) {
+			queryUsers[i] = 1 + random.nextInt(users);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 5)
+	public FilmSimilarityIndex rebuild() {
+		FilmSimilarityIndex rebuilt = new FilmSimilarityIndex();
+		rebuilt.rebuild(catalog);
+		return rebuilt;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 2)
+	@Measurement(iterations = 5, time = 2)
+	public int[] recommend() {
+		cursor = (cursor + 1) & (queryUsers.length - 1);
+		return index.recommend(queryUsers[cursor], 10);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 2)
+	@Measurement(iterations = 5, time = 2)
+	public void likeAndUnlike() {
+		cursor = (cursor + 1) & (queryUsers.length - 1);
+		int filmId = 1 + (cursor * 7919) % films;
+		index.like(filmId, queryUsers[cursor]);
+		index.unlike(filmId, queryUsers[cursor]);
+	}
+}
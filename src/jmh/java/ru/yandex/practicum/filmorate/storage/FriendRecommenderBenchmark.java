@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчёт рекомендаций друзей без кэша для пользователя с friends друзьями, у каждого из которых
+ * в среднем friendsOfFriends друзей. Сравнивается последовательный и параллельный подсчёт.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendRecommenderBenchmark {
+	private static final int USER_ID = 1;
+
+	@Param({"100", "1000", "5000"})
+	int friends;
+
+	@Param({"50", "500"})
+	int friendsOfFriends;
+
+	@Param("1000000")
+	int users;
+
+	private FriendRecommender sequential;
+	private FriendRecommender parallel;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		FriendshipGraph graph = new FriendshipGraph();
+		SplittableRandom random = new SplittableRandom(42);
+		for (int i = 0; i < friends; i++) {
+			int friendId = 2 + random.nextInt(users - 1);
+			graph.addEdge(USER_ID, friendId);
+			for (int j = 0; j < friendsOfFriends; j++) {
+				int candidate = 2 + random.nextInt(Math.min(users - 1, friends * friendsOfFriends / 4 + 1));
+				if (candidate != friendId) {
+					graph.addEdge(friendId, candidate);
+				}
+			}
+		}
+		sequential = new FriendRecommender(graph, FriendRecommender.DEFAULT_MAX_VISITED, Integer.MAX_VALUE);
+		parallel = new FriendRecommender(graph);
+	}
+
+	@Benchmark
+	public int[] sequential() {
+		return sequential.compute(USER_ID, 10);
+	}
+
+	@Benchmark
+	public int[] parallel() {
+		return parallel.compute(USER_ID, 10);
+	}
+}
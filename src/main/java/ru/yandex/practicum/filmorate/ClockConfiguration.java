@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * Общие часы приложения. Хранилища и конвейер лайков берут время отсюда, так что корзины трендов
+ * и начальные версии зависят от одного источника, который тест может подменить.
+ */
+@Configuration
+public class ClockConfiguration {
+
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+}
@@ -1,26 +1,43 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @RestController
 @RequestMapping("/films")
 public class FilmController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -30,6 +47,18 @@ public class FilmController {
         return new ResponseEntity<>(createdFilm, HttpStatus.CREATED);
     }
 
+    /**
+     * Пакетная загрузка JSON-массива или NDJSON. Ответ 200 перечисляет созданные ID и ошибки по номерам
+     * элементов. Загрузка не атомарна: фильмы вставляются блоками по 1000, и если обработка
+     * оборвалась, уже вставленные блоки остаются.
+     */
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.MEDIA_TYPE})
+    public ResponseEntity<BatchResult> addFilms(InputStream body) throws IOException {
+        try (MappingIterator<JsonNode> films = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            return ResponseEntity.ok(filmService.addFilms(films, node -> objectMapper.convertValue(node, Film.class)));
+        }
+    }
+
     @PutMapping
     public ResponseEntity<Film> updateFilm(@Valid @RequestBody Film film) {
         Film updatedFilm = filmService.updateFilm(film);
@@ -37,13 +66,56 @@ public class FilmController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Film>> getAllFilms() {
+    public ResponseEntity<List<Film>> getAllFilms(@RequestParam(required = false) int[] ids,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) Integer after,
+                                                  @RequestParam(required = false)
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedFrom,
+                                                  @RequestParam(required = false)
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedTo,
+                                                  @RequestParam(required = false) Integer minDuration,
+                                                  @RequestParam(required = false) Integer maxDuration) {
+        if (ids != null) {
+            return ResponseEntity.ok(filmService.getFilmsByIds(ids));
+        }
+        if (after != null && limit == null) {
+            log.warn("Курсор after передан без limit: {}", after);
+            throw new ValidationException("Параметр after требует параметра limit.");
+        }
+        FilmFilter filter = new FilmFilter(releasedFrom, releasedTo, minDuration, maxDuration);
+        if (!filter.isEmpty()) {
+            if (after != null) {
+                log.warn("Курсор after передан вместе с фильтрами: {}", after);
+                throw new ValidationException("Параметр after не поддерживается вместе с фильтрами: "
+                        + "отфильтрованная выборка упорядочена не по ID.");
+            }
+            return ResponseEntity.ok(filmService.findFilms(filter, limit));
+        }
+        if (limit != null) {
+            List<Film> page = filmService.getFilmsPage(after == null ? 0 : after, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.size() == limit) {
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+            }
+            return response.body(page);
+        }
         List<Film> films = filmService.getAllFilms();
         return ResponseEntity.ok(films);
     }
 
+    @GetMapping(params = "stream=true", produces = NdjsonResponses.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAllFilms() {
+        log.info("Потоковая выдача всех фильмов");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NdjsonResponses.MEDIA_TYPE))
+                .body(NdjsonResponses.stream(objectMapper, filmService::getFilmsPage, Film::getId));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Film> getFilmById(@PathVariable int id) {
+    public ResponseEntity<Film> getFilmById(@PathVariable int id, WebRequest request) {
+        if (request.checkNotModified(String.valueOf(filmService.getFilmVersion(id)))) {
+            return null;
+        }
         Film film = filmService.getFilmById(id);
         if (film == null) {
             return ResponseEntity.notFound().build();
@@ -58,29 +130,60 @@ public class FilmController {
     }
 
     @PutMapping("/{id}/like/{userId}")
-    public ResponseEntity<Map<String, String>> addLike(@PathVariable int id, @PathVariable Long userId) {
+    public ResponseEntity<Void> addLike(@PathVariable int id, @PathVariable int userId) {
         log.info("Добавление лайка: фильм {} лайкнул {}", id, userId);
-
-        if (!filmService.userExists(userId)) {
-            log.error("Пользователь с ID {} не найден", userId);
-            Map<String, String> errorResponse = new HashMap<>();
-            errorResponse.put("error", "Пользователь с ID " + userId + " не найден.");
-            return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
-        }
-
         filmService.addLike(id, userId);
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/likes")
+    public ResponseEntity<BatchResult> addLikes(@RequestBody List<LikeEvent> events,
+                                                @RequestParam(required = false, defaultValue = "true") boolean wait) {
+        log.info("Пакетная загрузка лайков, событий: {}", events.size());
+        return ResponseEntity.ok(filmService.addLikes(events, wait));
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
-    public ResponseEntity<Void> removeLike(@PathVariable int id, @PathVariable Long userId) {
+    public ResponseEntity<Void> removeLike(@PathVariable int id, @PathVariable int userId) {
         filmService.removeLike(id, userId);
         return ResponseEntity.noContent().build();
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<List<Film>> searchFilms(@RequestParam String q,
+                                                  @RequestParam(required = false, defaultValue = "10") int limit) {
+        return ResponseEntity.ok(filmService.searchFilms(q, limit));
+    }
+
+    @GetMapping("/trending")
+    public ResponseEntity<List<Film>> getTrendingFilms(@RequestParam(required = false, defaultValue = "24h") String window,
+                                                       @RequestParam(required = false, defaultValue = "10") int count) {
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            log.warn("Некорректное окно трендов: {}", window);
+            throw new ValidationException("Некорректное окно трендов: " + window);
+        }
+        return ResponseEntity.ok(filmService.getTrendingFilms(duration, count));
+    }
+
     @GetMapping("/popular")
-    public ResponseEntity<List<Film>> getPopularFilms(@RequestParam(required = false, defaultValue = "10") int count) {
-        List<Film> films = filmService.getPopularFilms(count);
+    public ResponseEntity<List<Film>> getPopularFilms(@RequestParam(required = false, defaultValue = "10") int count,
+                                                      @RequestParam(required = false)
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedFrom,
+                                                      @RequestParam(required = false)
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedTo,
+                                                      @RequestParam(required = false) Integer minDuration,
+                                                      @RequestParam(required = false) Integer maxDuration,
+                                                      WebRequest request) {
+        if (request.checkNotModified(String.valueOf(filmService.getFilmsVersion()))) {
+            return null;
+        }
+        FilmFilter filter = new FilmFilter(releasedFrom, releasedTo, minDuration, maxDuration);
+        List<Film> films = filter.isEmpty()
+                ? filmService.getPopularFilms(count)
+                : filmService.getPopularFilms(count, filter);
         return ResponseEntity.ok(films);
     }
 }
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Потоковая выдача коллекций в формате NDJSON: сущности читаются из хранилища страницами
+ * и пишутся в ответ по одной, поэтому память на ответ не зависит от размера коллекции.
+ */
+final class NdjsonResponses {
+    static final String MEDIA_TYPE = "application/x-ndjson";
+    private static final int PAGE_SIZE = 500;
+
+    private NdjsonResponses() {
+    }
+
+    static <T> StreamingResponseBody stream(ObjectMapper objectMapper,
+                                            BiFunction<Integer, Integer, List<T>> pageLoader,
+                                            ToIntFunction<T> idExtractor) {
+        return outputStream -> {
+            int after = 0;
+            List<T> page = pageLoader.apply(after, PAGE_SIZE);
+            while (!page.isEmpty()) {
+                for (T item : page) {
+                    outputStream.write(objectMapper.writeValueAsBytes(item));
+                    outputStream.write('\n');
+                }
+                outputStream.flush();
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+                after = idExtractor.applyAsInt(page.get(page.size() - 1));
+                page = pageLoader.apply(after, PAGE_SIZE);
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/users")
+public class RecommendationController {
+    private static final Logger log = LoggerFactory.getLogger(RecommendationController.class);
+    private final FilmService filmService;
+
+    public RecommendationController(FilmService filmService) {
+        this.filmService = filmService;
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<List<Film>> getRecommendations(@PathVariable int id,
+                                                         @RequestParam(required = false, defaultValue = "10") int limit) {
+        log.info("Запрос рекомендаций фильмов для пользователя {}, количество {}", id, limit);
+        return ResponseEntity.ok(filmService.getRecommendations(id, limit));
+    }
+}
@@ -1,13 +1,22 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,19 +25,35 @@ import org.slf4j.LoggerFactory;
 @RequestMapping("/users")
 public class UserController {
     private static final Logger log = LoggerFactory.getLogger(UserController.class);
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
     public ResponseEntity<User> addUser(@Valid @RequestBody User user) {
-        log.info("Добавление пользователя: {}", user);
+        log.info("Добавление пользователя с логином: {}", user.getLogin());
         User createdUser = userService.addUser(user);
         return new ResponseEntity<>(createdUser, HttpStatus.CREATED);
     }
 
+    /**
+     * Пакетная загрузка JSON-массива или NDJSON. Ответ 200 перечисляет созданные ID и ошибки по номерам
+     * элементов. Загрузка не атомарна: пользователи вставляются блоками по 1000, и если обработка
+     * оборвалась, уже вставленные блоки остаются.
+     */
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.MEDIA_TYPE})
+    public ResponseEntity<BatchResult> addUsers(InputStream body) throws IOException {
+        log.info("Пакетная загрузка пользователей");
+        try (MappingIterator<JsonNode> users = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            return ResponseEntity.ok(userService.addUsers(users, node -> objectMapper.convertValue(node, User.class)));
+        }
+    }
+
     @PutMapping
     public ResponseEntity<User> updateUser(@Valid @RequestBody User user) {
         log.info("Обновление пользователя с ID: {}", user.getId());
@@ -37,12 +62,39 @@ public class UserController {
     }
 
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) int[] ids,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) Integer after) {
+        if (ids != null) {
+            log.info("Запрос пользователей по списку ID, количество: {}", ids.length);
+            return ResponseEntity.ok(userService.getUsersByIds(ids));
+        }
+        if (after != null && limit == null) {
+            log.warn("Курсор after передан без limit: {}", after);
+            throw new ValidationException("Параметр after требует параметра limit.");
+        }
+        if (limit != null) {
+            log.info("Запрос страницы пользователей после ID {}, размер {}", after, limit);
+            List<User> page = userService.getUsersPage(after == null ? 0 : after, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.size() == limit) {
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+            }
+            return response.body(page);
+        }
         log.info("Запрос всех пользователей");
         List<User> users = userService.getAllUsers();
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping(params = "stream=true", produces = NdjsonResponses.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        log.info("Потоковая выдача всех пользователей");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NdjsonResponses.MEDIA_TYPE))
+                .body(NdjsonResponses.stream(objectMapper, userService::getUsersPage, User::getId));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<User> getUserById(@PathVariable int id) {
         log.info("Запрос пользователя с ID: {}", id);
@@ -86,12 +138,22 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public ResponseEntity<List<User>> getUserFriends(@PathVariable int id) {
+    public ResponseEntity<List<User>> getUserFriends(@PathVariable int id, WebRequest request) {
         log.info("Запрос друзей пользователя с ID: {}", id);
+        if (request.checkNotModified(String.valueOf(userService.getFriendsVersion(id)))) {
+            return null;
+        }
         List<User> friends = userService.getFriends(id);
         return ResponseEntity.ok(friends);
     }
 
+    @GetMapping("/{id}/friends/recommendations")
+    public ResponseEntity<List<User>> getFriendRecommendations(@PathVariable int id,
+                                                               @RequestParam(required = false, defaultValue = "10") int limit) {
+        log.info("Запрос рекомендаций друзей для пользователя {}, количество {}", id, limit);
+        return ResponseEntity.ok(userService.getFriendRecommendations(id, limit));
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public ResponseEntity<List<User>> getCommonFriends(@PathVariable int id, @PathVariable int otherId) {
         log.info("Запрос общих друзей между пользователем {} и пользователем {}", id, otherId);
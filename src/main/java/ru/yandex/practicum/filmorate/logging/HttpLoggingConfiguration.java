@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.Strategy;
+
+/**
+ * Включает выборочное логирование HTTP при filmorate.http-logging.mode=sampled.
+ * В режиме full используется стратегия Logbook по умолчанию.
+ */
+@Configuration
+@EnableConfigurationProperties(HttpLoggingProperties.class)
+@ConditionalOnProperty(name = "filmorate.http-logging.mode", havingValue = "sampled")
+public class HttpLoggingConfiguration {
+
+    @Bean
+    public Strategy sampledLoggingStrategy(HttpLoggingProperties properties) {
+        return new SampledLoggingStrategy(properties);
+    }
+}
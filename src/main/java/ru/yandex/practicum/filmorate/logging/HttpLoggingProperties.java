@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки выборочного логирования HTTP (filmorate.http-logging.*).
+ */
+@Data
+@ConfigurationProperties("filmorate.http-logging")
+public class HttpLoggingProperties {
+    /**
+     * full — Logbook пишет каждый запрос, sampled — выборочно.
+     */
+    private String mode = "full";
+    /**
+     * Доля успешных запросов, попадающих в лог, если путь не подошёл ни под одно правило.
+     */
+    private double defaultSampleRate = 1.0;
+    /**
+     * Правила выборки по шаблонам путей (Ant-стиль); применяется первое подходящее.
+     */
+    private List<Sampling> sampling = new ArrayList<>();
+    /**
+     * Шаблоны путей, для которых тело ответа не логируется (большие списки).
+     */
+    private List<String> omitResponseBody = new ArrayList<>();
+    /**
+     * Запросы дольше этого порога логируются всегда.
+     */
+    private Duration slowThreshold = Duration.ofMillis(500);
+
+    @Data
+    public static class Sampling {
+        private String path;
+        private double rate;
+    }
+}
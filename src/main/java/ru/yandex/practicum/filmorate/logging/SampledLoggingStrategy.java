@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.util.AntPathMatcher;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.ForwardingHttpRequest;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Стратегия Logbook для рабочего режима: запрос и ответ пишутся вместе после завершения обмена.
+ * Попадёт ли обмен в выборку, решается по пути ещё до чтения запроса, и тела буферизуются только
+ * у попавших в неё; тела ответов для больших списков не буферизуются и у них. Ошибки (статус
+ * 4xx/5xx) и медленные запросы вне выборки логируются всегда, но без тел.
+ */
+public class SampledLoggingStrategy implements Strategy {
+    private static final int ERROR_STATUS = 400;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final double defaultSampleRate;
+    private final List<HttpLoggingProperties.Sampling> sampling;
+    private final List<String> omitResponseBody;
+    private final Duration slowThreshold;
+
+    public SampledLoggingStrategy(HttpLoggingProperties properties) {
+        this.defaultSampleRate = properties.getDefaultSampleRate();
+        this.sampling = List.copyOf(properties.getSampling());
+        this.omitResponseBody = List.copyOf(properties.getOmitResponseBody());
+        this.slowThreshold = properties.getSlowThreshold();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+        // Запрос пишется вместе с ответом, когда известны статус и длительность.
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        if (ThreadLocalRandom.current().nextDouble() < sampleRate(request.getPath())) {
+            return new SampledRequest(request.withBody());
+        }
+        return request.withoutBody();
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        if (isSampled(request) && !matchesAny(omitResponseBody, request.getPath())) {
+            return response.withBody();
+        }
+        return response.withoutBody();
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        if (isSampled(request)
+                || response.getStatus() >= ERROR_STATUS
+                || correlation.getDuration().compareTo(slowThreshold) >= 0) {
+            sink.writeBoth(correlation, request, response);
+        }
+    }
+
+    double sampleRate(String path) {
+        for (HttpLoggingProperties.Sampling rule : sampling) {
+            if (pathMatcher.match(rule.getPath(), path)) {
+                return rule.getRate();
+            }
+        }
+        return defaultSampleRate;
+    }
+
+    /**
+     * Logbook оборачивает запрос, возвращённый из {@link #process(HttpRequest)}, своими обёртками,
+     * поэтому отметка выборки ищется по цепочке делегатов.
+     */
+    private static boolean isSampled(HttpRequest request) {
+        HttpRequest current = request;
+        while (!(current instanceof SampledRequest)) {
+            if (!(current instanceof ForwardingHttpRequest forwarding)) {
+                return false;
+            }
+            current = forwarding.delegate();
+        }
+        return true;
+    }
+
+    private boolean matchesAny(List<String> patterns, String path) {
+        for (String pattern : patterns) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record SampledRequest(HttpRequest delegate) implements ForwardingHttpRequest {
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймеры публичных методов FilmService и UserService с гистограммой для перцентилей.
+ * Теги ограничены именем класса, метода и исходом (success/error); таймеры создаются один раз на метод,
+ * поэтому на горячем пути остаются только поиск в карте, два чтения часов и запись в гистограмму.
+ */
+@Aspect
+@Component
+public class ServiceTimingAspect {
+    static final String TIMER_NAME = "filmorate.service";
+
+    private final MeterRegistry registry;
+    private final Map<Method, Timers> timers = new ConcurrentHashMap<>();
+
+    public ServiceTimingAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.service.FilmService.*(..))"
+            + " || execution(public * ru.yandex.practicum.filmorate.service.UserService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Timers methodTimers = timers.get(method);
+        if (methodTimers == null) {
+            methodTimers = timers.computeIfAbsent(method, this::register);
+        }
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            methodTimers.success().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            methodTimers.error().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timers register(Method method) {
+        return new Timers(timer(method, "success"), timer(method, "error"));
+    }
+
+    private Timer timer(Method method, String outcome) {
+        return Timer.builder(TIMER_NAME)
+                .description("Время выполнения операций сервисов")
+                .tag("class", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(500))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    private record Timers(Timer success, Timer error) {
+    }
+}
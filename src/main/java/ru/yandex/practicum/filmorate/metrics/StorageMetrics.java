@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+/**
+ * Размеры хранилищ: число фильмов и пользователей, общее число лайков и дружеских связей.
+ * Значения читаются из счётчиков хранилищ при каждом опросе, без обхода данных.
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+
+    public StorageMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.storage.films", filmStorage, FilmStorage::getFilmsCount)
+                .description("Число фильмов")
+                .register(registry);
+        Gauge.builder("filmorate.storage.users", userStorage, UserStorage::getUsersCount)
+                .description("Число пользователей")
+                .register(registry);
+        Gauge.builder("filmorate.storage.likes", filmStorage, FilmStorage::getTotalLikes)
+                .description("Общее число лайков")
+                .register(registry);
+        Gauge.builder("filmorate.storage.friendships", userStorage, UserStorage::getFriendshipsCount)
+                .description("Число дружеских связей")
+                .register(registry);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Результат пакетной загрузки: ID созданных записей и ошибки по номерам элементов.
+ */
+@Data
+public class BatchResult {
+
+    private int received;
+
+    private int created;
+
+    private List<Integer> ids = new ArrayList<>();
+
+    private List<ItemError> errors = new ArrayList<>();
+
+    public void addError(int index, String error) {
+        errors.add(new ItemError(index, error));
+    }
+
+    @Data
+    public static class ItemError {
+        private final int index;
+        private final String error;
+    }
+}
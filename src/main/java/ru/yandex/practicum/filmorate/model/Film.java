@@ -1,15 +1,17 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import jakarta.validation.constraints.*;
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Film.
  */
 @Data
+@JsonIgnoreProperties(value = "likesCount", allowGetters = true)
 public class Film {
 
     private int id;
@@ -27,13 +29,41 @@ public class Film {
     @Positive(message = "Продолжительность фильма должна быть положительным числом.")
     private int duration;
 
-    private Set<Long> likes = new HashSet<>();
+    private IntSet likes = new IntSet();
 
-    public void addLike(Long userId) {
+    /**
+     * Версия фильма: хранилище назначает новую при каждом изменении, включая лайки.
+     * В JSON не попадает: клиенту она приходит в заголовке ETag.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private volatile long version;
+
+    public void setLikes(IntSet likes) {
+        this.likes = likes == null ? new IntSet() : IntSet.copyOf(likes);
+    }
+
+    /**
+     * Копия фильма с собственным множеством лайков. Хранилище не меняет опубликованные фильмы:
+     * изменение применяется к копии, которая затем заменяет оригинал.
+     */
+    public Film copy() {
+        Film copy = new Film();
+        copy.id = id;
+        copy.name = name;
+        copy.description = description;
+        copy.releaseDate = releaseDate;
+        copy.duration = duration;
+        copy.likes = IntSet.copyOf(likes);
+        copy.version = version;
+        return copy;
+    }
+
+    public void addLike(int userId) {
         likes.add(userId);
     }
 
-    public void removeLike(Long userId) {
+    public void removeLike(int userId) {
         likes.remove(userId);
     }
 
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.LocalDate;
+
+/**
+ * Фильтр фильмов по дате релиза и продолжительности. Границы включительные, null — без ограничения.
+ */
+public record FilmFilter(LocalDate releasedFrom, LocalDate releasedTo, Integer minDuration, Integer maxDuration) {
+    public static final FilmFilter NONE = new FilmFilter(null, null, null, null);
+
+    public boolean isEmpty() {
+        return !hasReleaseDateRange() && !hasDurationRange();
+    }
+
+    public boolean hasReleaseDateRange() {
+        return releasedFrom != null || releasedTo != null;
+    }
+
+    public boolean hasDurationRange() {
+        return minDuration != null || maxDuration != null;
+    }
+
+    public boolean matches(Film film) {
+        LocalDate releaseDate = film.getReleaseDate();
+        if (hasReleaseDateRange() && (releaseDate == null
+                || releasedFrom != null && releaseDate.isBefore(releasedFrom)
+                || releasedTo != null && releaseDate.isAfter(releasedTo))) {
+            return false;
+        }
+        return (minDuration == null || film.getDuration() >= minDuration)
+                && (maxDuration == null || film.getDuration() <= maxDuration);
+    }
+}
@@ -0,0 +1,245 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Компактное множество int-значений с открытой адресацией и линейным пробированием.
+ * Хранит ID без упаковки в Long, в JSON сериализуется как отсортированный массив.
+ *
+ * <p>Изменения должны выполняться под блокировкой владельца (хранилища). Чтение без блокировки
+ * безопасно, но слабо согласовано: параллельно с изменением элемент может быть временно не виден.
+ * Лайки и друзья опубликованных сущностей не меняются на месте: хранилища заменяют их копиями.
+ */
+public final class IntSet {
+    private static final int EMPTY = 0;
+    private static final int MIN_CAPACITY = 4;
+
+    private volatile int[] table;
+    private volatile int size;
+    private volatile boolean containsZero;
+
+    public IntSet() {
+        table = new int[MIN_CAPACITY];
+    }
+
+    public IntSet(int expectedSize) {
+        table = new int[tableSizeFor(expectedSize)];
+    }
+
+    private IntSet(int[] table, int size, boolean containsZero) {
+        this.table = table;
+        this.size = size;
+        this.containsZero = containsZero;
+    }
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static IntSet of(int... values) {
+        IntSet set = new IntSet(values.length);
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    /**
+     * Копия множества. Если таблица не слишком разрежена удалениями, она копируется целиком без
+     * перехеширования. Источник не должен меняться во время копирования.
+     */
+    public static IntSet copyOf(IntSet other) {
+        int[] tab = other.table;
+        if (tab.length > MIN_CAPACITY && other.size * 8 < tab.length) {
+            IntSet set = new IntSet(other.size());
+            other.forEach(set::add);
+            return set;
+        }
+        return new IntSet(tab.clone(), other.size, other.containsZero);
+    }
+
+    public boolean add(int value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int[] tab = table;
+        int mask = tab.length - 1;
+        int index = mix(value) & mask;
+        while (tab[index] != EMPTY) {
+            if (tab[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        if ((size + 1) * 2 > tab.length) {
+            tab = rehash(tab.length << 1);
+            mask = tab.length - 1;
+            index = mix(value) & mask;
+            while (tab[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+        }
+        tab[index] = value;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        if (value == EMPTY) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int[] tab = table;
+        int mask = tab.length - 1;
+        int index = mix(value) & mask;
+        while (tab[index] != value) {
+            if (tab[index] == EMPTY) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        shiftBack(tab, index);
+        size--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        int[] tab = table;
+        int mask = tab.length - 1;
+        int index = mix(value) & mask;
+        for (int probes = 0; probes < tab.length; probes++) {
+            int current = tab[index];
+            if (current == value) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        if (containsZero) {
+            action.accept(EMPTY);
+        }
+        for (int value : table) {
+            if (value != EMPTY) {
+                action.accept(value);
+            }
+        }
+    }
+
+    @JsonValue
+    public int[] toArray() {
+        int[] tab = table;
+        int[] result = new int[tab.length + 1];
+        int count = 0;
+        if (containsZero) {
+            result[count++] = EMPTY;
+        }
+        for (int value : tab) {
+            if (value != EMPTY) {
+                result[count++] = value;
+            }
+        }
+        int[] values = Arrays.copyOf(result, count);
+        Arrays.sort(values);
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntSet other) || other.size() != size()) {
+            return false;
+        }
+        boolean[] equal = {true};
+        forEach(value -> {
+            if (equal[0] && !other.contains(value)) {
+                equal[0] = false;
+            }
+        });
+        return equal[0];
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = {0};
+        forEach(value -> hash[0] += value);
+        return hash[0];
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private void shiftBack(int[] tab, int index) {
+        int mask = tab.length - 1;
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (tab[next] != EMPTY) {
+            int home = mix(tab[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                tab[gap] = tab[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        tab[gap] = EMPTY;
+    }
+
+    private int[] rehash(int capacity) {
+        int[] newTable = new int[capacity];
+        int mask = capacity - 1;
+        for (int value : table) {
+            if (value != EMPTY) {
+                int index = mix(value) & mask;
+                while (newTable[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                newTable[index] = value;
+            }
+        }
+        table = newTable;
+        return newTable;
+    }
+
+    private static int mix(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
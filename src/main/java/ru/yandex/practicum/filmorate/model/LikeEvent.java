@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Событие лайка или его отмены для пакетной загрузки. Если время события не указано,
+ * используется время приёма.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeEvent {
+
+    private int filmId;
+
+    private int userId;
+
+    private boolean like = true;
+
+    private Instant timestamp;
+}
@@ -1,10 +1,10 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import jakarta.validation.constraints.*;
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * User.
@@ -28,7 +28,15 @@ public class User {
     @PastOrPresent(message = "Дата рождения не может быть в будущем.")
     private LocalDate birthday;
 
-    private Set<Long> friends = new HashSet<>();
+    private IntSet friends = new IntSet();
+
+    /**
+     * Версия пользователя: хранилище назначает новую при каждом изменении, включая дружбу.
+     * В JSON не попадает: клиенту она приходит в заголовке ETag списка друзей.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private volatile long version;
 
     public String getName() {
         if (name == null || name.isBlank()) {
@@ -41,15 +49,35 @@ public class User {
         this.name = name;
     }
 
-    public void addFriend(Long friendId) {
+    public void setFriends(IntSet friends) {
+        this.friends = friends == null ? new IntSet() : IntSet.copyOf(friends);
+    }
+
+    /**
+     * Копия пользователя с собственным множеством друзей. Хранилище не меняет опубликованных
+     * пользователей: изменение применяется к копии, которая затем заменяет оригинал.
+     */
+    public User copy() {
+        User copy = new User();
+        copy.id = id;
+        copy.email = email;
+        copy.login = login;
+        copy.name = name;
+        copy.birthday = birthday;
+        copy.friends = IntSet.copyOf(friends);
+        copy.version = version;
+        return copy;
+    }
+
+    public void addFriend(int friendId) {
         friends.add(friendId);
     }
 
-    public void removeFriend(Long friendId) {
+    public void removeFriend(int friendId) {
         friends.remove(friendId);
     }
 
-    public Set<Long> getFriends() {
+    public IntSet getFriends() {
         return friends;
     }
 }
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Пакетная загрузка из потока: элементы проверяются по одному и вставляются блоками,
+ * так что в памяти одновременно находится не больше одного блока.
+ *
+ * <p>Элементы читаются из потока как есть и превращаются в сущности по одному, поэтому null и элементы,
+ * которые не удалось преобразовать, попадают в ошибки результата под своим номером и не мешают
+ * остальным. Загрузка не атомарна: блок вставляется, как только заполнится. Если поток обрывается
+ * некорректным JSON или вставка блока падает, уже вставленные блоки остаются в хранилище.
+ */
+final class BatchImport {
+    static final int CHUNK_SIZE = 1_000;
+
+    private BatchImport() {
+    }
+
+    static <S, T> BatchResult run(Iterator<S> items,
+                                  Function<S, T> reader,
+                                  Validator validator,
+                                  Consumer<T> validation,
+                                  Function<List<T>, List<T>> insert,
+                                  ToIntFunction<T> idExtractor) {
+        BatchResult result = new BatchResult();
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        int index = 0;
+        while (true) {
+            S source;
+            try {
+                if (!items.hasNext()) {
+                    break;
+                }
+                source = items.next();
+            } catch (RuntimeException e) {
+                result.addError(index, "Некорректный JSON, загрузка остановлена: " + e.getMessage());
+                break;
+            }
+            T item = null;
+            String error;
+            try {
+                item = reader.apply(source);
+                error = validate(item, validator, validation);
+            } catch (IllegalArgumentException e) {
+                error = "Некорректный элемент пакета: " + e.getMessage();
+            }
+            if (error == null) {
+                chunk.add(item);
+            } else {
+                result.addError(index, error);
+            }
+            index++;
+            if (chunk.size() == CHUNK_SIZE) {
+                flush(chunk, insert, idExtractor, result);
+            }
+        }
+        flush(chunk, insert, idExtractor, result);
+        result.setReceived(index);
+        return result;
+    }
+
+    private static <T> String validate(T item, Validator validator, Consumer<T> validation) {
+        if (item == null) {
+            return "Элемент пакета не должен быть null.";
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(" "));
+        }
+        try {
+            validation.accept(item);
+            return null;
+        } catch (ValidationException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static <T> void flush(List<T> chunk, Function<List<T>, List<T>> insert,
+                                  ToIntFunction<T> idExtractor, BatchResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        for (T created : insert.apply(chunk)) {
+            result.getIds().add(idExtractor.applyAsInt(created));
+        }
+        result.setCreated(result.getIds().size());
+        chunk.clear();
+    }
+}
@@ -1,15 +1,29 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import jakarta.validation.Validator;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class FilmService {
@@ -17,16 +31,49 @@ public class FilmService {
     private static final Logger log = LoggerFactory.getLogger(FilmService.class);
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final Validator validator;
+    private final LikePipeline likePipeline;
+    private final Counter likesAdded;
+    private final Counter likesRemoved;
+    private final ResultCache<PopularKey, List<Film>> popularCache;
     private final LocalDate earliestReleaseDate = LocalDate.of(1895, 12, 28);
 
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, Validator validator,
+                       LikePipeline likePipeline, MeterRegistry meterRegistry,
+                       @Value("${filmorate.cache.popular.max-size:256}") int popularCacheSize) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.validator = validator;
+        this.likePipeline = likePipeline;
+        this.likesAdded = likeCounter(meterRegistry, "add");
+        this.likesRemoved = likeCounter(meterRegistry, "remove");
+        this.popularCache = new ResultCache<>("popular", popularCacheSize, meterRegistry);
     }
 
     public Film addFilm(Film film) {
         validateFilm(film);
-        return filmStorage.addFilm(film);
+        Film createdFilm = filmStorage.addFilm(film);
+        invalidatePopular(createdFilm.getId());
+        return createdFilm;
+    }
+
+    public BatchResult addFilms(Iterator<Film> films) {
+        return addFilms(films, Function.identity());
+    }
+
+    /**
+     * Пакетная загрузка элементов, которые reader превращает в фильмы. Ошибка преобразования
+     * (IllegalArgumentException) или null становятся ошибкой элемента, загрузка продолжается.
+     */
+    public <S> BatchResult addFilms(Iterator<S> items, Function<S, Film> reader) {
+        BatchResult result = BatchImport.run(items, reader, validator, this::validateFilm, filmStorage::addFilms,
+                Film::getId);
+        if (result.getCreated() > 0) {
+            popularCache.invalidateAll();
+        }
+        log.info("Пакетная загрузка фильмов: получено {}, создано {}, ошибок {}",
+                result.getReceived(), result.getCreated(), result.getErrors().size());
+        return result;
     }
 
     public Film updateFilm(Film film) {
@@ -36,13 +83,27 @@ public class FilmService {
         }
 
         validateFilm(film);
-        return filmStorage.updateFilm(film);
+        Film updatedFilm = filmStorage.updateFilm(film);
+        invalidatePopular(updatedFilm.getId());
+        return updatedFilm;
     }
 
     public List<Film> getAllFilms() {
         return filmStorage.getAllFilms();
     }
 
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        if (limit <= 0) {
+            log.warn("Некорректный размер страницы: {}", limit);
+            throw new ValidationException("Параметр limit должен быть положительным числом.");
+        }
+        return filmStorage.getFilmsPage(afterId, limit);
+    }
+
+    public List<Film> getFilmsByIds(int[] ids) {
+        return filmStorage.getFilmsByIds(ids);
+    }
+
     public Film getFilmById(int id) {
         Film film = filmStorage.getFilmById(id);
         if (film == null) {
@@ -52,12 +113,32 @@ public class FilmService {
         return film;
     }
 
+    /**
+     * Версия фильма для условных запросов; сам фильм не загружается.
+     */
+    public long getFilmVersion(int id) {
+        long version = filmStorage.getFilmVersion(id);
+        if (version == 0) {
+            log.warn("Фильм с ID {} не найден.", id);
+            throw new ValidationException("Фильм с таким ID не найден.");
+        }
+        return version;
+    }
+
+    /**
+     * Общая версия всех фильмов: меняется при любом изменении фильмов и лайков.
+     */
+    public long getFilmsVersion() {
+        return filmStorage.getVersion();
+    }
+
     public void deleteFilm(int id) {
         if (filmStorage.getFilmById(id) == null) {
             log.warn("Фильм с ID {} для удаления не найден.", id);
             throw new ValidationException("Фильм с таким ID не найден.");
         }
         filmStorage.deleteFilm(id);
+        invalidatePopular(id);
     }
 
     private void validateFilm(Film film) {
@@ -80,35 +161,208 @@ public class FilmService {
         }
     }
 
-    public void addLike(int filmId, Long userId) {
-        if (!userExists(userId)) {
-            log.warn("Пользователь с ID {} не найден.", userId);
-            throw new ValidationException("Пользователь с таким ID не найден.");
+    public void addLike(int filmId, int userId) {
+        validateLike(filmId, userId);
+        likePipeline.submit(filmId, userId, true).join();
+        invalidatePopular(filmId);
+        likesAdded.increment();
+    }
+
+    public void removeLike(int filmId, int userId) {
+        validateLike(filmId, userId);
+        likePipeline.submit(filmId, userId, false).join();
+        invalidatePopular(filmId);
+        likesRemoved.increment();
+    }
+
+    /**
+     * Снимает все лайки удаляемого пользователя. Фильмы только теряют лайки, поэтому из кэша
+     * удаляются лишь списки популярных, где есть хотя бы один из затронутых фильмов.
+     */
+    public void removeUserLikes(int userId) {
+        int[] filmIds = filmStorage.removeUserLikes(userId);
+        if (filmIds.length == 0) {
+            return;
+        }
+        IntSet affected = IntSet.of(filmIds);
+        popularCache.invalidateIf((key, films) -> {
+            for (Film cached : films) {
+                if (affected.contains(cached.getId())) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        likesRemoved.increment(filmIds.length);
+        log.info("Сняты лайки пользователя {}: фильмов {}", userId, filmIds.length);
+    }
+
+    /**
+     * Принимает пачку событий лайков. При waitForApply = true метод возвращается после того,
+     * как все принятые события применены, и последующее чтение их увидит. Кэш популярных
+     * фильмов сбрасывается целиком, когда пачка применена.
+     */
+    public BatchResult addLikes(List<LikeEvent> events, boolean waitForApply) {
+        BatchResult result = new BatchResult();
+        CompletableFuture<?>[] submitted = new CompletableFuture<?>[events.size()];
+        int accepted = 0;
+        for (int i = 0; i < events.size(); i++) {
+            LikeEvent event = events.get(i);
+            if (!userStorage.userExists(event.getUserId())) {
+                result.addError(i, "Пользователь с таким ID не найден.");
+            } else if (filmStorage.getFilmById(event.getFilmId()) == null) {
+                result.addError(i, "Фильм с таким ID не найден.");
+            } else {
+                submitted[accepted++] = event.getTimestamp() != null
+                        ? likePipeline.submit(event.getFilmId(), event.getUserId(), event.isLike(),
+                                event.getTimestamp().toEpochMilli())
+                        : likePipeline.submit(event.getFilmId(), event.getUserId(), event.isLike());
+                (event.isLike() ? likesAdded : likesRemoved).increment();
+            }
         }
+        CompletableFuture<Void> applied = CompletableFuture.allOf(Arrays.copyOf(submitted, accepted))
+                .whenComplete((ignored, error) -> popularCache.invalidateAll());
+        if (waitForApply) {
+            applied.join();
+        }
+        result.setReceived(events.size());
+        result.setCreated(accepted);
+        return result;
+    }
 
-        Film film = getFilmById(filmId);
-        film.addLike(userId);
+    private static Counter likeCounter(MeterRegistry meterRegistry, String operation) {
+        return Counter.builder("filmorate.likes")
+                .description("Принятые лайки и отмены лайков")
+                .tag("operation", operation)
+                .register(meterRegistry);
     }
 
-    public void removeLike(int filmId, Long userId) {
+    private void validateLike(int filmId, int userId) {
         if (!userExists(userId)) {
             log.warn("Пользователь с ID {} не найден.", userId);
             throw new ValidationException("Пользователь с таким ID не найден.");
         }
-
-        Film film = filmStorage.getFilmById(filmId);
-        if (film == null) {
+        if (filmStorage.getFilmById(filmId) == null) {
             log.warn("Фильм с ID {} не найден.", filmId);
             throw new ValidationException("Фильм с таким ID не найден.");
         }
-        film.removeLike(userId);
     }
 
     public List<Film> getPopularFilms(int count) {
-        return filmStorage.getPopularFilms(count);
+        return popularCache.get(new PopularKey(count, FilmFilter.NONE),
+                () -> List.copyOf(filmStorage.getPopularFilms(count)));
+    }
+
+    public List<Film> getPopularFilms(int count, FilmFilter filter) {
+        validateFilter(filter);
+        return popularCache.get(new PopularKey(count, filter),
+                () -> List.copyOf(filmStorage.getPopularFilms(filter, count)));
+    }
+
+    /**
+     * Удаляет из кэша списки популярных, на которые могло повлиять изменение фильма: где он уже есть
+     * или куда он может попасть с текущим числом лайков. Вызывается после изменения в хранилище.
+     */
+    private void invalidatePopular(int filmId) {
+        Film film = filmStorage.getFilmById(filmId);
+        popularCache.invalidateIf((key, films) -> {
+            for (Film cached : films) {
+                if (cached.getId() == filmId) {
+                    return true;
+                }
+            }
+            if (film == null || !key.filter().matches(film)) {
+                return false;
+            }
+            return films.size() < key.count()
+                    || !films.isEmpty() && film.getLikesCount() >= films.get(films.size() - 1).getLikesCount();
+        });
+    }
+
+    /**
+     * Фильмы в диапазоне дат релиза и продолжительностей; без limit возвращаются все подходящие.
+     */
+    public List<Film> findFilms(FilmFilter filter, Integer limit) {
+        if (limit != null && limit <= 0) {
+            log.warn("Некорректный размер выборки: {}", limit);
+            throw new ValidationException("Параметр limit должен быть положительным числом.");
+        }
+        validateFilter(filter);
+        return filmStorage.findFilms(filter, limit == null ? Integer.MAX_VALUE : limit);
+    }
+
+    private void validateFilter(FilmFilter filter) {
+        if (filter.releasedFrom() != null && filter.releasedTo() != null
+                && filter.releasedFrom().isAfter(filter.releasedTo())) {
+            log.warn("Некорректный диапазон дат релиза: {} - {}", filter.releasedFrom(), filter.releasedTo());
+            throw new ValidationException("Параметр releasedFrom не может быть позже releasedTo.");
+        }
+        if (filter.minDuration() != null && filter.maxDuration() != null
+                && filter.minDuration() > filter.maxDuration()) {
+            log.warn("Некорректный диапазон продолжительности: {} - {}", filter.minDuration(), filter.maxDuration());
+            throw new ValidationException("Параметр minDuration не может быть больше maxDuration.");
+        }
+    }
+
+    public List<Film> searchFilms(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            log.warn("Пустой поисковый запрос.");
+            throw new ValidationException("Параметр q не может быть пустым.");
+        }
+        if (limit <= 0) {
+            log.warn("Некорректное число результатов поиска: {}", limit);
+            throw new ValidationException("Параметр limit должен быть положительным числом.");
+        }
+        return filmStorage.searchFilms(query, limit);
+    }
+
+    /**
+     * Фильмы с наибольшим числом свежих лайков в окне; вес лайка убывает с его возрастом.
+     */
+    public List<Film> getTrendingFilms(Duration window, int count) {
+        if (count <= 0) {
+            log.warn("Некорректное число фильмов в трендах: {}", count);
+            throw new ValidationException("Параметр count должен быть положительным числом.");
+        }
+        if (!filmStorage.getTrendingWindows().contains(window)) {
+            log.warn("Неподдерживаемое окно трендов: {}", window);
+            throw new ValidationException("Окно трендов должно быть одним из: "
+                    + filmStorage.getTrendingWindows().stream().map(FilmService::formatWindow)
+                    .collect(Collectors.joining(", ")) + ".");
+        }
+        return filmStorage.getTrendingFilms(window, count);
+    }
+
+    /**
+     * Рекомендации по похожим фильмам. Пользователю без лайков возвращаются популярные фильмы.
+     */
+    public List<Film> getRecommendations(int userId, int limit) {
+        if (limit <= 0) {
+            log.warn("Некорректное число рекомендаций: {}", limit);
+            throw new ValidationException("Параметр limit должен быть положительным числом.");
+        }
+        if (!userExists(userId)) {
+            log.warn("Пользователь с ID {} не найден.", userId);
+            throw new ValidationException("Пользователь с таким ID не найден.");
+        }
+        List<Film> recommendations = filmStorage.getFilmRecommendations(userId, limit);
+        return recommendations.isEmpty() ? filmStorage.getPopularFilmsNotLikedBy(userId, limit) : recommendations;
+    }
+
+    public boolean userExists(int userId) {
+        return userStorage.userExists(userId);
+    }
+
+    private static String formatWindow(Duration window) {
+        if (window.toDays() > 1 && window.equals(Duration.ofDays(window.toDays()))) {
+            return window.toDays() + "d";
+        }
+        if (window.equals(Duration.ofHours(window.toHours()))) {
+            return window.toHours() + "h";
+        }
+        return window.toMinutes() + "m";
     }
 
-    public boolean userExists(Long userId) {
-        return userStorage.getUserById(Math.toIntExact(userId)) != null;
+    private record PopularKey(int count, FilmFilter filter) {
     }
 }
@@ -0,0 +1,194 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвейер приёма лайков. События распределяются по шардам по ID фильма и попадают в
+ * ограниченные очереди; писатель шарда забирает их пачками, схлопывает повторные лайки
+ * и отмены одного пользователя и применяет пачку к каждому фильму за одну блокировку.
+ * Ошибка применения к фильму завершает с ошибкой только события этого фильма. После остановки
+ * новые события отклоняются, а оставшиеся в очередях завершаются с ошибкой.
+ */
+@Component
+public class LikePipeline {
+    private static final Logger log = LoggerFactory.getLogger(LikePipeline.class);
+
+    private final FilmStorage filmStorage;
+    private final Clock clock;
+    private final int maxBatchSize;
+    private final List<BlockingQueue<PendingLike>> queues = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+
+    public LikePipeline(FilmStorage filmStorage, int shards, int queueCapacity, int maxBatchSize,
+                        boolean virtualThreads) {
+        this(filmStorage, Clock.systemUTC(), shards, queueCapacity, maxBatchSize, virtualThreads);
+    }
+
+    @Autowired
+    LikePipeline(FilmStorage filmStorage, Clock clock,
+                 @Value("${filmorate.likes.shards:4}") int shards,
+                 @Value("${filmorate.likes.queue-capacity:65536}") int queueCapacity,
+                 @Value("${filmorate.likes.max-batch-size:1024}") int maxBatchSize,
+                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.filmStorage = filmStorage;
+        this.clock = clock;
+        this.maxBatchSize = maxBatchSize;
+        Thread.Builder threads = virtualThreads
+                ? Thread.ofVirtual().name("like-writer-", 0)
+                : Thread.ofPlatform().daemon().name("like-writer-", 0);
+        for (int shard = 0; shard < shards; shard++) {
+            BlockingQueue<PendingLike> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            writers.add(threads.start(() -> writeLoop(queue)));
+        }
+    }
+
+    /**
+     * Ставит событие в очередь. Возвращённый future завершается, когда событие применено к хранилищу.
+     * Если очередь шарда заполнена, вызывающий поток ждёт освобождения места. После {@link #stop()}
+     * future завершается с IllegalStateException.
+     */
+    public CompletableFuture<Void> submit(int filmId, int userId, boolean like) {
+        return submit(filmId, userId, like, clock.millis());
+    }
+
+    /**
+     * То же, что {@link #submit(int, int, boolean)}, с явным временем события (мс от эпохи).
+     */
+    public CompletableFuture<Void> submit(int filmId, int userId, boolean like, long timestamp) {
+        PendingLike pending = new PendingLike(filmId, userId, like, timestamp, new CompletableFuture<>());
+        if (!running) {
+            pending.done().completeExceptionally(stoppedException());
+            return pending.done();
+        }
+        BlockingQueue<PendingLike> queue = queues.get(Math.floorMod(filmId, queues.size()));
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.done().completeExceptionally(e);
+        }
+        if (stopped) {
+            failRemaining(queue);
+        }
+        return pending.done();
+    }
+
+    /**
+     * Останавливает приём: писатели применяют уже поставленные события и завершаются, события,
+     * поставленные в очередь после их завершения, завершаются с ошибкой.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread writer : writers) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        stopped = true;
+        queues.forEach(LikePipeline::failRemaining);
+    }
+
+    private static void failRemaining(BlockingQueue<PendingLike> queue) {
+        List<PendingLike> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(pending -> pending.done().completeExceptionally(stoppedException()));
+    }
+
+    private static IllegalStateException stoppedException() {
+        return new IllegalStateException("Приём лайков остановлен.");
+    }
+
+    private void writeLoop(BlockingQueue<PendingLike> queue) {
+        List<PendingLike> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingLike first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                applyBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка применения пачки лайков: {}", e.getMessage());
+                batch.forEach(pending -> pending.done().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Применяет пачку по фильмам. Каждый фильм применяется и журналируется отдельно, поэтому события
+     * фильма завершаются сразу после его применения, а ошибка затрагивает только события этого фильма.
+     */
+    private void applyBatch(List<PendingLike> batch) {
+        Map<Integer, List<PendingLike>> batchByFilm = new HashMap<>();
+        for (PendingLike pending : batch) {
+            batchByFilm.computeIfAbsent(pending.filmId(), id -> new ArrayList<>()).add(pending);
+        }
+        for (Map.Entry<Integer, List<PendingLike>> entry : batchByFilm.entrySet()) {
+            try {
+                applyFilm(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                log.error("Ошибка применения лайков фильма {}: {}", entry.getKey(), e.getMessage());
+                entry.getValue().forEach(pending -> pending.done().completeExceptionally(e));
+                continue;
+            }
+            entry.getValue().forEach(pending -> pending.done().complete(null));
+        }
+    }
+
+    private void applyFilm(int filmId, List<PendingLike> events) {
+        Map<Integer, PendingLike> lastState = new LinkedHashMap<>();
+        for (PendingLike pending : events) {
+            lastState.put(pending.userId(), pending);
+        }
+        int[] likes = new int[lastState.size()];
+        long[] likedAt = new long[lastState.size()];
+        int[] unlikes = new int[lastState.size()];
+        int likesCount = 0;
+        int unlikesCount = 0;
+        for (PendingLike pending : lastState.values()) {
+            if (pending.like()) {
+                likedAt[likesCount] = pending.timestamp();
+                likes[likesCount++] = pending.userId();
+            } else {
+                unlikes[unlikesCount++] = pending.userId();
+            }
+        }
+        filmStorage.applyLikes(filmId, Arrays.copyOf(likes, likesCount),
+                Arrays.copyOf(likedAt, likesCount), Arrays.copyOf(unlikes, unlikesCount));
+    }
+
+    private record PendingLike(int filmId, int userId, boolean like, long timestamp, CompletableFuture<Void> done) {
+    }
+}
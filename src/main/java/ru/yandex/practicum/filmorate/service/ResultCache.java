@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов запросов с вытеснением давно не читавшихся записей (LRU).
+ *
+ * <p>Ключи распределены по {@link #SEGMENTS} сегментам, каждый сегмент — LinkedHashMap в порядке
+ * доступа под своей ReentrantLock, поэтому чтения разных ключей почти не конкурируют, а виртуальные
+ * потоки не закрепляются за носителем, как при synchronized. Размер ограничен в каждом сегменте,
+ * так что общий предел соблюдается с точностью до округления.
+ *
+ * <p>Запись хранит future результата: первый промах по ключу запускает вычисление, а одновременные
+ * запросы того же ключа ждут его, не обращаясь к хранилищу. Ошибка вычисления не кэшируется.
+ * Инвалидация удаляет и ещё вычисляемые записи: их результат получат только уже ждущие запросы.
+ */
+final class ResultCache<K, V> {
+    static final int SEGMENTS = 16;
+
+    private final List<Segment<K, V>> segments = new ArrayList<>(SEGMENTS);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    ResultCache(String name, int maxSize, MeterRegistry meterRegistry) {
+        int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        this.hits = requestCounter(meterRegistry, name, "hit");
+        this.misses = requestCounter(meterRegistry, name, "miss");
+        this.evictions = Counter.builder("filmorate.cache.evictions")
+                .description("Записи, вытесненные из кэша результатов")
+                .tag("cache", name)
+                .register(meterRegistry);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments.add(new Segment<>(segmentSize, evictions));
+        }
+        Gauge.builder("filmorate.cache.size", this, ResultCache::size)
+                .description("Число записей в кэше результатов")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Результат по ключу из кэша или вычисленный loader. Пока значение вычисляется, другие
+     * запросы того же ключа ждут его результата.
+     */
+    V get(K key, Supplier<V> loader) {
+        Segment<K, V> segment = segmentFor(key);
+        CompletableFuture<V> future;
+        CompletableFuture<V> created = null;
+        segment.lock.lock();
+        try {
+            future = segment.get(key);
+            if (future == null) {
+                created = new CompletableFuture<>();
+                future = created;
+                segment.put(key, created);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        if (created == null) {
+            hits.increment();
+            return join(future);
+        }
+        misses.increment();
+        try {
+            V value = loader.get();
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            segment.lock.lock();
+            try {
+                segment.remove(key, created);
+            } finally {
+                segment.lock.unlock();
+            }
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.remove(key);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет записи, для которых affected возвращает true, и все ещё вычисляемые записи.
+     */
+    void invalidateIf(BiPredicate<K, V> affected) {
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                Iterator<Map.Entry<K, CompletableFuture<V>>> iterator = segment.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<K, CompletableFuture<V>> entry = iterator.next();
+                    CompletableFuture<V> future = entry.getValue();
+                    if (!future.isDone() || future.isCompletedExceptionally()
+                            || affected.test(entry.getKey(), future.join())) {
+                        iterator.remove();
+                    }
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        return segments.get((hash ^ (hash >>> 16)) & (SEGMENTS - 1));
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String name, String result) {
+        return Counter.builder("filmorate.cache.requests")
+                .description("Обращения к кэшу результатов")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Сегмент кэша: LinkedHashMap в порядке доступа, вытесняющая самую старую запись при переполнении.
+     */
+    private static final class Segment<K, V> extends LinkedHashMap<K, CompletableFuture<V>> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int maxSize;
+        private final Counter evictions;
+
+        Segment(int maxSize, Counter evictions) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, CompletableFuture<V>> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
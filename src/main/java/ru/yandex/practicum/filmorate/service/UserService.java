@@ -1,24 +1,45 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import jakarta.validation.Validator;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 @Service
 public class UserService {
 
     private final Logger log = LoggerFactory.getLogger(UserService.class);
     private final UserStorage userStorage;
+    private final FilmService filmService;
+    private final Validator validator;
+    private final Counter friendshipsAdded;
+    private final Counter friendshipsRemoved;
+    private final ResultCache<Integer, List<User>> friendsCache;
+    private final ResultCache<Integer, Recommendations> recommendationsCache;
 
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, FilmService filmService, Validator validator,
+                       MeterRegistry meterRegistry,
+                       @Value("${filmorate.cache.friends.max-size:65536}") int friendsCacheSize,
+                       @Value("${filmorate.cache.recommendations.max-size:65536}") int recommendationsCacheSize) {
         this.userStorage = userStorage;
+        this.filmService = filmService;
+        this.validator = validator;
+        this.friendshipsAdded = friendshipCounter(meterRegistry, "add");
+        this.friendshipsRemoved = friendshipCounter(meterRegistry, "remove");
+        this.friendsCache = new ResultCache<>("friends", friendsCacheSize, meterRegistry);
+        this.recommendationsCache = new ResultCache<>("recommendations", recommendationsCacheSize, meterRegistry);
     }
 
     public User addUser(User user) {
@@ -26,6 +47,22 @@ public class UserService {
         return userStorage.addUser(user);
     }
 
+    public BatchResult addUsers(Iterator<User> users) {
+        return addUsers(users, Function.identity());
+    }
+
+    /**
+     * Пакетная загрузка элементов, которые reader превращает в пользователей. Ошибка преобразования
+     * (IllegalArgumentException) или null становятся ошибкой элемента, загрузка продолжается.
+     */
+    public <S> BatchResult addUsers(Iterator<S> items, Function<S, User> reader) {
+        BatchResult result = BatchImport.run(items, reader, validator, this::validateUser, userStorage::addUsers,
+                User::getId);
+        log.info("Пакетная загрузка пользователей: получено {}, создано {}, ошибок {}",
+                result.getReceived(), result.getCreated(), result.getErrors().size());
+        return result;
+    }
+
     public User updateUser(User user) {
         if (userStorage.getUserById(user.getId()) == null) {
             log.warn("Попытка обновления пользователя с ID: {}", user.getId());
@@ -33,13 +70,27 @@ public class UserService {
         }
         log.info("Обновление пользователя с ID: {}", user.getId());
         validateUser(user);
-        return userStorage.updateUser(user);
+        User updatedUser = userStorage.updateUser(user);
+        updatedUser.getFriends().forEach(friendsCache::invalidate);
+        return updatedUser;
     }
 
     public List<User> getAllUsers() {
         return userStorage.getAllUsers();
     }
 
+    public List<User> getUsersPage(int afterId, int limit) {
+        if (limit <= 0) {
+            log.warn("Некорректный размер страницы: {}", limit);
+            throw new ValidationException("Параметр limit должен быть положительным числом.");
+        }
+        return userStorage.getUsersPage(afterId, limit);
+    }
+
+    public List<User> getUsersByIds(int[] ids) {
+        return userStorage.getUsersByIds(ids);
+    }
+
     public User getUserById(int id) {
         User user = userStorage.getUserById(id);
         if (user == null) {
@@ -49,47 +100,138 @@ public class UserService {
         return user;
     }
 
+    /**
+     * Удаляет пользователя вместе с его дружбой и лайками; популярные фильмы пересчитываются.
+     */
     public void deleteUser(int id) {
+        User user = userStorage.getUserById(id);
         userStorage.deleteUser(id);
+        friendsCache.invalidate(id);
+        if (user != null) {
+            user.getFriends().forEach(friendsCache::invalidate);
+            invalidateRecommendations(user);
+        }
+        filmService.removeUserLikes(id);
     }
 
     public void addFriend(int userId, int friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-
-        user.addFriend((long) friendId);
-        friend.addFriend((long) userId);
+        getUserById(userId);
+        getUserById(friendId);
 
-        userStorage.updateUser(user);
-        userStorage.updateUser(friend);
+        userStorage.addFriend(userId, friendId);
+        friendsCache.invalidate(userId);
+        friendsCache.invalidate(friendId);
+        invalidateRecommendations(userId, friendId);
+        friendshipsAdded.increment();
     }
 
     public void removeFriend(int userId, int friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
+        getUserById(userId);
+        getUserById(friendId);
 
-        user.removeFriend((long) friendId);
-        friend.removeFriend((long) userId);
-
-        userStorage.updateUser(user);
-        userStorage.updateUser(friend);
+        userStorage.removeFriend(userId, friendId);
+        friendsCache.invalidate(userId);
+        friendsCache.invalidate(friendId);
+        invalidateRecommendations(userId, friendId);
+        friendshipsRemoved.increment();
     }
 
+    /**
+     * Друзья пользователя из кэша. Запись сбрасывается при изменении дружбы пользователя, а также
+     * при обновлении или удалении любого из его друзей.
+     */
     public List<User> getFriends(int userId) {
-        User user = getUserById(userId);
-        Set<Long> friendIds = user.getFriends().stream().collect(Collectors.toSet());
-        return userStorage.getUsersByIds(friendIds);
+        getUserById(userId);
+        return friendsCache.get(userId, () -> List.copyOf(userStorage.getFriends(userId)));
+    }
+
+    /**
+     * Версия списка друзей для условных запросов: меняется при изменении дружбы пользователя
+     * и при изменении или удалении его друзей.
+     */
+    public long getFriendsVersion(int userId) {
+        long version = userStorage.getFriendsVersion(userId);
+        if (version == 0) {
+            log.warn("Пользователь с ID {} не найден.", userId);
+            throw new ValidationException("Пользователь с таким ID не найден.");
+        }
+        return version;
     }
 
     public List<User> getCommonFriends(int userId, int otherUserId) {
-        User user = getUserById(userId);
-        User otherUser = getUserById(otherUserId);
+        getUserById(userId);
+        getUserById(otherUserId);
+
+        return userStorage.getCommonFriends(userId, otherUserId);
+    }
+
+    public List<User> getFriendRecommendations(int userId, int limit) {
+        if (limit <= 0) {
+            log.warn("Некорректное число рекомендаций: {}", limit);
+            throw new ValidationException("Параметр limit должен быть положительным числом.");
+        }
+        getUserById(userId);
+        Recommendations recommendations = recommendationsCache.get(userId, () -> loadRecommendations(userId, limit));
+        if (!recommendations.covers(limit)) {
+            recommendationsCache.invalidate(userId);
+            recommendations = recommendationsCache.get(userId, () -> loadRecommendations(userId, limit));
+        }
+        if (!recommendations.covers(limit)) {
+            recommendations = loadRecommendations(userId, limit);
+        }
+        int[] ids = recommendations.first(limit);
+        List<User> users = userStorage.getUsersByIds(ids);
+        if (users.size() < ids.length) {
+            recommendationsCache.invalidate(userId);
+            return userStorage.getFriendRecommendations(userId, limit);
+        }
+        return users;
+    }
+
+    private Recommendations loadRecommendations(int userId, int limit) {
+        return new Recommendations(userStorage.getFriendRecommendationIds(userId, limit), limit);
+    }
 
-        Set<Long> commonFriendIds = user.getFriends().stream()
-                .filter(otherUser.getFriends()::contains)
-                .collect(Collectors.toSet());
+    /**
+     * Сбрасывает рекомендации пользователей, у которых после изменения дружбы могли измениться друзья
+     * друзей: самих участников и их друзей. Друзья читаются после изменения, поэтому в сброс попадают
+     * и друзья, добавленные параллельно. Рекомендации, указывающие на удалённого пользователя,
+     * пересчитываются при чтении.
+     */
+    private void invalidateRecommendations(int userId, int friendId) {
+        for (int id : new int[]{userId, friendId}) {
+            recommendationsCache.invalidate(id);
+            User user = userStorage.getUserById(id);
+            if (user != null) {
+                user.getFriends().forEach(recommendationsCache::invalidate);
+            }
+        }
+    }
+
+    private void invalidateRecommendations(User user) {
+        recommendationsCache.invalidate(user.getId());
+        user.getFriends().forEach(recommendationsCache::invalidate);
+    }
+
+    /**
+     * Закэшированные ID рекомендаций, посчитанные для limit: подходят и для меньшего limit, и для
+     * любого, если кандидатов оказалось меньше limit.
+     */
+    private record Recommendations(int[] ids, int limit) {
+        boolean covers(int requested) {
+            return requested <= limit || ids.length < limit;
+        }
+
+        int[] first(int count) {
+            return ids.length <= count ? ids : Arrays.copyOf(ids, count);
+        }
+    }
 
-        return userStorage.getUsersByIds(commonFriendIds);
+    private static Counter friendshipCounter(MeterRegistry meterRegistry, String operation) {
+        return Counter.builder("filmorate.friendships")
+                .description("Добавления и удаления друзей")
+                .tag("operation", operation)
+                .register(meterRegistry);
     }
 
     private void validateUser(User user) {
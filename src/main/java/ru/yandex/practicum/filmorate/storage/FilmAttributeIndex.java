@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Вторичные индексы фильмов по дате релиза и продолжительности: упорядоченные множества ключей
+ * (значение, ID) в одном long. Диапазонный запрос читает только ключи внутри диапазона.
+ * Изменения выполняются под блокировкой фильма в хранилище.
+ */
+class FilmAttributeIndex {
+    private final NavigableSet<Long> byReleaseDate = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Long> byDuration = new ConcurrentSkipListSet<>();
+
+    void add(Film film) {
+        if (film.getReleaseDate() != null) {
+            byReleaseDate.add(key(film.getReleaseDate().toEpochDay(), film.getId()));
+        }
+        byDuration.add(key(film.getDuration(), film.getId()));
+    }
+
+    void remove(Film film) {
+        if (film.getReleaseDate() != null) {
+            byReleaseDate.remove(key(film.getReleaseDate().toEpochDay(), film.getId()));
+        }
+        byDuration.remove(key(film.getDuration(), film.getId()));
+    }
+
+    void update(Film oldFilm, Film newFilm) {
+        if (!Objects.equals(oldFilm.getReleaseDate(), newFilm.getReleaseDate())
+                || oldFilm.getDuration() != newFilm.getDuration()) {
+            remove(oldFilm);
+            add(newFilm);
+        }
+    }
+
+    /**
+     * Ключи кандидатов по одному из индексов в порядке индекса. Если заданы обе границы, используется
+     * индекс по дате релиза, а продолжительность проверяется по самому фильму, поэтому стоимость
+     * запроса пропорциональна числу фильмов в диапазоне дат.
+     */
+    NavigableSet<Long> candidates(FilmFilter filter) {
+        if (filter.hasReleaseDateRange()) {
+            return range(byReleaseDate,
+                    filter.releasedFrom() == null ? Integer.MIN_VALUE : filter.releasedFrom().toEpochDay(),
+                    filter.releasedTo() == null ? Integer.MAX_VALUE : filter.releasedTo().toEpochDay());
+        }
+        return range(byDuration,
+                filter.minDuration() == null ? Integer.MIN_VALUE : filter.minDuration(),
+                filter.maxDuration() == null ? Integer.MAX_VALUE : filter.maxDuration());
+    }
+
+    static int filmId(long key) {
+        return (int) key;
+    }
+
+    private static NavigableSet<Long> range(NavigableSet<Long> index, long from, long to) {
+        return index.subSet(key(from, 0), true, key(to, -1), true);
+    }
+
+    private static long key(long value, int filmId) {
+        return (Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value)) << 32) | (filmId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,272 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Полнотекстовый индекс по названию и описанию фильмов.
+ *
+ * <p>Текст приводится к нижнему регистру, «ё» заменяется на «е», термами считаются непрерывные
+ * последовательности букв и цифр (кириллица и латиница одинаково). Для каждого терма хранится
+ * сжатый список вхождений {@link Postings}. Изменение фильма заменяет версии списков только его
+ * термов через {@link ConcurrentHashMap#compute}, без общей блокировки индекса.
+ *
+ * <p>Запрос находит фильмы, содержащие все его термы. Счёт — сумма частот термов с весом idf,
+ * вхождение в название считается за {@link #NAME_WEIGHT}. При равном счёте выше фильм с большим
+ * числом лайков, затем с меньшим ID. Когда топ заполнен, блоки самого короткого списка, в которых
+ * по максимальным частотам нельзя набрать счёт выше худшего в топе, пропускаются без декодирования.
+ */
+class FilmSearchIndex {
+    static final int NAME_WEIGHT = 2;
+    private static final int MAX_TERM_LENGTH = 32;
+    private static final int[] NONE = new int[0];
+
+    private volatile Map<String, Postings> terms = new ConcurrentHashMap<>();
+    private final AtomicInteger documents = new AtomicInteger();
+
+    void add(Film film) {
+        termFrequencies(film).forEach((term, tf) -> change(term, film.getId(), tf));
+        documents.incrementAndGet();
+    }
+
+    /**
+     * Индексирует пачку новых фильмов: вхождения группируются по термам, и список каждого терма
+     * меняется один раз на пачку.
+     */
+    void addAll(Collection<Film> films) {
+        addAll(terms, films);
+        documents.addAndGet(films.size());
+    }
+
+    /**
+     * Строит индекс заново по переданным фильмам. Изменения, выполненные во время перестроения,
+     * могут быть потеряны; перестроение рассчитано на запуск при старте.
+     */
+    void rebuild(Collection<Film> films) {
+        Map<String, Postings> newTerms = new ConcurrentHashMap<>();
+        addAll(newTerms, films);
+        terms = newTerms;
+        documents.set(films.size());
+    }
+
+    void update(Film oldFilm, Film newFilm) {
+        Map<String, Integer> oldTerms = termFrequencies(oldFilm);
+        Map<String, Integer> newTerms = termFrequencies(newFilm);
+        oldTerms.forEach((term, tf) -> {
+            if (!newTerms.containsKey(term)) {
+                change(term, oldFilm.getId(), 0);
+            }
+        });
+        newTerms.forEach((term, tf) -> {
+            if (!tf.equals(oldTerms.get(term))) {
+                change(term, newFilm.getId(), tf);
+            }
+        });
+    }
+
+    void remove(Film film) {
+        termFrequencies(film).keySet().forEach(term -> change(term, film.getId(), 0));
+        documents.decrementAndGet();
+    }
+
+    /**
+     * ID найденных фильмов по убыванию релевантности. popularity возвращает число лайков фильма
+     * и вызывается только для кандидатов в результат.
+     */
+    int[] search(String query, int limit, IntUnaryOperator popularity) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return NONE;
+        }
+        Postings[] lists = new Postings[queryTerms.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = terms.get(queryTerms.get(i));
+            if (lists[i] == null) {
+                return NONE;
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(Postings::size));
+        double totalDocuments = Math.max(1, documents.get());
+        Postings.Cursor[] cursors = new Postings.Cursor[lists.length];
+        double[] idf = new double[lists.length];
+        double otherTermsBound = 0;
+        for (int i = 0; i < lists.length; i++) {
+            cursors[i] = lists[i].cursor();
+            idf[i] = Math.log(1 + totalDocuments / lists[i].size());
+            if (i > 0) {
+                otherTermsBound += lists[i].maxTf() * idf[i];
+            }
+        }
+
+        PriorityQueue<Hit> top = new PriorityQueue<>(Math.min(limit, 1024), Hit.ORDER.reversed());
+        Postings.Cursor lead = cursors[0];
+        int target = 0;
+        candidates:
+        while (lead.advanceTo(target)) {
+            int filmId = lead.id();
+            if (top.size() == limit
+                    && lead.blockMaxTf() * idf[0] + otherTermsBound < top.peek().score()) {
+                int blockEnd = lead.blockEnd();
+                if (blockEnd == Integer.MAX_VALUE) {
+                    break;
+                }
+                target = blockEnd + 1;
+                continue;
+            }
+            double score = lead.tf() * idf[0];
+            for (int i = 1; i < cursors.length; i++) {
+                if (!cursors[i].advanceTo(filmId)) {
+                    break candidates;
+                }
+                if (cursors[i].id() != filmId) {
+                    target = cursors[i].id();
+                    continue candidates;
+                }
+                score += cursors[i].tf() * idf[i];
+            }
+            offer(top, limit, filmId, score, popularity);
+            target = filmId + 1;
+        }
+
+        int[] result = new int[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = top.poll().filmId();
+        }
+        return result;
+    }
+
+    int termCount() {
+        return terms.size();
+    }
+
+    /**
+     * Термы текста в порядке появления, с повторами.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        int i = 0;
+        while (i <= text.length()) {
+            int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (token.length() < MAX_TERM_LENGTH) {
+                    token.appendCodePoint(normalize(codePoint));
+                }
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return tokens;
+    }
+
+    private static int normalize(int codePoint) {
+        int lower = Character.toLowerCase(codePoint);
+        return lower == 'ё' ? 'е' : lower;
+    }
+
+    static Map<String, Integer> termFrequencies(Film film) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : tokenize(film.getName())) {
+            frequencies.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(film.getDescription())) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    private void change(String term, int filmId, int tf) {
+        terms.compute(term, (key, postings) -> (postings == null ? Postings.EMPTY : postings).with(filmId, tf));
+    }
+
+    private static void addAll(Map<String, Postings> target, Collection<Film> films) {
+        Map<String, TermBatch> batches = new HashMap<>();
+        for (Film film : films) {
+            termFrequencies(film).forEach((term, tf) ->
+                    batches.computeIfAbsent(term, key -> new TermBatch()).add(film.getId(), tf));
+        }
+        batches.entrySet().parallelStream().forEach(entry -> {
+            TermBatch batch = entry.getValue();
+            batch.sort();
+            target.compute(entry.getKey(), (key, postings) ->
+                    (postings == null ? Postings.EMPTY : postings).withAll(batch.ids, batch.tfs, batch.size));
+        });
+    }
+
+    private static void offer(PriorityQueue<Hit> top, int limit, int filmId, double score, IntUnaryOperator popularity) {
+        if (top.size() == limit) {
+            Hit worst = top.peek();
+            if (score < worst.score()) {
+                return;
+            }
+            Hit hit = new Hit(filmId, score, popularity.applyAsInt(filmId));
+            if (Hit.ORDER.compare(hit, worst) < 0) {
+                top.poll();
+                top.add(hit);
+            }
+            return;
+        }
+        top.add(new Hit(filmId, score, popularity.applyAsInt(filmId)));
+    }
+
+    /**
+     * Вхождения одного терма в пачке фильмов.
+     */
+    private static final class TermBatch {
+        private int[] ids = new int[4];
+        private int[] tfs = new int[4];
+        private int size;
+        private boolean sorted = true;
+
+        void add(int filmId, int tf) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            if (size > 0 && ids[size - 1] >= filmId) {
+                sorted = false;
+            }
+            ids[size] = filmId;
+            tfs[size++] = tf;
+        }
+
+        void sort() {
+            if (sorted) {
+                return;
+            }
+            long[] packed = new long[size];
+            for (int i = 0; i < size; i++) {
+                packed[i] = ((long) ids[i] << 32) | tfs[i];
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < size; i++) {
+                ids[i] = (int) (packed[i] >>> 32);
+                tfs[i] = (int) packed[i];
+            }
+            sorted = true;
+        }
+    }
+
+    private record Hit(int filmId, double score, int likes) {
+        static final Comparator<Hit> ORDER = Comparator.comparingDouble(Hit::score).reversed()
+                .thenComparing(Comparator.comparingInt(Hit::likes).reversed())
+                .thenComparingInt(Hit::filmId);
+    }
+}
@@ -0,0 +1,386 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Индекс похожих фильмов по совместным лайкам: для каждого фильма хранится не более maxNeighbors
+ * соседей с числом пользователей, лайкнувших оба фильма.
+ *
+ * <p>Лайки обновляют индекс инкрементально. Когда список соседей заполнен, новый сосед вытесняет
+ * соседа с наименьшим счётчиком и получает его значение плюс один (алгоритм Space-Saving), поэтому
+ * между перестроениями счётчики приближённые. {@link #rebuild} пересчитывает индекс точно, параллельно
+ * по фильмам. Пользователи с более чем maxUserLikes лайками в совместных лайках не учитываются.
+ *
+ * <p>Индекс хранит и обратный индекс лайков — все фильмы, которые лайкнул каждый пользователь. Он
+ * точный: хранилище меняет его под блокировкой фильма, а множество пользователя меняется и читается
+ * под блокировкой пользователя. По нему удаление пользователя снимает его лайки за время,
+ * пропорциональное их числу.
+ */
+class FilmSimilarityIndex {
+    static final int DEFAULT_MAX_NEIGHBORS = 50;
+    static final int DEFAULT_MAX_USER_LIKES = 500;
+    private static final int[] NONE = new int[0];
+
+    private final int maxNeighbors;
+    private final int maxUserLikes;
+    private final StripedLocks userLocks = new StripedLocks();
+    private final Map<Integer, IntSet> filmsByUser = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Neighbors> neighbors = new ConcurrentHashMap<>();
+
+    FilmSimilarityIndex(int maxNeighbors, int maxUserLikes) {
+        this.maxNeighbors = maxNeighbors;
+        this.maxUserLikes = maxUserLikes;
+    }
+
+    FilmSimilarityIndex() {
+        this(DEFAULT_MAX_NEIGHBORS, DEFAULT_MAX_USER_LIKES);
+    }
+
+    void like(int filmId, int userId) {
+        userLocks.lock(userId);
+        try {
+            IntSet liked = filmsByUser.computeIfAbsent(userId, id -> new IntSet());
+            if (!liked.add(filmId)) {
+                return;
+            }
+            if (liked.size() <= maxUserLikes) {
+                liked.forEach(otherId -> changePair(filmId, otherId, 1));
+            } else if (liked.size() == maxUserLikes + 1) {
+                liked.forEach(otherId -> {
+                    if (otherId != filmId) {
+                        changeAllPairs(otherId, liked, filmId, -1);
+                    }
+                });
+            }
+        } finally {
+            userLocks.unlock(userId);
+        }
+    }
+
+    void unlike(int filmId, int userId) {
+        userLocks.lock(userId);
+        try {
+            IntSet liked = filmsByUser.get(userId);
+            if (liked == null || !liked.remove(filmId)) {
+                return;
+            }
+            if (liked.size() < maxUserLikes) {
+                liked.forEach(otherId -> changePair(filmId, otherId, -1));
+            } else if (liked.size() == maxUserLikes) {
+                liked.forEach(otherId -> changeAllPairs(otherId, liked, -1, 1));
+            }
+            if (liked.isEmpty()) {
+                filmsByUser.remove(userId);
+            }
+        } finally {
+            userLocks.unlock(userId);
+        }
+    }
+
+    /**
+     * Добавляет лайк только в обратный индекс, без пересчёта соседей: при восстановлении и починке
+     * расхождений. Соседей потом пересчитывает {@link #rebuild}.
+     */
+    void restoreLike(int filmId, int userId) {
+        userLocks.lock(userId);
+        try {
+            filmsByUser.computeIfAbsent(userId, id -> new IntSet()).add(filmId);
+        } finally {
+            userLocks.unlock(userId);
+        }
+    }
+
+    /**
+     * Убирает лайк только из обратного индекса, без пересчёта соседей.
+     */
+    void forgetLike(int filmId, int userId) {
+        userLocks.lock(userId);
+        try {
+            IntSet liked = filmsByUser.get(userId);
+            if (liked != null && liked.remove(filmId) && liked.isEmpty()) {
+                filmsByUser.remove(userId);
+            }
+        } finally {
+            userLocks.unlock(userId);
+        }
+    }
+
+    boolean contains(int userId, int filmId) {
+        userLocks.lock(userId);
+        try {
+            IntSet liked = filmsByUser.get(userId);
+            return liked != null && liked.contains(filmId);
+        } finally {
+            userLocks.unlock(userId);
+        }
+    }
+
+    int[] films(int userId) {
+        userLocks.lock(userId);
+        try {
+            IntSet liked = filmsByUser.get(userId);
+            return liked == null ? NONE : liked.toArray();
+        } finally {
+            userLocks.unlock(userId);
+        }
+    }
+
+    /**
+     * Передаёт каждого пользователя с копией его фильмов; для фоновой проверки согласованности.
+     */
+    void forEachUser(BiConsumer<Integer, int[]> action) {
+        for (Integer userId : filmsByUser.keySet()) {
+            int[] liked = films(userId);
+            if (liked.length > 0) {
+                action.accept(userId, liked);
+            }
+        }
+    }
+
+    /**
+     * Убирает удалённый фильм из списков соседей. Вызывается после снятия всех его лайков: точные
+     * счётчики пар с ним уже нулевые, но приближённые, завышенные при вытеснении, могли остаться.
+     * Такие записи ищутся в его собственном списке и в списках фильмов, которые лайкали его бывшие
+     * поклонники. Запись, оставшуюся от лайка, снятого раньше, не найти, поэтому
+     * {@link #recommend(int, int, IntPredicate)} ещё и пропускает удалённые фильмы.
+     */
+    void deleteFilm(int filmId, IntSet likers) {
+        Neighbors filmNeighbors = neighbors.remove(filmId);
+        IntSet affected = filmNeighbors == null ? new IntSet() : IntSet.of(filmNeighbors.ids());
+        likers.forEach(userId -> {
+            int[] liked = films(userId);
+            if (liked.length <= maxUserLikes) {
+                for (int otherId : liked) {
+                    affected.add(otherId);
+                }
+            }
+        });
+        affected.forEach(otherId -> {
+            Neighbors other = neighbors.get(otherId);
+            if (other != null) {
+                other.remove(filmId);
+            }
+        });
+    }
+
+    int[] recommend(int userId, int limit) {
+        return recommend(userId, limit, id -> false);
+    }
+
+    /**
+     * Фильмы, похожие на лайкнутые пользователем, кроме уже лайкнутых и тех, для которых missing
+     * возвращает true. Вес кандидата — сумма совместных лайков с каждым фильмом пользователя.
+     */
+    int[] recommend(int userId, int limit, IntPredicate missing) {
+        IntSet liked = filmsByUser.get(userId);
+        if (liked == null || liked.isEmpty()) {
+            return NONE;
+        }
+        int[] likedIds = liked.toArray();
+        IntCounts scores = new IntCounts(likedIds.length * maxNeighbors);
+        for (int filmId : likedIds) {
+            Neighbors filmNeighbors = neighbors.get(filmId);
+            if (filmNeighbors != null) {
+                filmNeighbors.addTo(scores);
+            }
+        }
+        return scores.top(limit, id -> liked.contains(id) || missing.test(id));
+    }
+
+    int[] neighbors(int filmId) {
+        Neighbors filmNeighbors = neighbors.get(filmId);
+        if (filmNeighbors == null) {
+            return NONE;
+        }
+        IntCounts counts = new IntCounts(maxNeighbors);
+        filmNeighbors.addTo(counts);
+        return counts.top(maxNeighbors, id -> false);
+    }
+
+    /**
+     * Полностью пересчитывает индекс по текущим лайкам фильмов. Соседи каждого фильма считаются
+     * независимо, поэтому фильмы обрабатываются параллельно. Лайки, поставленные во время
+     * перестроения, учитываются следующими инкрементальными обновлениями не полностью; перестроение
+     * рассчитано на запуск при старте или в период низкой нагрузки.
+     *
+     * <p>Обратный индекс не заменяется, а только дополняется лайками фильмов: хранилище держит его
+     * точным само, и лайк, поставленный во время перестроения, из него не пропадёт.
+     */
+    void rebuild(Collection<Film> films) {
+        Map<Integer, IntSet> newFilmsByUser = new ConcurrentHashMap<>();
+        List<int[]> usersByFilm = new ArrayList<>(films.size());
+        List<Integer> filmIds = new ArrayList<>(films.size());
+        for (Film film : films) {
+            int[] users = film.getLikes().toArray();
+            filmIds.add(film.getId());
+            usersByFilm.add(users);
+            for (int userId : users) {
+                newFilmsByUser.computeIfAbsent(userId, id -> new IntSet()).add(film.getId());
+            }
+        }
+        Map<Integer, int[]> activeFilmsByUser = new ConcurrentHashMap<>();
+        newFilmsByUser.forEach((userId, liked) -> {
+            if (liked.size() <= maxUserLikes) {
+                activeFilmsByUser.put(userId, liked.toArray());
+            }
+        });
+
+        Map<Integer, Neighbors> newNeighbors = new ConcurrentHashMap<>();
+        IntStream.range(0, filmIds.size()).parallel().forEach(i -> {
+            int filmId = filmIds.get(i);
+            IntCounts counts = new IntCounts(maxNeighbors * 4);
+            for (int userId : usersByFilm.get(i)) {
+                int[] liked = activeFilmsByUser.get(userId);
+                if (liked != null) {
+                    for (int otherId : liked) {
+                        if (otherId != filmId) {
+                            counts.add(otherId, 1);
+                        }
+                    }
+                }
+            }
+            int[] top = counts.top(maxNeighbors, id -> false);
+            if (top.length > 0) {
+                Neighbors filmNeighbors = new Neighbors(maxNeighbors);
+                for (int otherId : top) {
+                    filmNeighbors.set(otherId, counts.get(otherId));
+                }
+                newNeighbors.put(filmId, filmNeighbors);
+            }
+        });
+        newFilmsByUser.forEach((userId, liked) -> {
+            userLocks.lock(userId);
+            try {
+                IntSet current = filmsByUser.computeIfAbsent(userId, id -> new IntSet(liked.size()));
+                liked.forEach(current::add);
+            } finally {
+                userLocks.unlock(userId);
+            }
+        });
+        neighbors = newNeighbors;
+    }
+
+    private void changeAllPairs(int filmId, IntSet liked, int skippedId, int delta) {
+        liked.forEach(otherId -> {
+            if (otherId != skippedId && otherId < filmId) {
+                changePair(filmId, otherId, delta);
+            }
+        });
+    }
+
+    private void changePair(int filmId, int otherId, int delta) {
+        if (filmId == otherId) {
+            return;
+        }
+        neighbors.computeIfAbsent(filmId, id -> new Neighbors(maxNeighbors)).change(otherId, delta);
+        neighbors.computeIfAbsent(otherId, id -> new Neighbors(maxNeighbors)).change(filmId, delta);
+    }
+
+    /**
+     * Ограниченный список соседей одного фильма.
+     */
+    private static final class Neighbors {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int[] ids;
+        private final int[] counts;
+        private int size;
+
+        Neighbors(int capacity) {
+            ids = new int[capacity];
+            counts = new int[capacity];
+        }
+
+        void change(int filmId, int delta) {
+            lock.lock();
+            try {
+                int index = indexOf(filmId);
+                if (index >= 0) {
+                    counts[index] += delta;
+                    if (counts[index] <= 0) {
+                        size--;
+                        ids[index] = ids[size];
+                        counts[index] = counts[size];
+                    }
+                } else if (delta > 0) {
+                    if (size < ids.length) {
+                        ids[size] = filmId;
+                        counts[size] = delta;
+                        size++;
+                    } else {
+                        int min = 0;
+                        for (int i = 1; i < size; i++) {
+                            if (counts[i] < counts[min]) {
+                                min = i;
+                            }
+                        }
+                        ids[min] = filmId;
+                        counts[min] += delta;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(int filmId) {
+            lock.lock();
+            try {
+                int index = indexOf(filmId);
+                if (index >= 0) {
+                    size--;
+                    ids[index] = ids[size];
+                    counts[index] = counts[size];
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int[] ids() {
+            lock.lock();
+            try {
+                return Arrays.copyOf(ids, size);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void set(int filmId, int count) {
+            ids[size] = filmId;
+            counts[size] = count;
+            size++;
+        }
+
+        void addTo(IntCounts target) {
+            lock.lock();
+            try {
+                for (int i = 0; i < size; i++) {
+                    target.add(ids[i], counts[i]);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int indexOf(int filmId) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == filmId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -1,19 +1,85 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+
+import java.time.Duration;
 import java.util.List;
 
 public interface FilmStorage {
 
     Film addFilm(Film film);
 
+    List<Film> addFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     void deleteFilm(int id);
 
     List<Film> getAllFilms();
 
+    List<Film> getFilmsPage(int afterId, int limit);
+
     Film getFilmById(int id);
 
+    List<Film> getFilmsByIds(int[] ids);
+
+    void addLike(int filmId, int userId);
+
+    /**
+     * Добавляет лайк, поставленный в момент likedAt (мс от эпохи); время учитывается в трендах.
+     */
+    void addLike(int filmId, int userId, long likedAt);
+
+    void removeLike(int filmId, int userId);
+
+    /**
+     * Снимает все лайки пользователя (при его удалении) и возвращает ID фильмов, с которых они сняты.
+     */
+    int[] removeUserLikes(int userId);
+
+    /**
+     * Применяет пачку лайков и отмен к одному фильму; likedAt[i] — время лайка likes[i].
+     */
+    void applyLikes(int filmId, int[] likes, long[] likedAt, int[] unlikes);
+
     List<Film> getPopularFilms(int count);
+
+    List<Film> getPopularFilms(FilmFilter filter, int count);
+
+    /**
+     * Фильмы, подходящие под фильтр, по возрастанию индексируемого значения (даты релиза, если она
+     * задана в фильтре, иначе продолжительности), затем ID.
+     */
+    List<Film> findFilms(FilmFilter filter, int limit);
+
+    List<Film> getFilmRecommendations(int userId, int limit);
+
+    /**
+     * Самые популярные фильмы, которые пользователь не лайкал.
+     */
+    List<Film> getPopularFilmsNotLikedBy(int userId, int count);
+
+    /**
+     * Фильмы, в названии или описании которых встречаются все слова запроса, по убыванию релевантности.
+     */
+    List<Film> searchFilms(String query, int limit);
+
+    List<Duration> getTrendingWindows();
+
+    List<Film> getTrendingFilms(Duration window, int count);
+
+    /**
+     * Версия фильма для условных запросов; 0, если фильма нет.
+     */
+    long getFilmVersion(int id);
+
+    /**
+     * Общая версия хранилища: растёт при любом изменении любого фильма.
+     */
+    long getVersion();
+
+    int getFilmsCount();
+
+    long getTotalLikes();
 }
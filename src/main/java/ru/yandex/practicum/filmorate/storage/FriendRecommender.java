@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Рекомендации «возможно, вы знакомы»: друзья друзей, упорядоченные по числу общих друзей
+ * (по убыванию), затем по ID. Обход ограничен числом просмотренных связей: друзья с наименьшим
+ * числом связей обходятся первыми, «звёзды» с огромным списком друзей — в последнюю очередь.
+ * Большие окрестности считаются параллельно в пуле fork-join. Результаты кэширует сервис пользователей.
+ */
+class FriendRecommender {
+    static final int DEFAULT_MAX_VISITED = 200_000;
+    static final int DEFAULT_PARALLEL_THRESHOLD = 16_384;
+    private static final int[] NONE = new int[0];
+
+    private final FriendshipGraph graph;
+    private final int maxVisited;
+    private final int parallelThreshold;
+
+    FriendRecommender(FriendshipGraph graph, int maxVisited, int parallelThreshold) {
+        this.graph = graph;
+        this.maxVisited = maxVisited;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    FriendRecommender(FriendshipGraph graph) {
+        this(graph, DEFAULT_MAX_VISITED, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    int[] compute(int userId, int limit) {
+        int[] friends = graph.neighbors(userId);
+        if (friends.length == 0 || limit <= 0) {
+            return NONE;
+        }
+        int[][] neighborhoods = new int[friends.length][];
+        for (int i = 0; i < friends.length; i++) {
+            neighborhoods[i] = graph.neighbors(friends[i]);
+        }
+        Arrays.sort(neighborhoods, (a, b) -> Integer.compare(a.length, b.length));
+
+        int budget = maxVisited;
+        int count = 0;
+        while (count < neighborhoods.length && budget > 0) {
+            int[] neighborhood = neighborhoods[count];
+            if (neighborhood.length > budget) {
+                neighborhoods[count] = Arrays.copyOf(neighborhood, budget);
+            }
+            budget -= neighborhoods[count].length;
+            count++;
+        }
+        int visited = maxVisited - budget;
+
+        IntCounts counts = visited >= parallelThreshold
+                ? ForkJoinPool.commonPool().invoke(new CountTask(neighborhoods, 0, count, parallelThreshold))
+                : IntCounts.count(neighborhoods, 0, count);
+        return counts.top(limit, candidate -> candidate == userId || Arrays.binarySearch(friends, candidate) >= 0);
+    }
+
+    /**
+     * Подсчёт общих друзей для части списка друзей; части сливаются при завершении задач.
+     */
+    private static final class CountTask extends RecursiveTask<IntCounts> {
+        private final int[][] neighborhoods;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        CountTask(int[][] neighborhoods, int from, int to, int threshold) {
+            this.neighborhoods = neighborhoods;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected IntCounts compute() {
+            long size = 0;
+            for (int i = from; i < to; i++) {
+                size += neighborhoods[i].length;
+            }
+            if (size <= threshold || to - from == 1) {
+                return IntCounts.count(neighborhoods, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(neighborhoods, from, middle, threshold);
+            left.fork();
+            IntCounts right = new CountTask(neighborhoods, middle, to, threshold).compute();
+            IntCounts merged = left.join();
+            merged.addAll(right);
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Граф дружбы: для каждого пользователя хранится отсортированный массив друзей и небольшой буфер
+ * изменений, который периодически сливается в основной массив. Чтение списка друзей без
+ * накопленных изменений не требует блокировок и не создаёт объектов.
+ */
+class FriendshipGraph {
+    private static final int[] NO_FRIENDS = new int[0];
+    private static final int MIN_PENDING_BEFORE_COMPACTION = 8;
+    private static final int GALLOP_RATIO = 16;
+
+    private final Map<Integer, Adjacency> adjacency = new ConcurrentHashMap<>();
+    private final StripedLocks locks = new StripedLocks();
+    private final LongAdder edges = new LongAdder();
+
+    void addEdge(int userId, int friendId) {
+        locks.lockPair(userId, friendId);
+        try {
+            if (adjacency(userId).add(friendId)) {
+                adjacency(friendId).add(userId);
+                edges.increment();
+            }
+        } finally {
+            locks.unlockPair(userId, friendId);
+        }
+    }
+
+    void removeEdge(int userId, int friendId) {
+        locks.lockPair(userId, friendId);
+        try {
+            if (adjacency(userId).remove(friendId)) {
+                adjacency(friendId).remove(userId);
+                edges.decrement();
+            }
+        } finally {
+            locks.unlockPair(userId, friendId);
+        }
+    }
+
+    /**
+     * Удаляет пустой список смежности пользователя; вызывается после снятия всех его рёбер.
+     */
+    void removeVertex(int userId) {
+        locks.lock(userId);
+        try {
+            adjacency.computeIfPresent(userId, (id, adj) -> adj.size == 0 ? null : adj);
+        } finally {
+            locks.unlock(userId);
+        }
+    }
+
+    void forEachVertex(IntConsumer action) {
+        for (Integer userId : adjacency.keySet()) {
+            action.accept(userId);
+        }
+    }
+
+    int[] neighbors(int userId) {
+        Adjacency adj = adjacency.get(userId);
+        if (adj == null) {
+            return NO_FRIENDS;
+        }
+        if (adj.pendingCount == 0) {
+            return adj.base;
+        }
+        locks.lock(userId);
+        try {
+            adj.compact();
+            return adj.base;
+        } finally {
+            locks.unlock(userId);
+        }
+    }
+
+    int degree(int userId) {
+        Adjacency adj = adjacency.get(userId);
+        return adj == null ? 0 : adj.size;
+    }
+
+    long edgeCount() {
+        return edges.sum();
+    }
+
+    int[] commonNeighbors(int userId, int otherUserId) {
+        int[] first = neighbors(userId);
+        int[] second = neighbors(otherUserId);
+        if (first.length > second.length) {
+            int[] tmp = first;
+            first = second;
+            second = tmp;
+        }
+        if (first.length == 0) {
+            return NO_FRIENDS;
+        }
+        int[] result = new int[first.length];
+        int count = (long) first.length * GALLOP_RATIO < second.length
+                ? gallopingIntersect(first, second, result)
+                : mergeIntersect(first, second, result);
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    static int mergeIntersect(int[] first, int[] second, int[] result) {
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    static int gallopingIntersect(int[] small, int[] large, int[] result) {
+        int count = 0;
+        int low = 0;
+        for (int value : small) {
+            int step = 1;
+            int high = low;
+            while (high < large.length && large[high] < value) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(large, low, Math.min(high + 1, large.length), value);
+            if (index >= 0) {
+                result[count++] = value;
+                low = index + 1;
+            } else {
+                low = -index - 1;
+            }
+            if (low >= large.length) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private Adjacency adjacency(int userId) {
+        return adjacency.computeIfAbsent(userId, id -> new Adjacency());
+    }
+
+    /**
+     * Список смежности одного пользователя. Изменения выполняются под блокировкой графа.
+     */
+    private static final class Adjacency {
+        private volatile int[] base = NO_FRIENDS;
+        private volatile int pendingCount;
+        private volatile int size;
+        private int[] pendingAdds = NO_FRIENDS;
+        private int pendingAddsSize;
+        private int[] pendingRemoves = NO_FRIENDS;
+        private int pendingRemovesSize;
+
+        boolean add(int friendId) {
+            int removeIndex = Arrays.binarySearch(pendingRemoves, 0, pendingRemovesSize, friendId);
+            if (removeIndex >= 0) {
+                pendingRemovesSize = deleteAt(pendingRemoves, pendingRemovesSize, removeIndex);
+            } else if (Arrays.binarySearch(base, friendId) < 0) {
+                int addIndex = Arrays.binarySearch(pendingAdds, 0, pendingAddsSize, friendId);
+                if (addIndex >= 0) {
+                    return false;
+                }
+                pendingAdds = insertAt(pendingAdds, pendingAddsSize, -addIndex - 1, friendId);
+                pendingAddsSize++;
+            } else {
+                return false;
+            }
+            size++;
+            afterChange();
+            return true;
+        }
+
+        boolean remove(int friendId) {
+            int addIndex = Arrays.binarySearch(pendingAdds, 0, pendingAddsSize, friendId);
+            if (addIndex >= 0) {
+                pendingAddsSize = deleteAt(pendingAdds, pendingAddsSize, addIndex);
+            } else if (Arrays.binarySearch(base, friendId) >= 0) {
+                int removeIndex = Arrays.binarySearch(pendingRemoves, 0, pendingRemovesSize, friendId);
+                if (removeIndex >= 0) {
+                    return false;
+                }
+                pendingRemoves = insertAt(pendingRemoves, pendingRemovesSize, -removeIndex - 1, friendId);
+                pendingRemovesSize++;
+            } else {
+                return false;
+            }
+            size--;
+            afterChange();
+            return true;
+        }
+
+        void compact() {
+            if (pendingAddsSize == 0 && pendingRemovesSize == 0) {
+                pendingCount = 0;
+                return;
+            }
+            int[] current = base;
+            int[] merged = new int[current.length + pendingAddsSize - pendingRemovesSize];
+            int i = 0;
+            int a = 0;
+            int r = 0;
+            int count = 0;
+            while (i < current.length || a < pendingAddsSize) {
+                if (a == pendingAddsSize || (i < current.length && current[i] < pendingAdds[a])) {
+                    if (r < pendingRemovesSize && pendingRemoves[r] == current[i]) {
+                        r++;
+                    } else {
+                        merged[count++] = current[i];
+                    }
+                    i++;
+                } else {
+                    merged[count++] = pendingAdds[a++];
+                }
+            }
+            pendingAdds = NO_FRIENDS;
+            pendingAddsSize = 0;
+            pendingRemoves = NO_FRIENDS;
+            pendingRemovesSize = 0;
+            base = merged;
+            pendingCount = 0;
+        }
+
+        private void afterChange() {
+            int pending = pendingAddsSize + pendingRemovesSize;
+            if (pending > Math.max(MIN_PENDING_BEFORE_COMPACTION, base.length >>> 3)) {
+                compact();
+            } else {
+                pendingCount = pending;
+            }
+        }
+
+        private static int[] insertAt(int[] array, int size, int index, int value) {
+            int[] target = array;
+            if (size == array.length) {
+                target = Arrays.copyOf(array, Math.max(4, size << 1));
+            }
+            System.arraycopy(target, index, target, index + 1, size - index);
+            target[index] = value;
+            return target;
+        }
+
+        private static int deleteAt(int[] array, int size, int index) {
+            System.arraycopy(array, index + 1, array, index, size - index - 1);
+            return size - 1;
+        }
+    }
+}
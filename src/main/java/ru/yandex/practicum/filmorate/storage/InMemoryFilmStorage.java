@@ -1,56 +1,599 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.storage.JournalRecord.Type;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 
+/**
+ * Хранилище фильмов в памяти. Фильмы публикуются в шардированном снимке {@link ShardedSnapshot}:
+ * запись под блокировкой фильма меняет его копию, обновляет индексы и атомарно заменяет шард фильма,
+ * чтение берёт текущий шард без блокировок. Публикуется всегда собственная копия хранилища, а не
+ * объект вызывающего, и после публикации она не меняется, поэтому фильм можно сериализовать
+ * параллельно с новыми лайками.
+ */
 @Component
+@Profile("!jdbc & !offheap")
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> films = new HashMap<>();
-    private int currentId = 1;
+    private final PopularityIndex popularityIndex = new PopularityIndex();
+    private final FilmSimilarityIndex similarityIndex = new FilmSimilarityIndex();
+    private final TrendingIndex trendingIndex;
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final FilmAttributeIndex attributeIndex = new FilmAttributeIndex();
+    private final Clock clock;
+    private final StripedLocks locks = new StripedLocks();
+    private final AtomicInteger currentId = new AtomicInteger(1);
+    private final LongAdder totalLikes = new LongAdder();
+    private final AtomicLong versions;
+    private final ShardedSnapshot<Film> snapshot;
+    private volatile StorageJournal journal = StorageJournal.NONE;
+
+    public InMemoryFilmStorage() {
+        this(Clock.systemUTC());
+    }
+
+    @Autowired
+    InMemoryFilmStorage(Clock clock) {
+        this.clock = clock;
+        this.trendingIndex = new TrendingIndex(clock);
+        this.versions = new AtomicLong(clock.millis() * 1000);
+        this.snapshot = new ShardedSnapshot<>(versions.get(), Film::getId);
+    }
+
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
 
     @Override
     public Film addFilm(Film film) {
-        film.setId(currentId++);
-        films.put(film.getId(), film);
+        int id = currentId.getAndIncrement();
+        film.setId(id);
+        Film published = film.copy();
+        long sequence;
+        locks.lock(id);
+        try {
+            popularityIndex.add(id, published.getLikesCount());
+            totalLikes.add(published.getLikesCount());
+            attributeIndex.add(published);
+            published.getLikes().forEach(userId -> indexLike(id, userId));
+            searchIndex.add(published);
+            publish(published);
+            sequence = journal.append(JournalRecord.putFilm(Type.ADD_FILM, published));
+        } finally {
+            locks.unlock(id);
+        }
+        film.setVersion(published.getVersion());
+        journal.awaitDurable(sequence);
         return film;
     }
 
     @Override
-    public Film updateFilm(Film film) {
-        if (films.containsKey(film.getId())) {
-            films.put(film.getId(), film);
-            return film;
-        } else {
-            throw new IllegalArgumentException("Фильм с ID " + film.getId() + " не найден.");
+    public List<Film> addFilms(List<Film> newFilms) {
+        int id = currentId.getAndAdd(newFilms.size());
+        long sequence = 0;
+        List<Film> copies = new ArrayList<>(newFilms.size());
+        for (int i = 0; i < newFilms.size(); i++) {
+            newFilms.get(i).setId(id + i);
+            copies.add(newFilms.get(i).copy());
+        }
+        searchIndex.addAll(copies);
+        for (int i = 0; i < copies.size(); i++) {
+            Film film = copies.get(i);
+            locks.lock(id);
+            try {
+                popularityIndex.add(id, film.getLikesCount());
+                totalLikes.add(film.getLikesCount());
+                attributeIndex.add(film);
+                int filmId = id;
+                film.getLikes().forEach(userId -> indexLike(filmId, userId));
+                publish(film);
+                sequence = journal.append(JournalRecord.putFilm(Type.ADD_FILM, film));
+            } finally {
+                locks.unlock(id);
+            }
+            newFilms.get(i).setVersion(film.getVersion());
+            id++;
+        }
+        journal.awaitDurable(sequence);
+        return newFilms;
+    }
+
+    /**
+     * Восстанавливает фильм с сохранённым ID (из снимка или журнала), заменяя существующий.
+     * Соседи похожих фильмов и поисковый индекс не обновляются: после восстановления нужны
+     * {@link #rebuildSimilarityIndex()} и {@link #rebuildSearchIndex()}. Обратный индекс лайков
+     * обновляется сразу.
+     */
+    public void restoreFilm(Film film) {
+        int id = film.getId();
+        locks.lock(id);
+        try {
+            Film oldFilm = getFilmById(id);
+            IntSet oldLikes = oldFilm == null ? new IntSet() : oldFilm.getLikes();
+            oldLikes.forEach(userId -> {
+                if (!film.getLikes().contains(userId)) {
+                    similarityIndex.forgetLike(id, userId);
+                }
+            });
+            film.getLikes().forEach(userId -> similarityIndex.restoreLike(id, userId));
+            if (oldFilm == null) {
+                popularityIndex.add(id, film.getLikesCount());
+                totalLikes.add(film.getLikesCount());
+                attributeIndex.add(film);
+            } else {
+                popularityIndex.update(id, oldFilm.getLikesCount(), film.getLikesCount());
+                totalLikes.add(film.getLikesCount() - oldFilm.getLikesCount());
+                attributeIndex.update(oldFilm, film);
+            }
+            publish(film);
+            currentId.accumulateAndGet(id + 1, Math::max);
+        } finally {
+            locks.unlock(id);
         }
     }
 
+    /**
+     * Пересчитывает индекс похожих фильмов по текущим лайкам. Вызывается после восстановления,
+     * так как restoreFilm индекс не обновляет.
+     */
+    public void rebuildSimilarityIndex() {
+        similarityIndex.rebuild(snapshot.values());
+    }
+
+    /**
+     * Строит поисковый индекс заново по текущим фильмам. Вызывается после восстановления.
+     */
+    public void rebuildSearchIndex() {
+        searchIndex.rebuild(snapshot.values());
+    }
+
+    /**
+     * Сдвигает окна трендов до текущего времени. Вызывается по расписанию, чтобы сдвиг не выпадал
+     * на запросы.
+     */
+    public void rollTrending() {
+        trendingIndex.advance();
+    }
+
+    /**
+     * Передаёт фильмы текущего снимка в порядке ID. Блокировки не нужны: снимок не меняется,
+     * а изменения, записанные в журнал до вызова, в нём уже опубликованы.
+     */
+    public void forEachFilm(Consumer<Film> action) {
+        snapshot.values().forEach(action);
+    }
+
+    @Override
+    public Film updateFilm(Film update) {
+        int id = update.getId();
+        Film film = update.copy();
+        long sequence;
+        locks.lock(id);
+        try {
+            Film oldFilm = getFilmById(id);
+            if (oldFilm == null) {
+                throw new IllegalArgumentException("Фильм с ID " + id + " не найден.");
+            }
+            popularityIndex.update(id, oldFilm.getLikesCount(), film.getLikesCount());
+            totalLikes.add(film.getLikesCount() - oldFilm.getLikesCount());
+            IntSet newLikes = film.getLikes();
+            IntSet oldLikes = oldFilm.getLikes();
+            oldLikes.forEach(userId -> {
+                if (!newLikes.contains(userId)) {
+                    unindexLike(id, userId);
+                }
+            });
+            newLikes.forEach(userId -> {
+                if (!oldLikes.contains(userId)) {
+                    indexLike(id, userId);
+                }
+            });
+            attributeIndex.update(oldFilm, film);
+            searchIndex.update(oldFilm, film);
+            publish(film);
+            sequence = journal.append(JournalRecord.putFilm(Type.UPDATE_FILM, film));
+        } finally {
+            locks.unlock(id);
+        }
+        update.setVersion(film.getVersion());
+        journal.awaitDurable(sequence);
+        return update;
+    }
+
     @Override
     public void deleteFilm(int id) {
-        films.remove(id);
+        long sequence = 0;
+        locks.lock(id);
+        try {
+            Film film = getFilmById(id);
+            if (film != null) {
+                popularityIndex.remove(id, film.getLikesCount());
+                totalLikes.add(-film.getLikesCount());
+                attributeIndex.remove(film);
+                film.getLikes().forEach(userId -> unindexLike(id, userId));
+                similarityIndex.deleteFilm(id, film.getLikes());
+                trendingIndex.remove(id);
+                searchIndex.remove(film);
+                long version = versions.incrementAndGet();
+                snapshot.remove(id, version);
+                sequence = journal.append(JournalRecord.of(Type.DELETE_FILM, id));
+            }
+        } finally {
+            locks.unlock(id);
+        }
+        journal.awaitDurable(sequence);
     }
 
     @Override
     public List<Film> getAllFilms() {
-        return new ArrayList<>(films.values());
+        return snapshot.values();
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        List<Film> result = new ArrayList<>(Math.min(limit, 1024));
+        if (afterId == Integer.MAX_VALUE) {
+            return result;
+        }
+        Iterator<Film> films = snapshot.valuesFrom(afterId + 1);
+        while (result.size() < limit && films.hasNext()) {
+            result.add(films.next());
+        }
+        return result;
     }
 
     @Override
     public Film getFilmById(int id) {
-        return films.get(id);
+        return snapshot.get(id);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(int[] ids) {
+        List<Film> result = new ArrayList<>(ids.length);
+        IntSet seen = new IntSet(ids.length);
+        for (int id : ids) {
+            Film film = snapshot.get(id);
+            if (film != null && seen.add(id)) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void addLike(int filmId, int userId) {
+        addLike(filmId, userId, clock.millis());
+    }
+
+    @Override
+    public void addLike(int filmId, int userId, long likedAt) {
+        long sequence = 0;
+        locks.lock(filmId);
+        try {
+            Film film = getExistingFilm(filmId).copy();
+            int oldLikesCount = film.getLikesCount();
+            film.addLike(userId);
+            if (film.getLikesCount() != oldLikesCount) {
+                indexLike(filmId, userId);
+                trendingIndex.like(filmId, likedAt);
+                popularityIndex.update(filmId, oldLikesCount, film.getLikesCount());
+                totalLikes.add(film.getLikesCount() - oldLikesCount);
+                publish(film);
+                sequence = journal.append(JournalRecord.like(filmId, userId, likedAt));
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public void removeLike(int filmId, int userId) {
+        long sequence;
+        locks.lock(filmId);
+        try {
+            sequence = removeLikeLocked(getExistingFilm(filmId), userId);
+        } finally {
+            locks.unlock(filmId);
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    /**
+     * Снимает все лайки пользователя по обратному индексу: время пропорционально числу его лайков.
+     * Каждый лайк снимается под блокировкой своего фильма и пишется в журнал как обычное снятие.
+     */
+    @Override
+    public int[] removeUserLikes(int userId) {
+        int[] filmIds = similarityIndex.films(userId);
+        int removed = 0;
+        long sequence = 0;
+        for (int filmId : filmIds) {
+            locks.lock(filmId);
+            try {
+                Film film = getFilmById(filmId);
+                if (film != null && film.getLikes().contains(userId)) {
+                    sequence = removeLikeLocked(film, userId);
+                    filmIds[removed++] = filmId;
+                }
+            } finally {
+                locks.unlock(filmId);
+            }
+        }
+        journal.awaitDurable(sequence);
+        return Arrays.copyOf(filmIds, removed);
+    }
+
+    /**
+     * Сверяет лайки фильмов с обратным индексом и снимает лайки пользователей, которых нет:
+     * такие остаются, если лайк из очереди применён после удаления пользователя или процесс
+     * остановился посреди каскадного удаления. Расхождение сначала ищется без блокировок
+     * и перепроверяется под блокировкой фильма. Возвращает число исправленных расхождений.
+     */
+    public int repairLikes(IntPredicate userExists) {
+        int[] repaired = {0};
+        long[] sequence = {0};
+        for (Film film : snapshot.values()) {
+            int filmId = film.getId();
+            film.getLikes().forEach(userId -> {
+                if (userExists.test(userId) && similarityIndex.contains(userId, filmId)) {
+                    return;
+                }
+                locks.lock(filmId);
+                try {
+                    Film current = getFilmById(filmId);
+                    if (current == null || !current.getLikes().contains(userId)) {
+                        return;
+                    }
+                    if (!userExists.test(userId)) {
+                        sequence[0] = removeLikeLocked(current, userId);
+                        repaired[0]++;
+                    } else if (!similarityIndex.contains(userId, filmId)) {
+                        similarityIndex.restoreLike(filmId, userId);
+                        repaired[0]++;
+                    }
+                } finally {
+                    locks.unlock(filmId);
+                }
+            });
+        }
+        similarityIndex.forEachUser((userId, filmIds) -> {
+            for (int filmId : filmIds) {
+                Film film = getFilmById(filmId);
+                if (film != null && film.getLikes().contains(userId)) {
+                    continue;
+                }
+                locks.lock(filmId);
+                try {
+                    Film current = getFilmById(filmId);
+                    if ((current == null || !current.getLikes().contains(userId))
+                            && similarityIndex.contains(userId, filmId)) {
+                        similarityIndex.forgetLike(filmId, userId);
+                        repaired[0]++;
+                    }
+                } finally {
+                    locks.unlock(filmId);
+                }
+            }
+        });
+        journal.awaitDurable(sequence[0]);
+        return repaired[0];
+    }
+
+    @Override
+    public void applyLikes(int filmId, int[] likes, long[] likedAt, int[] unlikes) {
+        long sequence = 0;
+        locks.lock(filmId);
+        try {
+            Film film = getExistingFilm(filmId).copy();
+            int oldLikesCount = film.getLikesCount();
+            boolean changed = false;
+            for (int i = 0; i < likes.length; i++) {
+                int likesCount = film.getLikesCount();
+                film.addLike(likes[i]);
+                if (film.getLikesCount() != likesCount) {
+                    indexLike(filmId, likes[i]);
+                    trendingIndex.like(filmId, likedAt[i]);
+                    sequence = journal.append(JournalRecord.like(filmId, likes[i], likedAt[i]));
+                    changed = true;
+                }
+            }
+            for (int userId : unlikes) {
+                int likesCount = film.getLikesCount();
+                film.removeLike(userId);
+                if (film.getLikesCount() != likesCount) {
+                    unindexLike(filmId, userId);
+                    sequence = journal.append(JournalRecord.of(Type.REMOVE_LIKE, filmId, userId));
+                    changed = true;
+                }
+            }
+            if (changed) {
+                popularityIndex.update(filmId, oldLikesCount, film.getLikesCount());
+                totalLikes.add(film.getLikesCount() - oldLikesCount);
+                publish(film);
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public List<Film> getFilmRecommendations(int userId, int limit) {
+        return getFilmsByIds(similarityIndex.recommend(userId, limit, id -> getFilmById(id) == null));
+    }
+
+    /**
+     * Обход индекса популярности с пропуском лайкнутых фильмов: пропусков не больше, чем лайков
+     * у пользователя, так что читается не больше count записей сверх них.
+     */
+    @Override
+    public List<Film> getPopularFilmsNotLikedBy(int userId, int count) {
+        int[] liked = similarityIndex.films(userId);
+        return getFilmsByIds(popularityIndex.top(count, id -> Arrays.binarySearch(liked, id) >= 0).stream()
+                .mapToInt(Integer::intValue).toArray());
+    }
+
+    @Override
+    public List<Film> findFilms(FilmFilter filter, int limit) {
+        List<Film> result = new ArrayList<>(Math.min(limit, 1024));
+        for (long key : attributeIndex.candidates(filter)) {
+            if (result.size() >= limit) {
+                break;
+            }
+            Film film = snapshot.get(FilmAttributeIndex.filmId(key));
+            if (film != null && filter.matches(film)) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Самые популярные фильмы среди подходящих под фильтр. Перебирается диапазон вторичного индекса,
+     * лучшие count фильмов отбираются кучей {@link SmallestKeys}, поэтому стоимость растёт с размером
+     * диапазона, а не каталога. Куча растёт по мере заполнения, так что большой count не выделяет
+     * память заранее.
+     */
+    @Override
+    public List<Film> getPopularFilms(FilmFilter filter, int count) {
+        if (filter.isEmpty()) {
+            return getPopularFilms(count);
+        }
+        if (count <= 0) {
+            return List.of();
+        }
+        SmallestKeys top = new SmallestKeys(count);
+        for (long key : attributeIndex.candidates(filter)) {
+            Film film = snapshot.get(FilmAttributeIndex.filmId(key));
+            if (film != null && filter.matches(film)) {
+                top.offer(((long) (Integer.MAX_VALUE - film.getLikesCount()) << 32) | film.getId());
+            }
+        }
+        long[] keys = top.sorted();
+        int[] ids = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ids[i] = (int) keys[i];
+        }
+        return getFilmsByIds(ids);
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int limit) {
+        return getFilmsByIds(searchIndex.search(query, limit, id -> {
+            Film film = snapshot.get(id);
+            return film == null ? 0 : film.getLikesCount();
+        }));
+    }
+
+    @Override
+    public List<Duration> getTrendingWindows() {
+        return TrendingIndex.WINDOWS;
+    }
+
+    @Override
+    public List<Film> getTrendingFilms(Duration window, int count) {
+        List<Film> result = new ArrayList<>();
+        for (Integer filmId : trendingIndex.top(window, count)) {
+            Film film = snapshot.get(filmId);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getFilmVersion(int id) {
+        Film film = getFilmById(id);
+        return film == null ? 0 : film.getVersion();
+    }
+
+    @Override
+    public long getVersion() {
+        return snapshot.version();
+    }
+
+    @Override
+    public int getFilmsCount() {
+        return snapshot.size();
+    }
+
+    @Override
+    public long getTotalLikes() {
+        return totalLikes.sum();
     }
 
     @Override
     public List<Film> getPopularFilms(int count) {
-        return films.values().stream()
-                .sorted((f1, f2) -> Integer.compare(f2.getLikesCount(), f1.getLikesCount()))
-                .limit(count)
-                .collect(Collectors.toList());
+        List<Film> result = new ArrayList<>();
+        for (Integer filmId : popularityIndex.top(count)) {
+            Film film = snapshot.get(filmId);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Назначает фильму новую версию и публикует его в снимке. Вызывается под блокировкой фильма после
+     * обновления индексов; после публикации фильм не меняется. Отсчёт версий начинается от текущего
+     * времени, чтобы после перезапуска они не повторяли выданные раньше.
+     */
+    private void publish(Film film) {
+        long version = versions.incrementAndGet();
+        film.setVersion(version);
+        snapshot.put(film.getId(), film, version);
+    }
+
+    /**
+     * Снимает лайк с опубликованного фильма под его блокировкой, обновляет индексы популярности
+     * и публикует копию. Возвращает номер записи журнала или 0, если лайка не было.
+     */
+    private long removeLikeLocked(Film published, int userId) {
+        int filmId = published.getId();
+        Film film = published.copy();
+        int oldLikesCount = film.getLikesCount();
+        film.removeLike(userId);
+        if (film.getLikesCount() == oldLikesCount) {
+            return 0;
+        }
+        unindexLike(filmId, userId);
+        popularityIndex.update(filmId, oldLikesCount, film.getLikesCount());
+        totalLikes.add(film.getLikesCount() - oldLikesCount);
+        publish(film);
+        return journal.append(JournalRecord.of(Type.REMOVE_LIKE, filmId, userId));
+    }
+
+    private void indexLike(int filmId, int userId) {
+        similarityIndex.like(filmId, userId);
+    }
+
+    private void unindexLike(int filmId, int userId) {
+        similarityIndex.unlike(filmId, userId);
+    }
+
+    private Film getExistingFilm(int id) {
+        Film film = getFilmById(id);
+        if (film == null) {
+            throw new IllegalArgumentException("Фильм с ID " + id + " не найден.");
+        }
+        return film;
     }
 }
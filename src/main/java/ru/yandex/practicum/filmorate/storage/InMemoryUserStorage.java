@@ -1,68 +1,372 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.IntSet;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.JournalRecord.Type;
 
+import java.time.Clock;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+/**
+ * Хранилище пользователей в памяти. Как и фильмы, пользователи публикуются в шардированном снимке
+ * {@link ShardedSnapshot} собственными копиями хранилища: дружба меняет копии обоих пользователей,
+ * чтение снимка не блокируется.
+ */
 @Component
+@Profile("!jdbc")
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
-    private int currentId = 1;
+    private final FriendshipGraph friendshipGraph = new FriendshipGraph();
+    private final FriendRecommender friendRecommender = new FriendRecommender(friendshipGraph);
+    private final StripedLocks locks = new StripedLocks();
+    private final AtomicInteger currentId = new AtomicInteger(1);
+    private final AtomicLong versions;
+    private final ShardedSnapshot<User> snapshot;
+    private volatile long lastDeletionVersion;
+    private volatile StorageJournal journal = StorageJournal.NONE;
+
+    public InMemoryUserStorage() {
+        this(Clock.systemUTC());
+    }
+
+    @Autowired
+    InMemoryUserStorage(Clock clock) {
+        this.versions = new AtomicLong(clock.millis() * 1000);
+        this.snapshot = new ShardedSnapshot<>(versions.get(), User::getId);
+    }
+
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
 
     @Override
     public User addUser(User user) {
-        user.setId(currentId++);
-        users.put(user.getId(), user);
+        int id = currentId.getAndIncrement();
+        user.setId(id);
+        user.setFriends(new IntSet());
+        User published = user.copy();
+        long sequence;
+        locks.lock(id);
+        try {
+            publish(published);
+            sequence = journal.append(JournalRecord.putUser(Type.ADD_USER, published));
+        } finally {
+            locks.unlock(id);
+        }
+        user.setVersion(published.getVersion());
+        journal.awaitDurable(sequence);
         return user;
     }
 
+    @Override
+    public List<User> addUsers(List<User> newUsers) {
+        int id = currentId.getAndAdd(newUsers.size());
+        long sequence = 0;
+        for (User user : newUsers) {
+            user.setId(id);
+            user.setFriends(new IntSet());
+            User published = user.copy();
+            locks.lock(id);
+            try {
+                publish(published);
+                sequence = journal.append(JournalRecord.putUser(Type.ADD_USER, published));
+            } finally {
+                locks.unlock(id);
+            }
+            user.setVersion(published.getVersion());
+            id++;
+        }
+        journal.awaitDurable(sequence);
+        return newUsers;
+    }
+
+    /**
+     * Восстанавливает пользователя с сохранённым ID (из снимка или журнала) вместе с его дружбой.
+     */
+    public void restoreUser(User user) {
+        int id = user.getId();
+        locks.lock(id);
+        try {
+            user.getFriends().forEach(friendId -> friendshipGraph.addEdge(id, friendId));
+            user.setFriends(IntSet.of(friendshipGraph.neighbors(id)));
+            publish(user);
+            currentId.accumulateAndGet(id + 1, Math::max);
+        } finally {
+            locks.unlock(id);
+        }
+    }
+
+    /**
+     * Передаёт пользователей текущего снимка в порядке ID, без блокировок.
+     */
+    public void forEachUser(Consumer<User> action) {
+        snapshot.values().forEach(action);
+    }
+
     @Override
     public User updateUser(User user) {
-        if (users.containsKey(user.getId())) {
-            users.put(user.getId(), user);
-            return user;
-        } else {
-            throw new IllegalArgumentException("Пользователь с ID " + user.getId() + " не найден.");
+        int id = user.getId();
+        long sequence;
+        locks.lock(id);
+        try {
+            getExistingUser(id);
+            user.setFriends(IntSet.of(friendshipGraph.neighbors(id)));
+            User published = user.copy();
+            publish(published);
+            user.setVersion(published.getVersion());
+            sequence = journal.append(JournalRecord.putUser(Type.UPDATE_USER, published));
+        } finally {
+            locks.unlock(id);
         }
+        journal.awaitDurable(sequence);
+        return user;
     }
 
+    /**
+     * Удаляет пользователя и снимает его дружбу за время, пропорциональное числу друзей. Сначала
+     * пользователь убирается из снимка, и новые дружбы с ним уже не добавятся, затем каждое ребро
+     * снимается под блокировкой пары. При повторе журнала каскад выполняется заново по той же
+     * записи, незавершённый из-за остановки каскад исправляет {@link #repairFriendships()}.
+     */
     @Override
     public void deleteUser(int id) {
-        if (!users.containsKey(id)) {
-            throw new IllegalArgumentException("Пользователь с ID " + id + " не найден.");
+        long sequence;
+        locks.lock(id);
+        try {
+            getExistingUser(id);
+            long version = versions.incrementAndGet();
+            snapshot.remove(id, version);
+            lastDeletionVersion = version;
+            sequence = journal.append(JournalRecord.of(Type.DELETE_USER, id));
+        } finally {
+            locks.unlock(id);
         }
-        users.remove(id);
+        for (int friendId : friendshipGraph.neighbors(id)) {
+            dropFriendship(id, friendId);
+        }
+        friendshipGraph.removeVertex(id);
+        journal.awaitDurable(sequence);
+    }
+
+    /**
+     * Сверяет графы дружбы со списками друзей пользователей: снимает рёбра к несуществующим
+     * пользователям и переписывает списки друзей, разошедшиеся с графом. Возвращает число
+     * исправленных расхождений.
+     */
+    public int repairFriendships() {
+        int[] repaired = {0};
+        friendshipGraph.forEachVertex(userId -> {
+            if (getUserById(userId) != null) {
+                return;
+            }
+            for (int friendId : friendshipGraph.neighbors(userId)) {
+                dropFriendship(userId, friendId);
+                repaired[0]++;
+            }
+            friendshipGraph.removeVertex(userId);
+        });
+        for (User user : snapshot.values()) {
+            int id = user.getId();
+            if (matchesGraph(user)) {
+                continue;
+            }
+            locks.lock(id);
+            try {
+                User current = getUserById(id);
+                if (current != null && !matchesGraph(current)) {
+                    User fixed = current.copy();
+                    fixed.setFriends(IntSet.of(friendshipGraph.neighbors(id)));
+                    publish(fixed);
+                    repaired[0]++;
+                }
+            } finally {
+                locks.unlock(id);
+            }
+        }
+        return repaired[0];
     }
 
     @Override
     public List<User> getAllUsers() {
-        return new ArrayList<>(users.values());
+        return snapshot.values();
+    }
+
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        List<User> result = new ArrayList<>(Math.min(limit, 1024));
+        if (afterId == Integer.MAX_VALUE) {
+            return result;
+        }
+        Iterator<User> users = snapshot.valuesFrom(afterId + 1);
+        while (result.size() < limit && users.hasNext()) {
+            result.add(users.next());
+        }
+        return result;
     }
 
     @Override
     public User getUserById(int id) {
-        return users.get(id);
+        return snapshot.get(id);
+    }
+
+    @Override
+    public List<User> getUsersByIds(int[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        IntSet seen = new IntSet(ids.length);
+        for (int id : ids) {
+            User user = snapshot.get(id);
+            if (user != null && seen.add(id)) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        return getUsersByIds(friendshipGraph.neighbors(userId));
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherUserId) {
+        return getUsersByIds(friendshipGraph.commonNeighbors(userId, otherUserId));
+    }
+
+    @Override
+    public List<User> getFriendRecommendations(int userId, int limit) {
+        return getUsersByIds(getFriendRecommendationIds(userId, limit));
+    }
+
+    @Override
+    public int[] getFriendRecommendationIds(int userId, int limit) {
+        return friendRecommender.compute(userId, limit);
+    }
+
+    /**
+     * Максимум версий пользователя и его друзей. Удаление пользователя меняет списки друзей
+     * без изменения оставшихся, поэтому учитывается и версия последнего удаления.
+     */
+    @Override
+    public long getFriendsVersion(int userId) {
+        User user = snapshot.get(userId);
+        if (user == null) {
+            return 0;
+        }
+        long version = Math.max(user.getVersion(), lastDeletionVersion);
+        for (int friendId : friendshipGraph.neighbors(userId)) {
+            User friend = snapshot.get(friendId);
+            if (friend != null) {
+                version = Math.max(version, friend.getVersion());
+            }
+        }
+        return version;
     }
 
     @Override
-    public List<User> getUsersByIds(Set<Long> ids) {
-        return users.values().stream()
-                .filter(user -> ids.contains((long) user.getId()))
-                .collect(Collectors.toList());
+    public int getUsersCount() {
+        return snapshot.size();
     }
 
     @Override
-    public List<User> getCommonFriends(Set<Long> userFriends, Set<Long> otherUserFriends) {
-        Set<Long> commonFriendsIds = new HashSet<>(userFriends);
-        commonFriendsIds.retainAll(otherUserFriends);
-        return getUsersByIds(commonFriendsIds);
+    public long getFriendshipsCount() {
+        return friendshipGraph.edgeCount();
     }
 
     @Override
-    public boolean userExists(Long userId) {
-        return users.values().stream()
-                .anyMatch(user -> user.getId() == userId);
+    public boolean userExists(int userId) {
+        return snapshot.containsKey(userId);
+    }
+
+    @Override
+    public void addFriend(int userId, int friendId) {
+        long sequence;
+        locks.lockPair(userId, friendId);
+        try {
+            User user = getExistingUser(userId).copy();
+            User friend = getExistingUser(friendId).copy();
+            friendshipGraph.addEdge(userId, friendId);
+            user.addFriend(friendId);
+            friend.addFriend(userId);
+            publish(user);
+            publish(friend);
+            sequence = journal.append(JournalRecord.of(Type.ADD_FRIEND, userId, friendId));
+        } finally {
+            locks.unlockPair(userId, friendId);
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public void removeFriend(int userId, int friendId) {
+        long sequence;
+        locks.lockPair(userId, friendId);
+        try {
+            User user = getExistingUser(userId).copy();
+            User friend = getExistingUser(friendId).copy();
+            friendshipGraph.removeEdge(userId, friendId);
+            user.removeFriend(friendId);
+            friend.removeFriend(userId);
+            publish(user);
+            publish(friend);
+            sequence = journal.append(JournalRecord.of(Type.REMOVE_FRIEND, userId, friendId));
+        } finally {
+            locks.unlockPair(userId, friendId);
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    /**
+     * Назначает пользователю новую версию и публикует его в снимке; вызывается под его блокировкой
+     * после всех изменений. Отсчёт версий начинается от текущего времени, чтобы после перезапуска
+     * они не повторялись.
+     */
+    private void publish(User user) {
+        long version = versions.incrementAndGet();
+        user.setVersion(version);
+        snapshot.put(user.getId(), user, version);
+    }
+
+    /**
+     * Снимает ребро между удалённым пользователем и другом и публикует друга без него.
+     */
+    private void dropFriendship(int deletedId, int friendId) {
+        locks.lockPair(deletedId, friendId);
+        try {
+            friendshipGraph.removeEdge(deletedId, friendId);
+            User friend = getUserById(friendId);
+            if (friend != null && friend.getFriends().contains(deletedId)) {
+                friend = friend.copy();
+                friend.removeFriend(deletedId);
+                publish(friend);
+            }
+        } finally {
+            locks.unlockPair(deletedId, friendId);
+        }
+    }
+
+    private boolean matchesGraph(User user) {
+        int[] neighbors = friendshipGraph.neighbors(user.getId());
+        if (neighbors.length != user.getFriends().size()) {
+            return false;
+        }
+        for (int friendId : neighbors) {
+            if (!user.getFriends().contains(friendId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private User getExistingUser(int id) {
+        User user = getUserById(id);
+        if (user == null) {
+            throw new IllegalArgumentException("Пользователь с ID " + id + " не найден.");
+        }
+        return user;
     }
 }
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Счётчики int -> int с открытой адресацией. Ключ 0 не используется: ID сущностей начинаются с 1.
+ */
+final class IntCounts {
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    IntCounts(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    static IntCounts count(int[][] neighborhoods, int from, int to) {
+        int total = 0;
+        for (int i = from; i < to; i++) {
+            total += neighborhoods[i].length;
+        }
+        IntCounts counts = new IntCounts(Math.min(total, 1 << 16));
+        for (int i = from; i < to; i++) {
+            for (int candidate : neighborhoods[i]) {
+                counts.add(candidate, 1);
+            }
+        }
+        return counts;
+    }
+
+    void add(int key, int delta) {
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                values[index] += delta;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = delta;
+        size++;
+    }
+
+    int get(int key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    void addAll(IntCounts other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != 0) {
+                add(other.keys[i], other.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Ключи с наибольшими значениями (при равенстве — с меньшим ключом), кроме исключённых.
+     * Отбор через min-кучу размера limit; ключ упакован в long: старшие биты — значение,
+     * младшие — инвертированный ключ, так что больший long означает более высокое место.
+     */
+    int[] top(int limit, IntPredicate excluded) {
+        long[] heap = new long[Math.min(limit, size)];
+        int heapSize = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int candidate = keys[i];
+            if (candidate == 0 || excluded.test(candidate)) {
+                continue;
+            }
+            long key = ((long) values[i] << 32) | (Integer.MAX_VALUE - candidate);
+            if (heapSize < heap.length) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (heapSize > 0 && key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+        long[] sorted = Arrays.copyOf(heap, heapSize);
+        Arrays.sort(sorted);
+        int[] result = new int[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            result[i] = Integer.MAX_VALUE - (int) sorted[heapSize - 1 - i];
+        }
+        return result;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= heap[index]) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (right < size && heap[right] < heap[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, index, smallest);
+            index = smallest;
+        }
+    }
+
+    private static void swap(long[] heap, int first, int second) {
+        long tmp = heap[first];
+        heap[first] = heap[second];
+        heap[second] = tmp;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length << 1];
+        values = new int[oldKeys.length << 1];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                add(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int mix(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
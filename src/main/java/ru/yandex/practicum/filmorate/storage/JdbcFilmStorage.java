@@ -0,0 +1,555 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Хранилище фильмов во встроенной базе H2 (профиль jdbc) для данных, которые не помещаются в куче.
+ * Лайки и термы поиска лежат в отдельных таблицах с индексами. Лайки фильмов читаются одним запросом
+ * на всю выборку по списку ID, без запроса на каждый фильм. Изменение фильма и его лайков выполняется
+ * в одной транзакции и начинается с обновления версии фильма, которое блокирует его строку до конца
+ * транзакции: изменения одного фильма не перемешиваются.
+ */
+@Component
+@Profile("jdbc")
+public class JdbcFilmStorage implements FilmStorage {
+    private static final int BATCH_SIZE = 1000;
+    private static final String FILM_COLUMNS = "f.id, f.name, f.description, f.release_date, f.duration, f.version";
+    private static final String INSERT_FILM =
+            "INSERT INTO films (name, description, release_date, duration, version) VALUES (?, ?, ?, ?, ?)";
+    private static final String MERGE_LIKE = """
+            MERGE INTO likes l
+            USING (SELECT CAST(? AS INT) AS film_id, CAST(? AS INT) AS user_id) v
+            ON l.film_id = v.film_id AND l.user_id = v.user_id
+            WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (v.film_id, v.user_id)""";
+    private static final String ADD_LIKE = """
+            MERGE INTO likes l
+            USING (SELECT CAST(? AS INT) AS film_id, u.id AS user_id, CAST(? AS BIGINT) AS liked_at
+                   FROM users u WHERE u.id = ?) v
+            ON l.film_id = v.film_id AND l.user_id = v.user_id
+            WHEN NOT MATCHED THEN INSERT (film_id, user_id, liked_at) VALUES (v.film_id, v.user_id, v.liked_at)""";
+    private static final String REMOVE_LIKE = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+    private static final String INSERT_TERM = "INSERT INTO film_terms (term, film_id, tf) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final AtomicLong versions;
+    private final AtomicLong version;
+
+    public JdbcFilmStorage(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this(jdbcTemplate, transactionTemplate, Clock.systemUTC());
+    }
+
+    @Autowired
+    JdbcFilmStorage(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+        Long stored = jdbcTemplate.queryForObject("SELECT MAX(version) FROM films", Long.class);
+        this.versions = new AtomicLong(Math.max(clock.millis() * 1000, stored == null ? 0 : stored));
+        this.version = new AtomicLong(versions.get());
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        addFilms(List.of(film));
+        return film;
+    }
+
+    /**
+     * Добавляет фильмы пачками по {@link #BATCH_SIZE}: фильмы, их лайки и термы поиска вставляются
+     * пакетными запросами в одной транзакции, ID выдаёт база.
+     */
+    @Override
+    public List<Film> addFilms(List<Film> newFilms) {
+        if (newFilms.isEmpty()) {
+            return newFilms;
+        }
+        long firstVersion = versions.getAndAdd(newFilms.size()) + 1;
+        transactionTemplate.executeWithoutResult(status -> {
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_FILM, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement statement, int i) throws SQLException {
+                            setFilm(statement, newFilms.get(i), firstVersion + i);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return newFilms.size();
+                        }
+                    }, keys);
+            List<Map<String, Object>> keyList = keys.getKeyList();
+            for (int i = 0; i < newFilms.size(); i++) {
+                Film film = newFilms.get(i);
+                film.setId(((Number) keyList.get(i).values().iterator().next()).intValue());
+                film.setVersion(firstVersion + i);
+            }
+            mergeLikes(newFilms);
+            insertTerms(newFilms);
+        });
+        published(firstVersion + newFilms.size() - 1);
+        return newFilms;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        int id = film.getId();
+        long changeVersion = versions.incrementAndGet();
+        transactionTemplate.executeWithoutResult(status -> {
+            int updated = jdbcTemplate.update("""
+                            UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, version = ?
+                            WHERE id = ?""",
+                    film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), changeVersion, id);
+            if (updated == 0) {
+                throw new IllegalArgumentException("Фильм с ID " + id + " не найден.");
+            }
+            jdbcTemplate.update("DELETE FROM likes WHERE film_id = ? AND NOT (user_id = ANY(?))",
+                    id, boxed(film.getLikes().toArray()));
+            mergeLikes(List.of(film));
+            jdbcTemplate.update("DELETE FROM film_terms WHERE film_id = ?", id);
+            insertTerms(List.of(film));
+        });
+        film.setVersion(changeVersion);
+        published(changeVersion);
+        return film;
+    }
+
+    /**
+     * Удаляет фильм; его лайки и термы удаляются каскадно внешними ключами.
+     */
+    @Override
+    public void deleteFilm(int id) {
+        long changeVersion = versions.incrementAndGet();
+        if (jdbcTemplate.update("DELETE FROM films WHERE id = ?", id) > 0) {
+            published(changeVersion);
+        }
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return withLikes(jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM films f ORDER BY f.id",
+                JdbcFilmStorage::mapFilm));
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        return withLikes(jdbcTemplate.query(
+                "SELECT " + FILM_COLUMNS + " FROM films f WHERE f.id > ? ORDER BY f.id LIMIT ?",
+                JdbcFilmStorage::mapFilm, afterId, limit));
+    }
+
+    @Override
+    public Film getFilmById(int id) {
+        List<Film> films = withLikes(jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM films f WHERE f.id = ?",
+                JdbcFilmStorage::mapFilm, id));
+        return films.isEmpty() ? null : films.get(0);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        Map<Integer, Film> films = new HashMap<>();
+        for (Film film : withLikes(jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM films f WHERE f.id = ANY(?)",
+                JdbcFilmStorage::mapFilm, (Object) boxed(ids)))) {
+            films.put(film.getId(), film);
+        }
+        List<Film> result = new ArrayList<>(films.size());
+        for (int id : ids) {
+            Film film = films.remove(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void addLike(int filmId, int userId) {
+        addLike(filmId, userId, clock.millis());
+    }
+
+    @Override
+    public void addLike(int filmId, int userId, long likedAt) {
+        long changeVersion = versions.incrementAndGet();
+        Boolean changed = transactionTemplate.execute(status -> {
+            lockExistingFilm(filmId, changeVersion);
+            return keepIfChanged(status, jdbcTemplate.update(ADD_LIKE, filmId, likedAt, userId) > 0);
+        });
+        if (Boolean.TRUE.equals(changed)) {
+            published(changeVersion);
+        }
+    }
+
+    @Override
+    public void removeLike(int filmId, int userId) {
+        long changeVersion = versions.incrementAndGet();
+        Boolean changed = transactionTemplate.execute(status -> {
+            lockExistingFilm(filmId, changeVersion);
+            return keepIfChanged(status, jdbcTemplate.update(REMOVE_LIKE, filmId, userId) > 0);
+        });
+        if (Boolean.TRUE.equals(changed)) {
+            published(changeVersion);
+        }
+    }
+
+    /**
+     * Снимает лайки пользователя по индексу likes(user_id). Строки затронутых фильмов блокируются
+     * до удаления лайков, в том же порядке, что и при добавлении лайка, поэтому каскад не встаёт
+     * во взаимную блокировку с лайками из очереди.
+     */
+    @Override
+    public int[] removeUserLikes(int userId) {
+        long changeVersion = versions.incrementAndGet();
+        int[] filmIds = transactionTemplate.execute(status -> {
+            int[] locked = jdbcTemplate.queryForList("""
+                            SELECT id FROM FINAL TABLE (
+                                UPDATE films SET version = ? WHERE id IN (SELECT film_id FROM likes WHERE user_id = ?))""",
+                    Integer.class, changeVersion, userId).stream().mapToInt(Integer::intValue).toArray();
+            if (locked.length > 0) {
+                jdbcTemplate.update("DELETE FROM likes WHERE user_id = ? AND film_id = ANY(?)", userId, boxed(locked));
+            }
+            return locked;
+        });
+        if (filmIds.length > 0) {
+            published(changeVersion);
+        }
+        return filmIds;
+    }
+
+    /**
+     * Применяет пачку лайков и отмен одной транзакцией с пакетными запросами. Лайки пользователей,
+     * удалённых до применения пачки, не вставляются.
+     */
+    @Override
+    public void applyLikes(int filmId, int[] likes, long[] likedAt, int[] unlikes) {
+        long changeVersion = versions.incrementAndGet();
+        Boolean changed = transactionTemplate.execute(status -> {
+            lockExistingFilm(filmId, changeVersion);
+            int[][] added = jdbcTemplate.batchUpdate(ADD_LIKE, indexes(likes.length), BATCH_SIZE, (statement, i) -> {
+                statement.setInt(1, filmId);
+                statement.setLong(2, likedAt[i]);
+                statement.setInt(3, likes[i]);
+            });
+            int[][] removed = jdbcTemplate.batchUpdate(REMOVE_LIKE, indexes(unlikes.length), BATCH_SIZE,
+                    (statement, i) -> {
+                        statement.setInt(1, filmId);
+                        statement.setInt(2, unlikes[i]);
+                    });
+            return keepIfChanged(status, anyUpdated(added) || anyUpdated(removed));
+        });
+        if (Boolean.TRUE.equals(changed)) {
+            published(changeVersion);
+        }
+    }
+
+    /**
+     * Рекомендации по совместным лайкам одним запросом: фильмы, которые лайкнули пользователи
+     * с общими лайками, по числу таких совпадений. В отличие от in-memory индекса счёт точный.
+     */
+    @Override
+    public List<Film> getFilmRecommendations(int userId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return getFilmsByIds(ids(jdbcTemplate.queryForList("""
+                SELECT candidate.film_id
+                FROM likes mine
+                JOIN likes co ON co.film_id = mine.film_id AND co.user_id <> mine.user_id
+                JOIN likes candidate ON candidate.user_id = co.user_id
+                WHERE mine.user_id = ?
+                  AND NOT EXISTS (SELECT 1 FROM likes seen
+                                  WHERE seen.user_id = mine.user_id AND seen.film_id = candidate.film_id)
+                GROUP BY candidate.film_id
+                ORDER BY COUNT(*) DESC, candidate.film_id
+                LIMIT ?""", Integer.class, userId, limit)));
+    }
+
+    @Override
+    public List<Film> getPopularFilmsNotLikedBy(int userId, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        return getFilmsByIds(ids(jdbcTemplate.queryForList("""
+                SELECT f.id
+                FROM films f
+                LEFT JOIN likes l ON l.film_id = f.id
+                WHERE NOT EXISTS (SELECT 1 FROM likes seen WHERE seen.film_id = f.id AND seen.user_id = ?)
+                GROUP BY f.id
+                ORDER BY COUNT(l.user_id) DESC, f.id
+                LIMIT ?""", Integer.class, userId, count)));
+    }
+
+    @Override
+    public List<Film> findFilms(FilmFilter filter, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>();
+        String order = filter.hasReleaseDateRange() ? "f.release_date, f.id" : "f.duration, f.id";
+        String sql = "SELECT " + FILM_COLUMNS + " FROM films f" + where(filter, args) + " ORDER BY " + order
+                + " LIMIT ?";
+        args.add(limit);
+        return withLikes(jdbcTemplate.query(sql, JdbcFilmStorage::mapFilm, args.toArray()));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return getPopularFilms(FilmFilter.NONE, count);
+    }
+
+    /**
+     * Самые популярные фильмы одним агрегирующим запросом: лайки считаются по индексу
+     * likes(film_id, user_id), сортируются только ID и счётчики, строки фильмов читаются для
+     * отобранных count.
+     */
+    @Override
+    public List<Film> getPopularFilms(FilmFilter filter, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT " + FILM_COLUMNS + " FROM films f"
+                + " JOIN (SELECT f.id, COUNT(l.user_id) AS likes_count"
+                + " FROM films f LEFT JOIN likes l ON l.film_id = f.id" + where(filter, args)
+                + " GROUP BY f.id ORDER BY likes_count DESC, f.id LIMIT ?) p ON p.id = f.id"
+                + " ORDER BY p.likes_count DESC, f.id";
+        args.add(count);
+        return withLikes(jdbcTemplate.query(sql, JdbcFilmStorage::mapFilm, args.toArray()));
+    }
+
+    /**
+     * Поиск по таблице термов с той же разбивкой на термы и тем же счётом, что у {@link FilmSearchIndex}:
+     * сумма частот с весом idf, при равенстве — больше лайков, затем меньший ID.
+     */
+    @Override
+    public List<Film> searchFilms(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(FilmSearchIndex.tokenize(query)));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Object termArray = terms.toArray(new String[0]);
+        return getFilmsByIds(ids(jdbcTemplate.queryForList("""
+                SELECT t.film_id
+                FROM film_terms t
+                JOIN (SELECT term, COUNT(*) AS df FROM film_terms WHERE term = ANY(?) GROUP BY term) d
+                  ON d.term = t.term
+                CROSS JOIN (SELECT COUNT(*) AS n FROM films) docs
+                WHERE t.term = ANY(?)
+                GROUP BY t.film_id
+                HAVING COUNT(*) = ?
+                ORDER BY SUM(t.tf * LN(1 + CAST(docs.n AS DOUBLE) / d.df)) DESC,
+                         (SELECT COUNT(*) FROM likes l WHERE l.film_id = t.film_id) DESC,
+                         t.film_id
+                LIMIT ?""", Integer.class, termArray, termArray, terms.size(), limit)));
+    }
+
+    @Override
+    public List<Duration> getTrendingWindows() {
+        return TrendingIndex.WINDOWS;
+    }
+
+    /**
+     * Тренды одним запросом по индексу likes(liked_at): лайки за окно с весом, который уменьшается
+     * вдвое за половину окна. В отличие от {@link TrendingIndex} затухание непрерывное, без корзин.
+     */
+    @Override
+    public List<Film> getTrendingFilms(Duration window, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        long now = clock.millis();
+        return getFilmsByIds(ids(jdbcTemplate.queryForList("""
+                SELECT film_id
+                FROM likes
+                WHERE liked_at > ?
+                GROUP BY film_id
+                ORDER BY SUM(POWER(2, (LEAST(liked_at, ?) - ?) / CAST(? AS DOUBLE))) DESC, film_id
+                LIMIT ?""", Integer.class, now - window.toMillis(), now, now, window.toMillis() / 2.0, count)));
+    }
+
+    @Override
+    public long getFilmVersion(int id) {
+        List<Long> found = jdbcTemplate.queryForList("SELECT version FROM films WHERE id = ?", Long.class, id);
+        return found.isEmpty() ? 0 : found.get(0);
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public int getFilmsCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class);
+    }
+
+    @Override
+    public long getTotalLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Long.class);
+    }
+
+    /**
+     * Отмечает версию завершённого изменения как версию хранилища. Вызывается после фиксации
+     * транзакции, поэтому версия не опережает видимые данные.
+     */
+    private void published(long changeVersion) {
+        version.accumulateAndGet(changeVersion, Math::max);
+    }
+
+    /**
+     * Назначает фильму версию; строка фильма остаётся заблокированной до конца транзакции.
+     */
+    private void lockExistingFilm(int id, long changeVersion) {
+        if (jdbcTemplate.update("UPDATE films SET version = ? WHERE id = ?", changeVersion, id) == 0) {
+            throw new IllegalArgumentException("Фильм с ID " + id + " не найден.");
+        }
+    }
+
+    /**
+     * Откатывает транзакцию, если лайки не изменились: назначенная фильму версия тогда не сохраняется
+     * и его ETag остаётся прежним.
+     */
+    private static boolean keepIfChanged(TransactionStatus status, boolean changed) {
+        if (!changed) {
+            status.setRollbackOnly();
+        }
+        return changed;
+    }
+
+    private static boolean anyUpdated(int[][] counts) {
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Загружает лайки выборки фильмов одним запросом по их ID.
+     */
+    private List<Film> withLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Integer, Film> byId = new HashMap<>(films.size() * 2);
+        int[] ids = new int[films.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = films.get(i).getId();
+            byId.put(ids[i], films.get(i));
+        }
+        RowCallbackHandler addLike = rs -> byId.get(rs.getInt(1)).addLike(rs.getInt(2));
+        jdbcTemplate.query("SELECT film_id, user_id FROM likes WHERE film_id = ANY(?)", addLike, (Object) boxed(ids));
+        return films;
+    }
+
+    private void mergeLikes(List<Film> films) {
+        List<int[]> likes = new ArrayList<>();
+        for (Film film : films) {
+            film.getLikes().forEach(userId -> likes.add(new int[]{film.getId(), userId}));
+        }
+        jdbcTemplate.batchUpdate(MERGE_LIKE, likes, BATCH_SIZE, (statement, like) -> {
+            statement.setInt(1, like[0]);
+            statement.setInt(2, like[1]);
+        });
+    }
+
+    private void insertTerms(List<Film> films) {
+        List<TermRow> terms = new ArrayList<>();
+        for (Film film : films) {
+            FilmSearchIndex.termFrequencies(film).forEach((term, tf) -> terms.add(new TermRow(term, film.getId(), tf)));
+        }
+        jdbcTemplate.batchUpdate(INSERT_TERM, terms, BATCH_SIZE, (statement, row) -> {
+            statement.setString(1, row.term());
+            statement.setInt(2, row.filmId());
+            statement.setInt(3, row.tf());
+        });
+    }
+
+    private static String where(FilmFilter filter, List<Object> args) {
+        StringJoiner conditions = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        if (filter.releasedFrom() != null) {
+            conditions.add("f.release_date >= ?");
+            args.add(filter.releasedFrom());
+        }
+        if (filter.releasedTo() != null) {
+            conditions.add("f.release_date <= ?");
+            args.add(filter.releasedTo());
+        }
+        if (filter.minDuration() != null) {
+            conditions.add("f.duration >= ?");
+            args.add(filter.minDuration());
+        }
+        if (filter.maxDuration() != null) {
+            conditions.add("f.duration <= ?");
+            args.add(filter.maxDuration());
+        }
+        return conditions.toString();
+    }
+
+    private static void setFilm(PreparedStatement statement, Film film, long filmVersion) throws SQLException {
+        statement.setString(1, film.getName());
+        statement.setString(2, film.getDescription());
+        statement.setObject(3, film.getReleaseDate());
+        statement.setInt(4, film.getDuration());
+        statement.setLong(5, filmVersion);
+    }
+
+    private static Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getObject("release_date", LocalDate.class));
+        film.setDuration(rs.getInt("duration"));
+        film.setVersion(rs.getLong("version"));
+        return film;
+    }
+
+    private static List<Integer> indexes(int size) {
+        return IntStream.range(0, size).boxed().toList();
+    }
+
+    private static int[] ids(List<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Integer[] boxed(int[] ids) {
+        return IntStream.of(ids).boxed().toArray(Integer[]::new);
+    }
+
+    private record TermRow(String term, int filmId, int tf) {
+    }
+}
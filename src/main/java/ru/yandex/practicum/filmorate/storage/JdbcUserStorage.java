@@ -0,0 +1,325 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Хранилище пользователей во встроенной базе H2 (профиль jdbc). Дружба хранится в таблице friendships
+ * двумя строками на пару, поэтому друзья пользователя читаются по первичному ключу, а общие друзья —
+ * одним соединением таблицы с собой. Друзья выборки пользователей загружаются одним запросом.
+ * Изменение дружбы блокирует строки обоих пользователей в порядке возрастания ID.
+ */
+@Component
+@Profile("jdbc")
+public class JdbcUserStorage implements UserStorage {
+    private static final String USER_COLUMNS = "u.id, u.email, u.login, u.name, u.birthday, u.version";
+    private static final String INSERT_USER =
+            "INSERT INTO users (email, login, name, birthday, version) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicLong versions;
+
+    public JdbcUserStorage(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this(jdbcTemplate, transactionTemplate, Clock.systemUTC());
+    }
+
+    @Autowired
+    JdbcUserStorage(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        Long stored = jdbcTemplate.queryForObject("SELECT MAX(version) FROM users", Long.class);
+        this.versions = new AtomicLong(Math.max(clock.millis() * 1000, stored == null ? 0 : stored));
+    }
+
+    @Override
+    public User addUser(User user) {
+        addUsers(List.of(user));
+        return user;
+    }
+
+    /**
+     * Добавляет пользователей одним пакетным запросом в транзакции, ID выдаёт база.
+     */
+    @Override
+    public List<User> addUsers(List<User> newUsers) {
+        if (newUsers.isEmpty()) {
+            return newUsers;
+        }
+        long firstVersion = versions.getAndAdd(newUsers.size()) + 1;
+        transactionTemplate.executeWithoutResult(status -> {
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_USER, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement statement, int i) throws SQLException {
+                            User user = newUsers.get(i);
+                            statement.setString(1, user.getEmail());
+                            statement.setString(2, user.getLogin());
+                            statement.setString(3, user.getName());
+                            statement.setObject(4, user.getBirthday());
+                            statement.setLong(5, firstVersion + i);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return newUsers.size();
+                        }
+                    }, keys);
+            List<Map<String, Object>> keyList = keys.getKeyList();
+            for (int i = 0; i < newUsers.size(); i++) {
+                User user = newUsers.get(i);
+                user.setId(((Number) keyList.get(i).values().iterator().next()).intValue());
+                user.setFriends(new IntSet());
+                user.setVersion(firstVersion + i);
+            }
+        });
+        return newUsers;
+    }
+
+    @Override
+    public User updateUser(User user) {
+        int id = user.getId();
+        long changeVersion = versions.incrementAndGet();
+        IntSet friends = transactionTemplate.execute(status -> {
+            int updated = jdbcTemplate.update(
+                    "UPDATE users SET email = ?, login = ?, name = ?, birthday = ?, version = ? WHERE id = ?",
+                    user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), changeVersion, id);
+            if (updated == 0) {
+                throw new IllegalArgumentException("Пользователь с ID " + id + " не найден.");
+            }
+            return IntSet.of(ids(jdbcTemplate.queryForList(
+                    "SELECT friend_id FROM friendships WHERE user_id = ?", Integer.class, id)));
+        });
+        user.setFriends(friends);
+        user.setVersion(changeVersion);
+        return user;
+    }
+
+    /**
+     * Удаляет пользователя; его дружба удаляется каскадно внешними ключами. Друзьям назначается
+     * новая версия, так как их списки друзей изменились.
+     */
+    @Override
+    public void deleteUser(int id) {
+        long changeVersion = versions.incrementAndGet();
+        transactionTemplate.executeWithoutResult(status -> {
+            lockExistingUser(id, changeVersion);
+            jdbcTemplate.update(
+                    "UPDATE users SET version = ? WHERE id IN (SELECT friend_id FROM friendships WHERE user_id = ?)",
+                    changeVersion, id);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", id);
+        });
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return withFriends(jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users u ORDER BY u.id",
+                JdbcUserStorage::mapUser));
+    }
+
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        return withFriends(jdbcTemplate.query(
+                "SELECT " + USER_COLUMNS + " FROM users u WHERE u.id > ? ORDER BY u.id LIMIT ?",
+                JdbcUserStorage::mapUser, afterId, limit));
+    }
+
+    @Override
+    public User getUserById(int id) {
+        List<User> users = withFriends(jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users u WHERE u.id = ?",
+                JdbcUserStorage::mapUser, id));
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    @Override
+    public List<User> getUsersByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        Map<Integer, User> users = new HashMap<>();
+        for (User user : withFriends(jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users u WHERE u.id = ANY(?)",
+                JdbcUserStorage::mapUser, (Object) boxed(ids)))) {
+            users.put(user.getId(), user);
+        }
+        List<User> result = new ArrayList<>(users.size());
+        for (int id : ids) {
+            User user = users.remove(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        return withFriends(jdbcTemplate.query("SELECT " + USER_COLUMNS
+                + " FROM friendships f JOIN users u ON u.id = f.friend_id"
+                + " WHERE f.user_id = ? ORDER BY u.id", JdbcUserStorage::mapUser, userId));
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherUserId) {
+        return withFriends(jdbcTemplate.query("SELECT " + USER_COLUMNS
+                + " FROM friendships f"
+                + " JOIN friendships o ON o.friend_id = f.friend_id AND o.user_id = ?"
+                + " JOIN users u ON u.id = f.friend_id"
+                + " WHERE f.user_id = ? ORDER BY u.id", JdbcUserStorage::mapUser, otherUserId, userId));
+    }
+
+    /**
+     * Друзья друзей по числу общих друзей (по убыванию), затем по ID, одним запросом.
+     */
+    @Override
+    public List<User> getFriendRecommendations(int userId, int limit) {
+        return getUsersByIds(getFriendRecommendationIds(userId, limit));
+    }
+
+    @Override
+    public int[] getFriendRecommendationIds(int userId, int limit) {
+        if (limit <= 0) {
+            return new int[0];
+        }
+        return ids(jdbcTemplate.queryForList("""
+                SELECT candidate.friend_id
+                FROM friendships mine
+                JOIN friendships candidate ON candidate.user_id = mine.friend_id
+                WHERE mine.user_id = ?
+                  AND candidate.friend_id <> mine.user_id
+                  AND NOT EXISTS (SELECT 1 FROM friendships known
+                                  WHERE known.user_id = mine.user_id AND known.friend_id = candidate.friend_id)
+                GROUP BY candidate.friend_id
+                ORDER BY COUNT(*) DESC, candidate.friend_id
+                LIMIT ?""", Integer.class, userId, limit));
+    }
+
+    @Override
+    public boolean userExists(int userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, userId) > 0;
+    }
+
+    @Override
+    public void addFriend(int userId, int friendId) {
+        long changeVersion = versions.incrementAndGet();
+        transactionTemplate.executeWithoutResult(status -> {
+            lockPair(userId, friendId, changeVersion);
+            jdbcTemplate.update("""
+                    MERGE INTO friendships f
+                    USING (VALUES (CAST(? AS INT), CAST(? AS INT)), (CAST(? AS INT), CAST(? AS INT))) v (user_id, friend_id)
+                    ON f.user_id = v.user_id AND f.friend_id = v.friend_id
+                    WHEN NOT MATCHED THEN INSERT (user_id, friend_id) VALUES (v.user_id, v.friend_id)""",
+                    userId, friendId, friendId, userId);
+        });
+    }
+
+    @Override
+    public void removeFriend(int userId, int friendId) {
+        long changeVersion = versions.incrementAndGet();
+        transactionTemplate.executeWithoutResult(status -> {
+            lockPair(userId, friendId, changeVersion);
+            jdbcTemplate.update(
+                    "DELETE FROM friendships WHERE user_id = ? AND friend_id = ? OR user_id = ? AND friend_id = ?",
+                    userId, friendId, friendId, userId);
+        });
+    }
+
+    /**
+     * Максимум версий пользователя и его друзей одним запросом. Удаление пользователя меняет версии
+     * его друзей, поэтому отдельный учёт удалений не нужен.
+     */
+    @Override
+    public long getFriendsVersion(int userId) {
+        Long version = jdbcTemplate.queryForObject("""
+                SELECT MAX(version) FROM users
+                WHERE id = ? OR id IN (SELECT friend_id FROM friendships WHERE user_id = ?)""",
+                Long.class, userId, userId);
+        return version == null ? 0 : version;
+    }
+
+    @Override
+    public int getUsersCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+    }
+
+    @Override
+    public long getFriendshipsCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) / 2 FROM friendships", Long.class);
+    }
+
+    /**
+     * Назначает обоим пользователям версию, блокируя их строки в порядке возрастания ID, чтобы
+     * встречные изменения дружбы не блокировали друг друга.
+     */
+    private void lockPair(int userId, int friendId, long changeVersion) {
+        lockExistingUser(Math.min(userId, friendId), changeVersion);
+        if (userId != friendId) {
+            lockExistingUser(Math.max(userId, friendId), changeVersion);
+        }
+    }
+
+    private void lockExistingUser(int id, long changeVersion) {
+        if (jdbcTemplate.update("UPDATE users SET version = ? WHERE id = ?", changeVersion, id) == 0) {
+            throw new IllegalArgumentException("Пользователь с ID " + id + " не найден.");
+        }
+    }
+
+    /**
+     * Загружает друзей выборки пользователей одним запросом по их ID.
+     */
+    private List<User> withFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Integer, User> byId = new HashMap<>(users.size() * 2);
+        int[] ids = new int[users.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = users.get(i).getId();
+            byId.put(ids[i], users.get(i));
+        }
+        RowCallbackHandler addFriend = rs -> byId.get(rs.getInt(1)).addFriend(rs.getInt(2));
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friendships WHERE user_id = ANY(?)", addFriend,
+                (Object) boxed(ids));
+        return users;
+    }
+
+    private static User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setEmail(rs.getString("email"));
+        user.setLogin(rs.getString("login"));
+        user.setName(rs.getString("name"));
+        user.setBirthday(rs.getObject("birthday", LocalDate.class));
+        user.setVersion(rs.getLong("version"));
+        return user;
+    }
+
+    private static int[] ids(List<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Integer[] boxed(int[] ids) {
+        return IntStream.of(ids).boxed().toArray(Integer[]::new);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Запись журнала изменений. Все операции идемпотентны, поэтому журнал можно повторно
+ * применять поверх снимка, снятого во время записи. Для лайков сохраняется время (мс от эпохи),
+ * по которому при восстановлении заполняются тренды.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JournalRecord(Type type, Film film, User user, Integer id, Integer otherId, Long timestamp) {
+
+    public enum Type {
+        ADD_FILM, UPDATE_FILM, DELETE_FILM, ADD_LIKE, REMOVE_LIKE,
+        ADD_USER, UPDATE_USER, DELETE_USER, ADD_FRIEND, REMOVE_FRIEND
+    }
+
+    public static JournalRecord putFilm(Type type, Film film) {
+        return new JournalRecord(type, film, null, null, null, null);
+    }
+
+    public static JournalRecord putUser(Type type, User user) {
+        return new JournalRecord(type, null, user, null, null, null);
+    }
+
+    public static JournalRecord of(Type type, int id) {
+        return new JournalRecord(type, null, null, id, null, null);
+    }
+
+    public static JournalRecord of(Type type, int id, int otherId) {
+        return new JournalRecord(type, null, null, id, otherId, null);
+    }
+
+    public static JournalRecord like(int filmId, int userId, long timestamp) {
+        return new JournalRecord(Type.ADD_LIKE, null, null, filmId, userId, timestamp);
+    }
+}
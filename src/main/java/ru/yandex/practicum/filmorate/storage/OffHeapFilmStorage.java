@@ -0,0 +1,630 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Колоночное хранилище фильмов вне кучи. Строка фильма — его ID минус один; поля фиксированной
+ * ширины (дата релиза в днях от эпохи, продолжительность, число лайков, версия, ссылки на строки)
+ * лежат в прямых буферах по колонке на поле, название и описание — в {@link OffHeapStrings}.
+ * В куче остаются только множества лайков и индексы рекомендаций, поиска и трендов.
+ * Популярные фильмы без фильтра берутся из {@link PopularityIndex}, с фильтром — проходом по колонкам;
+ * объекты {@link Film} создаются только для возвращаемых строк.
+ *
+ * <p>Изменения структуры (добавление, обновление, удаление фильма, рост колонок, уплотнение строк)
+ * идут под исключительной блокировкой. Чтение и лайки — под общей, лайк ещё и под блокировкой
+ * своей строки, так что лайки разных фильмов не ждут друг друга и не блокируют чтение. Множество
+ * лайков строки читается и меняется только под её блокировкой.
+ */
+@Component
+@Profile("offheap")
+public class OffHeapFilmStorage implements FilmStorage {
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final PopularityIndex popularityIndex = new PopularityIndex();
+    private final FilmSimilarityIndex similarityIndex = new FilmSimilarityIndex();
+    private final TrendingIndex trendingIndex;
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final Clock clock;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StripedLocks rowLocks = new StripedLocks();
+    private final LongAdder totalLikes = new LongAdder();
+    private final AtomicLong versions;
+    private final AtomicLong version;
+    private ByteBuffer releaseDays;
+    private ByteBuffer durations;
+    private ByteBuffer likeCounts;
+    private ByteBuffer filmVersions;
+    private ByteBuffer names;
+    private ByteBuffer descriptions;
+    private IntSet[] likes;
+    private OffHeapStrings strings = new OffHeapStrings();
+    private int capacity;
+    private int rows;
+    private int filmsCount;
+
+    public OffHeapFilmStorage() {
+        this(Clock.systemUTC());
+    }
+
+    @Autowired
+    OffHeapFilmStorage(Clock clock) {
+        this.clock = clock;
+        this.trendingIndex = new TrendingIndex(clock);
+        this.versions = new AtomicLong(clock.millis() * 1000);
+        this.version = new AtomicLong(versions.get());
+        grow(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            insert(film);
+            searchIndex.add(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return film;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> newFilms) {
+        lock.writeLock().lock();
+        try {
+            if (rows + newFilms.size() > capacity) {
+                grow(Math.max(rows + newFilms.size(), capacity * 2));
+            }
+            for (Film film : newFilms) {
+                insert(film);
+            }
+            searchIndex.addAll(newFilms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return newFilms;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        int id = film.getId();
+        lock.writeLock().lock();
+        try {
+            int row = existingRow(id);
+            Film oldFilm = film(row);
+            strings.release(names.getLong(row << 3));
+            strings.release(descriptions.getLong(row << 3));
+            write(row, film);
+            IntSet newLikes = IntSet.copyOf(film.getLikes());
+            IntSet oldLikes = oldFilm.getLikes();
+            oldLikes.forEach(userId -> {
+                if (!newLikes.contains(userId)) {
+                    unindexLike(id, userId);
+                }
+            });
+            newLikes.forEach(userId -> {
+                if (!oldLikes.contains(userId)) {
+                    indexLike(id, userId);
+                }
+            });
+            likes[row] = newLikes.isEmpty() ? null : newLikes;
+            updateLikesCount(row);
+            searchIndex.update(oldFilm, film);
+            film.setVersion(publish(row));
+            compactStrings();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return film;
+    }
+
+    @Override
+    public void deleteFilm(int id) {
+        lock.writeLock().lock();
+        try {
+            int row = row(id);
+            if (row < 0) {
+                return;
+            }
+            Film film = film(row);
+            strings.release(names.getLong(row << 3));
+            strings.release(descriptions.getLong(row << 3));
+            names.putLong(row << 3, OffHeapStrings.NULL);
+            descriptions.putLong(row << 3, OffHeapStrings.NULL);
+            film.getLikes().forEach(userId -> unindexLike(id, userId));
+            similarityIndex.deleteFilm(id, film.getLikes());
+            likes[row] = null;
+            updateLikesCount(row);
+            popularityIndex.remove(id, 0);
+            trendingIndex.remove(id);
+            searchIndex.remove(film);
+            filmVersions.putLong(row << 3, 0);
+            filmsCount--;
+            version.accumulateAndGet(versions.incrementAndGet(), Math::max);
+            compactStrings();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return getFilmsPage(0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Film> result = new ArrayList<>(Math.min(limit, Math.min(filmsCount, 1024)));
+            for (int row = Math.max(afterId, 0); row < rows && result.size() < limit; row++) {
+                if (isLive(row)) {
+                    result.add(film(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Film getFilmById(int id) {
+        lock.readLock().lock();
+        try {
+            int row = row(id);
+            return row < 0 ? null : film(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(int[] ids) {
+        lock.readLock().lock();
+        try {
+            return filmsByIds(ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void addLike(int filmId, int userId) {
+        addLike(filmId, userId, clock.millis());
+    }
+
+    @Override
+    public void addLike(int filmId, int userId, long likedAt) {
+        lock.readLock().lock();
+        try {
+            int row = existingRow(filmId);
+            rowLocks.lock(filmId);
+            try {
+                addLikeLocked(row, userId, likedAt);
+            } finally {
+                rowLocks.unlock(filmId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeLike(int filmId, int userId) {
+        lock.readLock().lock();
+        try {
+            int row = existingRow(filmId);
+            rowLocks.lock(filmId);
+            try {
+                removeLikeLocked(row, userId);
+            } finally {
+                rowLocks.unlock(filmId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int[] removeUserLikes(int userId) {
+        lock.readLock().lock();
+        try {
+            int[] filmIds = similarityIndex.films(userId);
+            int removed = 0;
+            for (int filmId : filmIds) {
+                int row = row(filmId);
+                if (row < 0) {
+                    continue;
+                }
+                rowLocks.lock(filmId);
+                try {
+                    if (removeLikeLocked(row, userId)) {
+                        filmIds[removed++] = filmId;
+                    }
+                } finally {
+                    rowLocks.unlock(filmId);
+                }
+            }
+            return Arrays.copyOf(filmIds, removed);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void applyLikes(int filmId, int[] likes, long[] likedAt, int[] unlikes) {
+        lock.readLock().lock();
+        try {
+            int row = existingRow(filmId);
+            rowLocks.lock(filmId);
+            try {
+                for (int i = 0; i < likes.length; i++) {
+                    addLikeLocked(row, likes[i], likedAt[i]);
+                }
+                for (int userId : unlikes) {
+                    removeLikeLocked(row, userId);
+                }
+            } finally {
+                rowLocks.unlock(filmId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return getFilmsByIds(popularityIndex.top(count).stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Самые популярные фильмы среди подходящих под фильтр: один проход по колонкам с отбором
+     * лучших count ключей (лайки, ID) кучей. Без фильтра используется индекс популярности.
+     */
+    @Override
+    public List<Film> getPopularFilms(FilmFilter filter, int count) {
+        if (filter.isEmpty()) {
+            return getPopularFilms(count);
+        }
+        if (count <= 0) {
+            return List.of();
+        }
+        Bounds bounds = Bounds.of(filter);
+        lock.readLock().lock();
+        try {
+            SmallestKeys top = new SmallestKeys(count);
+            for (int row = 0; row < rows; row++) {
+                if (isLive(row) && bounds.matches(releaseDays.getLong(row << 3), durations.getInt(row << 2))) {
+                    top.offer(((long) (Integer.MAX_VALUE - likeCounts.getInt(row << 2)) << 32) | (row + 1));
+                }
+            }
+            return films(top.sorted());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> findFilms(FilmFilter filter, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Bounds bounds = Bounds.of(filter);
+        boolean byReleaseDate = filter.hasReleaseDateRange();
+        lock.readLock().lock();
+        try {
+            SmallestKeys first = new SmallestKeys(limit);
+            for (int row = 0; row < rows; row++) {
+                long releaseDay = releaseDays.getLong(row << 3);
+                int duration = durations.getInt(row << 2);
+                if (isLive(row) && bounds.matches(releaseDay, duration)) {
+                    long value = byReleaseDate ? Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, releaseDay)) : duration;
+                    first.offer((value << 32) | (row + 1));
+                }
+            }
+            return films(first.sorted());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> getFilmRecommendations(int userId, int limit) {
+        return getFilmsByIds(similarityIndex.recommend(userId, limit, id -> getFilmVersion(id) == 0));
+    }
+
+    /**
+     * Обход индекса популярности с пропуском лайкнутых фильмов: пропусков не больше, чем лайков
+     * у пользователя, так что читается не больше count записей сверх них.
+     */
+    @Override
+    public List<Film> getPopularFilmsNotLikedBy(int userId, int count) {
+        int[] liked = similarityIndex.films(userId);
+        return getFilmsByIds(popularityIndex.top(count, id -> Arrays.binarySearch(liked, id) >= 0).stream()
+                .mapToInt(Integer::intValue).toArray());
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            return filmsByIds(searchIndex.search(query, limit, id -> {
+                int row = row(id);
+                return row < 0 ? 0 : likeCounts.getInt(row << 2);
+            }));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Duration> getTrendingWindows() {
+        return TrendingIndex.WINDOWS;
+    }
+
+    @Override
+    public List<Film> getTrendingFilms(Duration window, int count) {
+        return getFilmsByIds(trendingIndex.top(window, count).stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Override
+    public long getFilmVersion(int id) {
+        lock.readLock().lock();
+        try {
+            int row = row(id);
+            return row < 0 ? 0 : filmVersions.getLong(row << 3);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public int getFilmsCount() {
+        lock.readLock().lock();
+        try {
+            return filmsCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getTotalLikes() {
+        return totalLikes.sum();
+    }
+
+    /**
+     * Память вне кучи, выделенная под колонки и строки.
+     */
+    public long getOffHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return releaseDays.capacity() + durations.capacity() + likeCounts.capacity()
+                    + filmVersions.capacity() + names.capacity() + descriptions.capacity()
+                    + strings.allocatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(Film film) {
+        if (rows == capacity) {
+            grow(capacity * 2);
+        }
+        int row = rows++;
+        film.setId(row + 1);
+        write(row, film);
+        IntSet filmLikes = IntSet.copyOf(film.getLikes());
+        likes[row] = filmLikes.isEmpty() ? null : filmLikes;
+        filmLikes.forEach(userId -> indexLike(row + 1, userId));
+        popularityIndex.add(row + 1, 0);
+        updateLikesCount(row);
+        filmsCount++;
+        film.setVersion(publish(row));
+    }
+
+    private void write(int row, Film film) {
+        releaseDays.putLong(row << 3, film.getReleaseDate() == null ? NO_DATE : film.getReleaseDate().toEpochDay());
+        durations.putInt(row << 2, film.getDuration());
+        names.putLong(row << 3, strings.add(film.getName()));
+        descriptions.putLong(row << 3, strings.add(film.getDescription()));
+    }
+
+    /**
+     * Собирает фильм из колонок строки; множество лайков копируется под блокировкой строки.
+     */
+    private Film film(int row) {
+        Film film = new Film();
+        film.setId(row + 1);
+        film.setName(strings.get(names.getLong(row << 3)));
+        film.setDescription(strings.get(descriptions.getLong(row << 3)));
+        long releaseDay = releaseDays.getLong(row << 3);
+        film.setReleaseDate(releaseDay == NO_DATE ? null : LocalDate.ofEpochDay(releaseDay));
+        film.setDuration(durations.getInt(row << 2));
+        rowLocks.lock(row + 1);
+        try {
+            film.setLikes(likes[row]);
+        } finally {
+            rowLocks.unlock(row + 1);
+        }
+        film.setVersion(filmVersions.getLong(row << 3));
+        return film;
+    }
+
+    /**
+     * Фильмы по ключам отбора, в младших 32 битах которых лежит ID.
+     */
+    private List<Film> films(long[] keys) {
+        List<Film> result = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            result.add(film((int) key - 1));
+        }
+        return result;
+    }
+
+    private List<Film> filmsByIds(int[] ids) {
+        List<Film> result = new ArrayList<>(ids.length);
+        IntSet seen = new IntSet(ids.length);
+        for (int id : ids) {
+            int row = row(id);
+            if (row >= 0 && seen.add(id)) {
+                result.add(film(row));
+            }
+        }
+        return result;
+    }
+
+    private boolean addLikeLocked(int row, int userId, long likedAt) {
+        if (likes[row] == null) {
+            likes[row] = new IntSet();
+        }
+        if (!likes[row].add(userId)) {
+            return false;
+        }
+        indexLike(row + 1, userId);
+        trendingIndex.like(row + 1, likedAt);
+        updateLikesCount(row);
+        publish(row);
+        return true;
+    }
+
+    private boolean removeLikeLocked(int row, int userId) {
+        if (likes[row] == null || !likes[row].remove(userId)) {
+            return false;
+        }
+        unindexLike(row + 1, userId);
+        updateLikesCount(row);
+        publish(row);
+        return true;
+    }
+
+    /**
+     * Переносит размер множества лайков строки в колонку, счётчик и индекс популярности; вызывается
+     * под блокировкой строки или исключительной.
+     */
+    private void updateLikesCount(int row) {
+        int likesCount = likes[row] == null ? 0 : likes[row].size();
+        int oldLikesCount = likeCounts.getInt(row << 2);
+        totalLikes.add(likesCount - oldLikesCount);
+        likeCounts.putInt(row << 2, likesCount);
+        popularityIndex.update(row + 1, oldLikesCount, likesCount);
+    }
+
+    /**
+     * Назначает строке новую версию; версия 0 означает удалённый фильм.
+     */
+    private long publish(int row) {
+        long filmVersion = versions.incrementAndGet();
+        filmVersions.putLong(row << 3, filmVersion);
+        version.accumulateAndGet(filmVersion, Math::max);
+        return filmVersion;
+    }
+
+    private void indexLike(int filmId, int userId) {
+        similarityIndex.like(filmId, userId);
+    }
+
+    private void unindexLike(int filmId, int userId) {
+        similarityIndex.unlike(filmId, userId);
+    }
+
+    private boolean isLive(int row) {
+        return filmVersions.getLong(row << 3) != 0;
+    }
+
+    private int row(int id) {
+        return id > 0 && id <= rows && isLive(id - 1) ? id - 1 : -1;
+    }
+
+    private int existingRow(int id) {
+        int row = row(id);
+        if (row < 0) {
+            throw new IllegalArgumentException("Фильм с ID " + id + " не найден.");
+        }
+        return row;
+    }
+
+    /**
+     * Переносит колонки в буферы на newCapacity строк.
+     */
+    private void grow(int newCapacity) {
+        releaseDays = grow(releaseDays, newCapacity, Long.BYTES);
+        durations = grow(durations, newCapacity, Integer.BYTES);
+        likeCounts = grow(likeCounts, newCapacity, Integer.BYTES);
+        filmVersions = grow(filmVersions, newCapacity, Long.BYTES);
+        names = grow(names, newCapacity, Long.BYTES);
+        descriptions = grow(descriptions, newCapacity, Long.BYTES);
+        likes = likes == null ? new IntSet[newCapacity] : Arrays.copyOf(likes, newCapacity);
+        capacity = newCapacity;
+    }
+
+    private static ByteBuffer grow(ByteBuffer column, int capacity, int width) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, width)).order(ByteOrder.nativeOrder());
+        if (column != null) {
+            grown.put(0, column, 0, column.capacity());
+        }
+        return grown;
+    }
+
+    /**
+     * Переписывает живые строки в новую область, когда освобождённые занимают больше половины
+     * старой; старые буферы освобождает сборщик вместе с их владельцем.
+     */
+    private void compactStrings() {
+        if (strings.garbageBytes() < OffHeapStrings.CHUNK_SIZE || strings.garbageBytes() * 2 < strings.usedBytes()) {
+            return;
+        }
+        OffHeapStrings compacted = new OffHeapStrings();
+        for (int row = 0; row < rows; row++) {
+            if (isLive(row)) {
+                names.putLong(row << 3, compacted.add(strings.get(names.getLong(row << 3))));
+                descriptions.putLong(row << 3, compacted.add(strings.get(descriptions.getLong(row << 3))));
+            }
+        }
+        strings = compacted;
+    }
+
+    /**
+     * Границы фильтра в единицах колонок.
+     */
+    private record Bounds(boolean byReleaseDate, long releasedFrom, long releasedTo, int minDuration, int maxDuration) {
+        static Bounds of(FilmFilter filter) {
+            return new Bounds(filter.hasReleaseDateRange(),
+                    filter.releasedFrom() == null ? Long.MIN_VALUE : filter.releasedFrom().toEpochDay(),
+                    filter.releasedTo() == null ? Long.MAX_VALUE : filter.releasedTo().toEpochDay(),
+                    filter.minDuration() == null ? Integer.MIN_VALUE : filter.minDuration(),
+                    filter.maxDuration() == null ? Integer.MAX_VALUE : filter.maxDuration());
+        }
+
+        boolean matches(long releaseDay, int duration) {
+            if (byReleaseDate && (releaseDay == NO_DATE || releaseDay < releasedFrom || releaseDay > releasedTo)) {
+                return false;
+            }
+            return duration >= minDuration && duration <= maxDuration;
+        }
+    }
+}
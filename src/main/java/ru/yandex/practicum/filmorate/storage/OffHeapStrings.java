@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Строки вне кучи: UTF-8 с префиксом длины в прямых буферах по {@link #CHUNK_SIZE} байт. Строка
+ * адресуется одним long (номер буфера в старших 32 битах, смещение в младших), null — {@link #NULL}.
+ * Добавление только в конец; освобождённые строки учитываются как мусор, место возвращает
+ * пересборка хранилища. Не потокобезопасно: вызывается под блокировкой хранилища.
+ */
+final class OffHeapStrings {
+    static final long NULL = -1;
+    static final int CHUNK_SIZE = 1 << 20;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer current;
+    private long usedBytes;
+    private long garbageBytes;
+
+    long add(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Integer.BYTES + bytes.length;
+        ByteBuffer chunk;
+        if (length > CHUNK_SIZE) {
+            chunk = ByteBuffer.allocateDirect(length);
+            chunks.add(chunk);
+        } else {
+            if (current == null || current.remaining() < length) {
+                current = ByteBuffer.allocateDirect(CHUNK_SIZE);
+                chunks.add(current);
+            }
+            chunk = current;
+        }
+        int offset = chunk.position();
+        chunk.putInt(bytes.length).put(bytes);
+        usedBytes += length;
+        return ((long) (chunks.size() - 1) << 32) | offset;
+    }
+
+    String get(long reference) {
+        if (reference == NULL) {
+            return null;
+        }
+        ByteBuffer chunk = chunks.get((int) (reference >>> 32));
+        int offset = (int) reference;
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        chunk.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void release(long reference) {
+        if (reference != NULL) {
+            ByteBuffer chunk = chunks.get((int) (reference >>> 32));
+            garbageBytes += Integer.BYTES + chunk.getInt((int) reference);
+        }
+    }
+
+    /**
+     * Байты живых и освобождённых строк.
+     */
+    long usedBytes() {
+        return usedBytes;
+    }
+
+    long garbageBytes() {
+        return garbageBytes;
+    }
+
+    /**
+     * Память, выделенная под буферы, включая ещё не заполненный хвост.
+     */
+    long allocatedBytes() {
+        long allocated = 0;
+        for (ByteBuffer chunk : chunks) {
+            allocated += chunk.capacity();
+        }
+        return allocated;
+    }
+}
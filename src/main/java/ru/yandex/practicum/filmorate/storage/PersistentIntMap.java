@@ -0,0 +1,287 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Неизменяемое отображение неотрицательных int-ключей в значения: префиксное дерево по {@link #BITS}
+ * бит ключа на уровень с узлами, сжатыми битовой маской. Изменение копирует только путь от корня
+ * до ключа (не больше семи узлов), остальные узлы общие со старой версией, поэтому хранилище может
+ * публиковать новую версию после каждой записи, а читатель, взявший версию, видит согласованный
+ * снимок без блокировок и копий.
+ *
+ * <p>Обход идёт по возрастанию ключей, узлы хранят размеры поддеревьев, так что значения доступны
+ * и списком с доступом по номеру за O(log n).
+ */
+final class PersistentIntMap<V> {
+    static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final Node EMPTY_NODE = new Node(0, new Object[0], 0);
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(EMPTY_NODE, 0);
+
+    private final Node root;
+    private final int shift;
+
+    private PersistentIntMap(Node root, int shift) {
+        this.root = root;
+        this.shift = shift;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    int size() {
+        return root.size;
+    }
+
+    boolean isEmpty() {
+        return root.size == 0;
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        if (key < 0 || !fits(key, shift)) {
+            return null;
+        }
+        Node node = root;
+        for (int s = shift; ; s -= BITS) {
+            int bit = 1 << ((key >>> s) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (s == 0) {
+                return (V) child;
+            }
+            node = (Node) child;
+        }
+    }
+
+    /**
+     * Версия, в которой ключу соответствует value (не null).
+     */
+    PersistentIntMap<V> put(int key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Отрицательный ключ: " + key);
+        }
+        Node node = root;
+        int s = shift;
+        while (!fits(key, s)) {
+            node = node.size == 0 ? EMPTY_NODE : new Node(1, new Object[]{node}, node.size);
+            s += BITS;
+        }
+        return new PersistentIntMap<>(put(node, s, key, value), s);
+    }
+
+    /**
+     * Версия без ключа; если ключа нет, возвращается эта же версия.
+     */
+    PersistentIntMap<V> remove(int key) {
+        if (!containsKey(key)) {
+            return this;
+        }
+        Node node = remove(root, shift, key);
+        int s = shift;
+        while (s > 0 && node.bitmap == 1) {
+            node = (Node) node.children[0];
+            s -= BITS;
+        }
+        return node.size == 0 ? empty() : new PersistentIntMap<>(node, s);
+    }
+
+    /**
+     * Значения по возрастанию ключей, начиная с первого ключа не меньше fromKey.
+     */
+    Iterator<V> valuesFrom(int fromKey) {
+        return new ValueIterator(Math.max(0, fromKey));
+    }
+
+    /**
+     * Значения по возрастанию ключей как неизменяемый список поверх этой версии, без копирования.
+     */
+    List<V> values() {
+        return new Values();
+    }
+
+    private static boolean fits(int key, int shift) {
+        return shift + BITS >= Integer.SIZE - 1 || key >>> (shift + BITS) == 0;
+    }
+
+    private static Node put(Node node, int s, int key, Object value) {
+        int bit = 1 << ((key >>> s) & MASK);
+        int position = Integer.bitCount(node.bitmap & (bit - 1));
+        boolean present = (node.bitmap & bit) != 0;
+        if (s == 0) {
+            return present
+                    ? node.with(position, value, 0)
+                    : node.inserted(bit, position, value, 1);
+        }
+        if (present) {
+            Node child = (Node) node.children[position];
+            Node newChild = put(child, s - BITS, key, value);
+            return node.with(position, newChild, newChild.size - child.size);
+        }
+        Node newChild = put(EMPTY_NODE, s - BITS, key, value);
+        return node.inserted(bit, position, newChild, newChild.size);
+    }
+
+    private static Node remove(Node node, int s, int key) {
+        int bit = 1 << ((key >>> s) & MASK);
+        int position = Integer.bitCount(node.bitmap & (bit - 1));
+        if (s > 0) {
+            Node child = (Node) node.children[position];
+            Node newChild = remove(child, s - BITS, key);
+            if (newChild.size > 0) {
+                return node.with(position, newChild, -1);
+            }
+        }
+        return node.removed(bit, position);
+    }
+
+    /**
+     * Узел дерева. На нижнем уровне дети — значения, выше — узлы; size — число значений в поддереве.
+     */
+    private static final class Node {
+        final int bitmap;
+        final Object[] children;
+        final int size;
+
+        Node(int bitmap, Object[] children, int size) {
+            this.bitmap = bitmap;
+            this.children = children;
+            this.size = size;
+        }
+
+        Node with(int position, Object child, int sizeDelta) {
+            Object[] copy = children.clone();
+            copy[position] = child;
+            return new Node(bitmap, copy, size + sizeDelta);
+        }
+
+        Node inserted(int bit, int position, Object child, int sizeDelta) {
+            Object[] copy = new Object[children.length + 1];
+            System.arraycopy(children, 0, copy, 0, position);
+            copy[position] = child;
+            System.arraycopy(children, position, copy, position + 1, children.length - position);
+            return new Node(bitmap | bit, copy, size + sizeDelta);
+        }
+
+        Node removed(int bit, int position) {
+            Object[] copy = new Object[children.length - 1];
+            System.arraycopy(children, 0, copy, 0, position);
+            System.arraycopy(children, position + 1, copy, position, copy.length - position);
+            return new Node(bitmap & ~bit, copy, size - 1);
+        }
+    }
+
+    /**
+     * Обход по возрастанию ключей: стек узлов от корня до нижнего уровня и позиции в каждом из них.
+     */
+    private final class ValueIterator implements Iterator<V> {
+        private final int leaf = shift / BITS;
+        private final Node[] nodes = new Node[leaf + 1];
+        private final int[] positions = new int[leaf + 1];
+        private boolean done;
+
+        ValueIterator(int fromKey) {
+            if (root.size == 0 || !fits(fromKey, shift)) {
+                done = true;
+                return;
+            }
+            Node node = root;
+            for (int level = 0; ; level++) {
+                int bit = 1 << ((fromKey >>> (shift - level * BITS)) & MASK);
+                nodes[level] = node;
+                positions[level] = Integer.bitCount(node.bitmap & (bit - 1));
+                if ((node.bitmap & bit) == 0) {
+                    settle(level);
+                    return;
+                }
+                if (level == leaf) {
+                    return;
+                }
+                node = (Node) node.children[positions[level]];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !done;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (done) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) nodes[leaf].children[positions[leaf]];
+            positions[leaf]++;
+            settle(leaf);
+            return value;
+        }
+
+        /**
+         * Доводит стек до следующего значения: поднимается, пока позиция на уровне вышла за конец
+         * узла, затем спускается по самым левым детям.
+         */
+        private void settle(int level) {
+            while (positions[level] == nodes[level].children.length) {
+                if (level == 0) {
+                    done = true;
+                    return;
+                }
+                level--;
+                positions[level]++;
+            }
+            for (; level < leaf; level++) {
+                nodes[level + 1] = (Node) nodes[level].children[positions[level]];
+                positions[level + 1] = 0;
+            }
+        }
+    }
+
+    private final class Values extends AbstractList<V> implements RandomAccess {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(int index) {
+            if (index < 0 || index >= root.size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            Node node = root;
+            for (int s = shift; ; s -= BITS) {
+                for (Object child : node.children) {
+                    int childSize = s == 0 ? 1 : ((Node) child).size;
+                    if (index < childSize) {
+                        if (s == 0) {
+                            return (V) child;
+                        }
+                        node = (Node) child;
+                        break;
+                    }
+                    index -= childSize;
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return root.size;
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator(0);
+        }
+    }
+}
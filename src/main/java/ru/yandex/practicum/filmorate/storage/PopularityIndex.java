@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+/**
+ * Индекс популярности фильмов: упорядочен по числу лайков (по убыванию), затем по ID (по возрастанию).
+ * Запрос топ-K читает только K первых записей. Размер множества с пропуском считается обходом,
+ * поэтому число записей ведётся отдельным счётчиком.
+ */
+class PopularityIndex {
+    private final NavigableSet<Long> entries = new ConcurrentSkipListSet<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    void add(int filmId, int likesCount) {
+        if (entries.add(key(filmId, likesCount))) {
+            size.incrementAndGet();
+        }
+    }
+
+    void remove(int filmId, int likesCount) {
+        if (entries.remove(key(filmId, likesCount))) {
+            size.decrementAndGet();
+        }
+    }
+
+    void update(int filmId, int oldLikesCount, int newLikesCount) {
+        if (oldLikesCount == newLikesCount) {
+            return;
+        }
+        remove(filmId, oldLikesCount);
+        add(filmId, newLikesCount);
+    }
+
+    List<Integer> top(int count) {
+        return top(count, filmId -> false);
+    }
+
+    /**
+     * Первые count фильмов, для которых skip ложно. Пропущенные записи в count не входят, поэтому
+     * обход читает не больше count записей сверх числа пропущенных.
+     */
+    List<Integer> top(int count, IntPredicate skip) {
+        List<Integer> result = new ArrayList<>(Math.max(0, Math.min(count, 1024)));
+        Iterator<Long> iterator = entries.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            int filmId = filmId(iterator.next());
+            if (!skip.test(filmId)) {
+                result.add(filmId);
+            }
+        }
+        return result;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    private static long key(int filmId, int likesCount) {
+        return ((long) (Integer.MAX_VALUE - likesCount) << 32) | (filmId & 0xFFFFFFFFL);
+    }
+
+    private static int filmId(long key) {
+        return (int) key;
+    }
+}
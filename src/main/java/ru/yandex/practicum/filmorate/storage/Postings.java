@@ -0,0 +1,298 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/**
+ * Список вхождений терма: пары (ID фильма, частота) по возрастанию ID.
+ *
+ * <p>Основная часть сжата: разности соседних ID и частоты записаны в varint блоками по {@link #BLOCK}
+ * записей, первая запись блока хранит ID целиком. По таблице первых ID блоков курсор пропускает
+ * целые блоки. Свежие изменения копятся в несжатом буфере (частота 0 — удаление) и сливаются
+ * с основной частью, когда буфер длиннее порядка sqrt(размера): так копирование буфера и редкие
+ * перекодирования основной части дают сопоставимую амортизированную цену. Объект неизменяем:
+ * изменение возвращает новую версию, поэтому чтение не требует блокировок.
+ */
+final class Postings {
+    static final int BLOCK = 128;
+    static final Postings EMPTY = new Postings(new byte[0], new int[0], new int[0], new int[0], 0,
+            new int[0], new int[0], 0);
+    private static final int MIN_PENDING = 32;
+    private static final int PENDING_FACTOR = 8;
+
+    private final byte[] data;
+    private final int[] blockIds;
+    private final int[] blockOffsets;
+    private final int[] blockMaxTfs;
+    private final int baseSize;
+    private final int[] pendingIds;
+    private final int[] pendingTfs;
+    private final int pendingMaxTf;
+    private final int maxTf;
+    private final int size;
+
+    private Postings(byte[] data, int[] blockIds, int[] blockOffsets, int[] blockMaxTfs, int baseSize,
+                     int[] pendingIds, int[] pendingTfs, int size) {
+        this.data = data;
+        this.blockIds = blockIds;
+        this.blockOffsets = blockOffsets;
+        this.blockMaxTfs = blockMaxTfs;
+        this.baseSize = baseSize;
+        this.pendingIds = pendingIds;
+        this.pendingTfs = pendingTfs;
+        this.size = size;
+        pendingMaxTf = Arrays.stream(pendingTfs).max().orElse(0);
+        maxTf = Math.max(pendingMaxTf, Arrays.stream(blockMaxTfs).max().orElse(0));
+    }
+
+    /**
+     * Версия списка, в которой фильм имеет частоту tf; tf = 0 удаляет фильм. Возвращает null,
+     * если список стал пустым.
+     */
+    Postings with(int filmId, int tf) {
+        return withAll(new int[]{filmId}, new int[]{tf}, 1);
+    }
+
+    /**
+     * То же для нескольких фильмов сразу: ids[0..count) строго по возрастанию. Изменения сливаются
+     * с буфером за один проход, поэтому пачку выгоднее применять целиком, чем по одному фильму.
+     */
+    Postings withAll(int[] ids, int[] tfs, int count) {
+        int[] mergedIds = new int[pendingIds.length + count];
+        int[] mergedTfs = new int[mergedIds.length];
+        Cursor base = new Cursor();
+        int newSize = size;
+        int merged = 0;
+        int p = 0;
+        for (int i = 0; i < count; i++) {
+            int filmId = ids[i];
+            while (p < pendingIds.length && pendingIds[p] < filmId) {
+                mergedIds[merged] = pendingIds[p];
+                mergedTfs[merged++] = pendingTfs[p++];
+            }
+            boolean pending = p < pendingIds.length && pendingIds[p] == filmId;
+            boolean present;
+            if (pending) {
+                present = pendingTfs[p++] > 0;
+            } else {
+                present = base.seekBase(filmId) && base.baseId == filmId;
+            }
+            if (pending || present || tfs[i] > 0) {
+                mergedIds[merged] = filmId;
+                mergedTfs[merged++] = tfs[i];
+                newSize += (tfs[i] > 0 ? 1 : 0) - (present ? 1 : 0);
+            }
+        }
+        if (newSize == 0) {
+            return null;
+        }
+        int rest = pendingIds.length - p;
+        System.arraycopy(pendingIds, p, mergedIds, merged, rest);
+        System.arraycopy(pendingTfs, p, mergedTfs, merged, rest);
+        merged += rest;
+        Postings result = new Postings(data, blockIds, blockOffsets, blockMaxTfs, baseSize,
+                Arrays.copyOf(mergedIds, merged), Arrays.copyOf(mergedTfs, merged), newSize);
+        return merged > MIN_PENDING + PENDING_FACTOR * (int) Math.sqrt(baseSize) ? result.compact() : result;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Верхняя граница частоты по всему списку.
+     */
+    int maxTf() {
+        return maxTf;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    private Postings compact() {
+        Encoder encoder = new Encoder(size);
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            encoder.add(cursor.id(), cursor.tf());
+        }
+        return encoder.build();
+    }
+
+    /**
+     * Обход объединения сжатой части и буфера изменений по возрастанию ID.
+     */
+    final class Cursor {
+        private int block = -1;
+        private int offset;
+        private int leftInBlock;
+        private boolean baseDone = baseSize == 0;
+        private int baseId;
+        private int baseTf;
+        private int pendingIndex;
+        private int id = -1;
+        private int tf;
+
+        int id() {
+            return id;
+        }
+
+        int tf() {
+            return tf;
+        }
+
+        boolean next() {
+            return advanceTo(id + 1);
+        }
+
+        /**
+         * Последний ID, который может встретиться до конца текущего сжатого блока.
+         */
+        int blockEnd() {
+            if (baseDone || block + 1 >= blockIds.length) {
+                return Integer.MAX_VALUE;
+            }
+            return blockIds[block + 1] - 1;
+        }
+
+        /**
+         * Верхняя граница частоты для записей от текущей позиции до {@link #blockEnd()}.
+         */
+        int blockMaxTf() {
+            return Math.max(pendingMaxTf, baseDone ? 0 : blockMaxTfs[block]);
+        }
+
+        /**
+         * Переходит к первому фильму с ID не меньше target. Возвращает false, если таких нет.
+         */
+        boolean advanceTo(int target) {
+            while (true) {
+                boolean hasBase = seekBase(target);
+                while (pendingIndex < pendingIds.length && pendingIds[pendingIndex] < target) {
+                    pendingIndex++;
+                }
+                boolean hasPending = pendingIndex < pendingIds.length;
+                if (!hasBase && !hasPending) {
+                    return false;
+                }
+                if (hasPending && (!hasBase || pendingIds[pendingIndex] <= baseId)) {
+                    int pendingId = pendingIds[pendingIndex];
+                    if (pendingTfs[pendingIndex] > 0) {
+                        id = pendingId;
+                        tf = pendingTfs[pendingIndex];
+                        return true;
+                    }
+                    target = pendingId + 1;
+                } else {
+                    id = baseId;
+                    tf = baseTf;
+                    return true;
+                }
+            }
+        }
+
+        private boolean seekBase(int target) {
+            if (baseDone) {
+                return false;
+            }
+            if (block >= 0 && baseId >= target) {
+                return true;
+            }
+            if (block < 0 || block + 1 < blockIds.length && blockIds[block + 1] <= target) {
+                int found = Arrays.binarySearch(blockIds, block + 1, blockIds.length, target);
+                loadBlock(found >= 0 ? found : Math.max(0, -found - 2));
+            }
+            while (baseId < target) {
+                if (!step()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void loadBlock(int index) {
+            block = index;
+            offset = blockOffsets[index];
+            leftInBlock = Math.min(BLOCK, baseSize - index * BLOCK) - 1;
+            baseId = readVarint();
+            baseTf = readVarint();
+        }
+
+        private boolean step() {
+            if (leftInBlock > 0) {
+                leftInBlock--;
+                baseId += readVarint();
+                baseTf = readVarint();
+                return true;
+            }
+            if (block + 1 < blockIds.length) {
+                loadBlock(block + 1);
+                return true;
+            }
+            baseDone = true;
+            return false;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * Кодирует записи, поданные по возрастанию ID, в новую сжатую версию без буфера изменений.
+     */
+    private static final class Encoder {
+        private byte[] data;
+        private final int[] blockIds;
+        private final int[] blockOffsets;
+        private final int[] blockMaxTfs;
+        private int length;
+        private int count;
+        private int previousId;
+
+        Encoder(int size) {
+            data = new byte[Math.max(16, size * 3)];
+            int blocks = (size + BLOCK - 1) / BLOCK;
+            blockIds = new int[blocks];
+            blockOffsets = new int[blocks];
+            blockMaxTfs = new int[blocks];
+        }
+
+        void add(int id, int tf) {
+            if (count % BLOCK == 0) {
+                blockIds[count / BLOCK] = id;
+                blockOffsets[count / BLOCK] = length;
+                writeVarint(id);
+            } else {
+                writeVarint(id - previousId);
+            }
+            writeVarint(tf);
+            blockMaxTfs[count / BLOCK] = Math.max(blockMaxTfs[count / BLOCK], tf);
+            previousId = id;
+            count++;
+        }
+
+        Postings build() {
+            return new Postings(Arrays.copyOf(data, length), blockIds, blockOffsets, blockMaxTfs, count,
+                    new int[0], new int[0], count);
+        }
+
+        private void writeVarint(int value) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+}
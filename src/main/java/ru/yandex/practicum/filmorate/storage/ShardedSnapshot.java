@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ToIntFunction;
+
+/**
+ * Опубликованные сущности хранилища, разбитые на {@link #SHARDS} шардов по младшим битам ID. Каждый
+ * шард — неизменяемое отображение {@link PersistentIntMap}, которое запись заменяет своим CAS, поэтому
+ * записи разных сущностей почти не конкурируют за один корень, а чтение берёт шард одним чтением
+ * ссылки. Соседние ID попадают в разные шарды, так что и последовательные добавления не сталкиваются.
+ *
+ * <p>Чтение одной сущности видит согласованную версию её шарда. Обход всех сущностей собирает шарды
+ * по очереди, поэтому изменения, опубликованные во время обхода, могут попасть в него частично;
+ * изменения, опубликованные до начала обхода, видны все. Номер последнего изменения хранится отдельно
+ * и растёт после публикации: читатель, увидевший номер, видит и изменение с этим номером.
+ */
+final class ShardedSnapshot<T> {
+    static final int SHARD_BITS = 6;
+    static final int SHARDS = 1 << SHARD_BITS;
+    private static final int SHARD_MASK = SHARDS - 1;
+
+    private final AtomicReferenceArray<PersistentIntMap<T>> shards = new AtomicReferenceArray<>(SHARDS);
+    private final AtomicLong version;
+    private final ToIntFunction<T> idOf;
+
+    ShardedSnapshot(long version, ToIntFunction<T> idOf) {
+        this.version = new AtomicLong(version);
+        this.idOf = idOf;
+        for (int i = 0; i < SHARDS; i++) {
+            shards.set(i, PersistentIntMap.empty());
+        }
+    }
+
+    T get(int id) {
+        return id < 0 ? null : shards.get(id & SHARD_MASK).get(id >>> SHARD_BITS);
+    }
+
+    boolean containsKey(int id) {
+        return get(id) != null;
+    }
+
+    void put(int id, T entity, long changeVersion) {
+        shards.updateAndGet(id & SHARD_MASK, shard -> shard.put(id >>> SHARD_BITS, entity));
+        version.accumulateAndGet(changeVersion, Math::max);
+    }
+
+    void remove(int id, long changeVersion) {
+        shards.updateAndGet(id & SHARD_MASK, shard -> shard.remove(id >>> SHARD_BITS));
+        version.accumulateAndGet(changeVersion, Math::max);
+    }
+
+    long version() {
+        return version.get();
+    }
+
+    int size() {
+        int size = 0;
+        for (int i = 0; i < SHARDS; i++) {
+            size += shards.get(i).size();
+        }
+        return size;
+    }
+
+    /**
+     * Все сущности по возрастанию ID, копией.
+     */
+    List<T> values() {
+        List<T> result = new ArrayList<>(size());
+        valuesFrom(0).forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     * Сущности по возрастанию ID, начиная с первого ID не меньше fromId: слияние обходов шардов.
+     */
+    Iterator<T> valuesFrom(int fromId) {
+        int from = Math.max(0, fromId);
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(SHARDS, Comparator.comparingInt(Head::id));
+        for (int i = 0; i < SHARDS; i++) {
+            int fromKey = (from >>> SHARD_BITS) + (i < (from & SHARD_MASK) ? 1 : 0);
+            Iterator<T> values = shards.get(i).valuesFrom(fromKey);
+            if (values.hasNext()) {
+                T value = values.next();
+                heads.add(new Head<>(idOf.applyAsInt(value), value, values));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                Head<T> head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                if (head.rest().hasNext()) {
+                    T value = head.rest().next();
+                    heads.add(new Head<>(idOf.applyAsInt(value), value, head.rest()));
+                }
+                return head.value();
+            }
+        };
+    }
+
+    private record Head<T>(int id, T value, Iterator<T> rest) {
+    }
+}
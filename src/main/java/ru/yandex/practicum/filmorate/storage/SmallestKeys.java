@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/**
+ * Отбор limit наименьших long-ключей из потока через max-кучу. Массив кучи растёт по мере
+ * заполнения, поэтому большой limit не выделяет память заранее.
+ */
+final class SmallestKeys {
+    private final int limit;
+    private long[] heap;
+    private int size;
+
+    SmallestKeys(int limit) {
+        this.limit = Math.max(0, limit);
+        this.heap = new long[Math.min(this.limit, 1024)];
+    }
+
+    void offer(long key) {
+        if (size < limit) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, (int) Math.min(limit, heap.length * 2L));
+            }
+            heap[size] = key;
+            siftUp(size++);
+        } else if (size > 0 && key < heap[0]) {
+            heap[0] = key;
+            siftDown();
+        }
+    }
+
+    /**
+     * Отобранные ключи по возрастанию.
+     */
+    long[] sorted() {
+        long[] result = Arrays.copyOf(heap, size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= heap[index]) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown() {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] > heap[largest]) {
+                largest = left;
+            }
+            if (right < size && heap[right] > heap[largest]) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void swap(int first, int second) {
+        long tmp = heap[first];
+        heap[first] = heap[second];
+        heap[second] = tmp;
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновая проверка согласованности хранилищ: лайки и дружба удалённых пользователей, обратный
+ * индекс лайков и списки друзей против графа. Найденные расхождения исправляются и считаются
+ * в метрике filmorate.storage.repairs. Каскадное удаление поддерживает согласованность само,
+ * проверка подчищает гонки с очередью лайков и последствия остановки посреди каскада.
+ */
+@Component
+@Profile("!jdbc & !offheap")
+public class StorageConsistencyChecker {
+    private static final Logger log = LoggerFactory.getLogger(StorageConsistencyChecker.class);
+
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final Duration checkInterval;
+    private final Counter likeRepairs;
+    private final Counter friendshipRepairs;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-consistency");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StorageConsistencyChecker(InMemoryFilmStorage filmStorage,
+                                     InMemoryUserStorage userStorage,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${filmorate.consistency.check-interval:1h}") Duration checkInterval) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.checkInterval = checkInterval;
+        this.likeRepairs = repairCounter(meterRegistry, "likes");
+        this.friendshipRepairs = repairCounter(meterRegistry, "friendships");
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = checkInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Проверяет хранилища и исправляет расхождения. Возвращает их число.
+     */
+    public int check() {
+        int friendships = userStorage.repairFriendships();
+        int likes = filmStorage.repairLikes(userStorage::userExists);
+        friendshipRepairs.increment(friendships);
+        likeRepairs.increment(likes);
+        if (friendships + likes > 0) {
+            log.warn("Исправлены расхождения хранилищ: дружба {}, лайки {}", friendships, likes);
+        }
+        return friendships + likes;
+    }
+
+    private void checkSafely() {
+        try {
+            check();
+        } catch (RuntimeException e) {
+            log.error("Не удалось проверить согласованность хранилищ: {}", e.getMessage());
+        }
+    }
+
+    private static Counter repairCounter(MeterRegistry meterRegistry, String kind) {
+        return Counter.builder("filmorate.storage.repairs")
+                .description("Расхождения хранилищ, исправленные фоновой проверкой")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+}
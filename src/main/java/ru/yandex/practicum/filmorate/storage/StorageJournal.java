@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Журнал изменений хранилища. Запись добавляется под блокировкой изменяемой сущности,
+ * а ожидание её сохранения на диск выполняется уже после снятия блокировки.
+ */
+public interface StorageJournal {
+
+    StorageJournal NONE = new StorageJournal() {
+        @Override
+        public long append(JournalRecord record) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long sequence) {
+        }
+    };
+
+    long append(JournalRecord record);
+
+    void awaitDurable(long sequence);
+}
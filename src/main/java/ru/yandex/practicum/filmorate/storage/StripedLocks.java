@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор блокировок, распределённых по ID сущностей: изменения разных фильмов и пользователей
+ * не конкурируют за одну глобальную блокировку.
+ */
+class StripedLocks {
+    private final ReentrantLock[] stripes;
+
+    StripedLocks(int concurrencyLevel) {
+        int size = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    StripedLocks() {
+        this(Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    void lock(int id) {
+        stripes[index(id)].lock();
+    }
+
+    void unlock(int id) {
+        stripes[index(id)].unlock();
+    }
+
+    void lockPair(int firstId, int secondId) {
+        int first = index(firstId);
+        int second = index(secondId);
+        stripes[Math.min(first, second)].lock();
+        if (first != second) {
+            stripes[Math.max(first, second)].lock();
+        }
+    }
+
+    void unlockPair(int firstId, int secondId) {
+        int first = index(firstId);
+        int second = index(secondId);
+        if (first != second) {
+            stripes[Math.max(first, second)].unlock();
+        }
+        stripes[Math.min(first, second)].unlock();
+    }
+
+    private int index(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,270 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Трендовые фильмы: лайки за скользящее окно с экспоненциальным затуханием.
+ *
+ * <p>Время делится на корзины по {@link #BUCKET}. Для фильма, лайкнутого за последние {@link #BUCKETS}
+ * корзин (7 дней), хранится кольцо счётчиков фиксированного размера. В каждом окне из {@link #WINDOWS}
+ * вес лайка уменьшается вдвое за половину окна, лайки старше окна не учитываются.
+ *
+ * <p>Счёт хранится в масштабе базовой корзины: лайк в корзине e весит 2^((e - base) / halfLife).
+ * Затухание — общий для всех фильмов множитель, на порядок он не влияет, поэтому при сдвиге корзины
+ * из счёта вычитаются только выпавшие из окна корзины. Топ каждого окна хранится в упорядоченном
+ * множестве и обновляется при каждом изменении счёта.
+ */
+class TrendingIndex {
+    static final Duration BUCKET = Duration.ofMinutes(15);
+    static final int BUCKETS = 7 * 24 * 4;
+    static final List<Duration> WINDOWS = List.of(Duration.ofHours(1), Duration.ofHours(24), Duration.ofDays(7));
+    private static final double MAX_EXPONENT = 512;
+    private static final Comparator<Entry> BY_SCORE = Comparator.comparingDouble(Entry::score).reversed()
+            .thenComparingInt(Entry::filmId);
+
+    private final Clock clock;
+    private final long bucketMillis = BUCKET.toMillis();
+    private final int[] windowBuckets = new int[WINDOWS.size()];
+    private final double[] halfLives = new double[WINDOWS.size()];
+    private final List<NavigableSet<Entry>> rankings = new ArrayList<>(WINDOWS.size());
+    private final Map<Integer, Trend> trends = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock rollLock = new ReentrantReadWriteLock();
+    private volatile long epoch;
+    private long base;
+
+    TrendingIndex(Clock clock) {
+        this.clock = clock;
+        for (int w = 0; w < WINDOWS.size(); w++) {
+            windowBuckets[w] = (int) (WINDOWS.get(w).toMillis() / bucketMillis);
+            halfLives[w] = windowBuckets[w] / 2.0;
+            rankings.add(new ConcurrentSkipListSet<>(BY_SCORE));
+        }
+        epoch = bucketOf(clock.millis());
+        base = epoch;
+    }
+
+    /**
+     * Учитывает лайк, поставленный в момент likedAt (мс от эпохи). Лайки из будущего считаются
+     * текущими, лайки старше самого длинного окна игнорируются.
+     */
+    void like(int filmId, long likedAt) {
+        advance();
+        rollLock.readLock().lock();
+        try {
+            long now = epoch;
+            long bucket = Math.min(bucketOf(likedAt), now);
+            long age = now - bucket;
+            if (age >= BUCKETS) {
+                return;
+            }
+            Trend trend = trends.computeIfAbsent(filmId, id -> new Trend());
+            trend.lock.lock();
+            try {
+                trend.counts[slot(bucket)]++;
+                trend.total++;
+                for (int w = 0; w < windowBuckets.length; w++) {
+                    if (age < windowBuckets[w]) {
+                        trend.windowLikes[w]++;
+                        changeScore(w, filmId, trend, weight(w, bucket));
+                    }
+                }
+            } finally {
+                trend.lock.unlock();
+            }
+        } finally {
+            rollLock.readLock().unlock();
+        }
+    }
+
+    void remove(int filmId) {
+        rollLock.readLock().lock();
+        try {
+            Trend trend = trends.remove(filmId);
+            if (trend != null) {
+                trend.lock.lock();
+                try {
+                    for (int w = 0; w < windowBuckets.length; w++) {
+                        rankings.get(w).remove(new Entry(trend.scores[w], filmId));
+                    }
+                } finally {
+                    trend.lock.unlock();
+                }
+            }
+        } finally {
+            rollLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * ID фильмов с наибольшим счётом в окне, по убыванию счёта, затем по возрастанию ID. Читается
+     * под блокировкой сдвига, чтобы не застать рейтинг посреди очистки или пересчёта базы.
+     */
+    List<Integer> top(Duration window, int count) {
+        int w = windowIndex(window);
+        advance();
+        rollLock.readLock().lock();
+        try {
+            List<Integer> result = new ArrayList<>(Math.min(count, 1024));
+            Iterator<Entry> iterator = rankings.get(w).iterator();
+            while (result.size() < count && iterator.hasNext()) {
+                result.add(iterator.next().filmId());
+            }
+            return result;
+        } finally {
+            rollLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Текущий счёт фильма в окне: сумма весов лайков с учётом затухания.
+     */
+    double score(Duration window, int filmId) {
+        int w = windowIndex(window);
+        advance();
+        rollLock.readLock().lock();
+        try {
+            Trend trend = trends.get(filmId);
+            if (trend == null) {
+                return 0;
+            }
+            trend.lock.lock();
+            try {
+                return trend.scores[w] * Math.pow(2, (base - epoch) / halfLives[w]);
+            } finally {
+                trend.lock.unlock();
+            }
+        } finally {
+            rollLock.readLock().unlock();
+        }
+    }
+
+    int activeFilms() {
+        return trends.size();
+    }
+
+    /**
+     * Сдвигает кольца до текущей корзины: вычитает выпавшие из окон корзины и освобождает фильмы
+     * без лайков за неделю. Вызывается фоновой задачей и лениво перед каждой операцией.
+     */
+    void advance() {
+        long now = bucketOf(clock.millis());
+        if (now <= epoch) {
+            return;
+        }
+        rollLock.writeLock().lock();
+        try {
+            if (now - epoch >= BUCKETS) {
+                trends.clear();
+                rankings.forEach(NavigableSet::clear);
+                base = now;
+                epoch = now;
+                return;
+            }
+            while (epoch < now) {
+                roll(epoch + 1);
+                epoch = epoch + 1;
+            }
+            if ((epoch - base) / halfLives[0] > MAX_EXPONENT) {
+                rebase(epoch);
+            }
+        } finally {
+            rollLock.writeLock().unlock();
+        }
+    }
+
+    private void roll(long next) {
+        int freedSlot = slot(next);
+        Iterator<Map.Entry<Integer, Trend>> iterator = trends.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Trend> entry = iterator.next();
+            int filmId = entry.getKey();
+            Trend trend = entry.getValue();
+            for (int w = 0; w < windowBuckets.length; w++) {
+                long expired = next - windowBuckets[w];
+                int count = trend.counts[slot(expired)];
+                if (count > 0) {
+                    trend.windowLikes[w] -= count;
+                    changeScore(w, filmId, trend, -count * weight(w, expired));
+                }
+            }
+            trend.total -= trend.counts[freedSlot];
+            trend.counts[freedSlot] = 0;
+            if (trend.total == 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void rebase(long newBase) {
+        double[] factors = new double[halfLives.length];
+        for (int w = 0; w < halfLives.length; w++) {
+            factors[w] = Math.pow(2, (base - newBase) / halfLives[w]);
+            rankings.get(w).clear();
+        }
+        trends.forEach((filmId, trend) -> {
+            for (int w = 0; w < factors.length; w++) {
+                trend.scores[w] *= factors[w];
+                if (trend.windowLikes[w] > 0) {
+                    rankings.get(w).add(new Entry(trend.scores[w], filmId));
+                }
+            }
+        });
+        base = newBase;
+    }
+
+    private void changeScore(int w, int filmId, Trend trend, double delta) {
+        NavigableSet<Entry> ranking = rankings.get(w);
+        ranking.remove(new Entry(trend.scores[w], filmId));
+        if (trend.windowLikes[w] > 0) {
+            trend.scores[w] += delta;
+            ranking.add(new Entry(trend.scores[w], filmId));
+        } else {
+            trend.scores[w] = 0;
+        }
+    }
+
+    private double weight(int w, long bucket) {
+        return Math.pow(2, (bucket - base) / halfLives[w]);
+    }
+
+    private int windowIndex(Duration window) {
+        int w = WINDOWS.indexOf(window);
+        if (w < 0) {
+            throw new IllegalArgumentException("Неподдерживаемое окно трендов: " + window);
+        }
+        return w;
+    }
+
+    private long bucketOf(long millis) {
+        return Math.floorDiv(millis, bucketMillis);
+    }
+
+    private static int slot(long bucket) {
+        return (int) Math.floorMod(bucket, BUCKETS);
+    }
+
+    private record Entry(double score, int filmId) {
+    }
+
+    /**
+     * Кольцо счётчиков лайков одного фильма и его счета по окнам.
+     */
+    private static final class Trend {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int[] counts = new int[BUCKETS];
+        private final int[] windowLikes = new int[WINDOWS.size()];
+        private final double[] scores = new double[WINDOWS.size()];
+        private int total;
+    }
+}
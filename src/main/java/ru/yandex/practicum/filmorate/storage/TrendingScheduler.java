@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновый сдвиг окон трендов, чтобы выпадение старых корзин не выполнялось в потоке запроса.
+ */
+@Component
+@Profile("!jdbc & !offheap")
+public class TrendingScheduler {
+    private static final Logger log = LoggerFactory.getLogger(TrendingScheduler.class);
+
+    private final InMemoryFilmStorage filmStorage;
+    private final Duration rollInterval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "trending-roll");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TrendingScheduler(InMemoryFilmStorage filmStorage,
+                             @Value("${filmorate.trending.roll-interval:1m}") Duration rollInterval) {
+        this.filmStorage = filmStorage;
+        this.rollInterval = rollInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = rollInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::rollSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void rollSafely() {
+        try {
+            filmStorage.rollTrending();
+        } catch (RuntimeException e) {
+            log.error("Не удалось сдвинуть окна трендов: {}", e.getMessage());
+        }
+    }
+}
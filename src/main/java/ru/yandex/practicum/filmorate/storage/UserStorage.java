@@ -3,23 +3,51 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
-import java.util.Set;
 
 public interface UserStorage {
 
     User addUser(User user);
 
+    List<User> addUsers(List<User> users);
+
     User updateUser(User user);
 
+    /**
+     * Удаляет пользователя вместе с его дружбой: он пропадает из списков друзей всех своих друзей.
+     */
     void deleteUser(int id);
 
     List<User> getAllUsers();
 
+    List<User> getUsersPage(int afterId, int limit);
+
     User getUserById(int id);
 
-    List<User> getUsersByIds(Set<Long> ids);
+    List<User> getUsersByIds(int[] ids);
+
+    List<User> getFriends(int userId);
+
+    List<User> getCommonFriends(int userId, int otherUserId);
+
+    List<User> getFriendRecommendations(int userId, int limit);
+
+    /**
+     * ID рекомендованных пользователей в порядке {@link #getFriendRecommendations}.
+     */
+    int[] getFriendRecommendationIds(int userId, int limit);
+
+    boolean userExists(int userId);
+
+    void addFriend(int userId, int friendId);
+
+    void removeFriend(int userId, int friendId);
+
+    /**
+     * Версия списка друзей пользователя для условных запросов; 0, если пользователя нет.
+     */
+    long getFriendsVersion(int userId);
 
-    List<User> getCommonFriends(Set<Long> userFriends, Set<Long> otherUserFriends);
+    int getUsersCount();
 
-    boolean userExists(Long userId);
+    long getFriendshipsCount();
 }
@@ -0,0 +1,324 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Двоичный формат снимка хранилищ.
+ *
+ * <pre>
+ * Заголовок (32 байта): magic, версия, число фильмов, число пользователей,
+ *                       длина тела, CRC32C тела, CRC32C заголовка.
+ * Тело: сначала все фильмы, затем все пользователи.
+ * Фильм: id, дата релиза (эпохальный день), продолжительность, название, описание, лайки.
+ * Пользователь: id, дата рождения, email, логин, имя, друзья.
+ * Строка: длина в байтах UTF-8 (-1 для null) и байты. Список ID: количество и значения int.
+ * </pre>
+ *
+ * Чтение идёт последовательно по отображённому в память файлу окнами по 256 МБ.
+ */
+public final class BinarySnapshot {
+    static final int MAGIC = 0x464D534E;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int WINDOW_SIZE = 256 * 1024 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+    private BinarySnapshot() {
+    }
+
+    public static Writer write(Path file) throws IOException {
+        return new Writer(file);
+    }
+
+    /**
+     * Проверяет заголовок и контрольную сумму тела, затем передаёт записи потребителям по порядку.
+     */
+    public static void read(Path file, Consumer<Film> films, Consumer<User> users) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    break;
+                }
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE) {
+                throw new IOException("Снимок " + file + " повреждён: неполный заголовок.");
+            }
+            int magic = header.getInt();
+            int version = header.getInt();
+            int filmCount = header.getInt();
+            int userCount = header.getInt();
+            long bodyLength = header.getLong();
+            int bodyChecksum = header.getInt();
+            int headerChecksum = header.getInt();
+            if (magic != MAGIC || checksum(header.array(), HEADER_SIZE - Integer.BYTES) != headerChecksum) {
+                throw new IOException("Файл " + file + " не является снимком хранилищ.");
+            }
+            if (version != VERSION) {
+                throw new IOException("Неподдерживаемая версия снимка: " + version);
+            }
+            if (channel.size() != HEADER_SIZE + bodyLength) {
+                throw new IOException("Снимок " + file + " повреждён: неверная длина.");
+            }
+
+            MappedInput input = new MappedInput(channel, HEADER_SIZE, bodyLength);
+            if (input.checksum() != bodyChecksum) {
+                throw new IOException("Снимок " + file + " повреждён: неверная контрольная сумма.");
+            }
+            input.rewind();
+            for (int i = 0; i < filmCount; i++) {
+                films.accept(input.readFilm());
+            }
+            for (int i = 0; i < userCount; i++) {
+                users.accept(input.readUser());
+            }
+        }
+    }
+
+    private static int checksum(byte[] bytes, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Потоковая запись снимка через FileChannel. Заголовок дописывается при закрытии.
+     */
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private final CRC32C bodyChecksum = new CRC32C();
+        private long bodyLength;
+        private int filmCount;
+        private int userCount;
+        private boolean usersStarted;
+
+        private Writer(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_SIZE);
+        }
+
+        public void writeFilm(Film film) throws IOException {
+            if (usersStarted) {
+                throw new IllegalStateException("Фильмы должны быть записаны до пользователей.");
+            }
+            putInt(film.getId());
+            putDate(film.getReleaseDate());
+            putInt(film.getDuration());
+            putString(film.getName());
+            putString(film.getDescription());
+            putIds(film.getLikes());
+            filmCount++;
+        }
+
+        public void writeUser(User user) throws IOException {
+            usersStarted = true;
+            putInt(user.getId());
+            putDate(user.getBirthday());
+            putString(user.getEmail());
+            putString(user.getLogin());
+            putString(user.getName());
+            putIds(user.getFriends());
+            userCount++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC);
+                header.putInt(VERSION);
+                header.putInt(filmCount);
+                header.putInt(userCount);
+                header.putLong(bodyLength);
+                header.putInt((int) bodyChecksum.getValue());
+                header.putInt(checksum(header.array(), HEADER_SIZE - Integer.BYTES));
+                header.flip();
+                channel.position(0);
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void putIds(IntSet ids) throws IOException {
+            int[] values = ids.toArray();
+            putInt(values.length);
+            for (int value : values) {
+                putInt(value);
+            }
+        }
+
+        private void putDate(LocalDate date) throws IOException {
+            putInt(date == null ? NO_DATE : Math.toIntExact(date.toEpochDay()));
+        }
+
+        private void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        private void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            bodyLength += buffer.remaining();
+            bodyChecksum.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Последовательное чтение тела снимка через окна MappedByteBuffer.
+     */
+    private static final class MappedInput {
+        private final FileChannel channel;
+        private final long start;
+        private final long length;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedInput(FileChannel channel, long start, long length) throws IOException {
+            this.channel = channel;
+            this.start = start;
+            this.length = length;
+            map(0);
+        }
+
+        int checksum() throws IOException {
+            CRC32C crc = new CRC32C();
+            for (long offset = 0; offset < length; offset += WINDOW_SIZE) {
+                map(offset);
+                crc.update(window);
+            }
+            return (int) crc.getValue();
+        }
+
+        void rewind() throws IOException {
+            map(0);
+        }
+
+        Film readFilm() throws IOException {
+            Film film = new Film();
+            film.setId(readInt());
+            film.setReleaseDate(readDate());
+            film.setDuration(readInt());
+            film.setName(readString());
+            film.setDescription(readString());
+            film.setLikes(readIds());
+            return film;
+        }
+
+        User readUser() throws IOException {
+            User user = new User();
+            user.setId(readInt());
+            user.setBirthday(readDate());
+            user.setEmail(readString());
+            user.setLogin(readString());
+            user.setName(readString());
+            user.setFriends(readIds());
+            return user;
+        }
+
+        private IntSet readIds() throws IOException {
+            int count = readInt();
+            IntSet ids = new IntSet(count);
+            int remaining = count;
+            while (remaining > 0) {
+                ensure(Integer.BYTES);
+                int chunk = Math.min(remaining, window.remaining() / Integer.BYTES);
+                for (int i = 0; i < chunk; i++) {
+                    ids.add(window.getInt());
+                }
+                remaining -= chunk;
+            }
+            return ids;
+        }
+
+        private LocalDate readDate() throws IOException {
+            int epochDay = readInt();
+            return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        }
+
+        private String readString() throws IOException {
+            int byteLength = readInt();
+            if (byteLength < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[byteLength];
+            int offset = 0;
+            while (offset < byteLength) {
+                ensure(1);
+                int chunk = Math.min(window.remaining(), byteLength - offset);
+                window.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int readInt() throws IOException {
+            ensure(Integer.BYTES);
+            return window.getInt();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = windowStart + window.position();
+                if (position + bytes > length) {
+                    throw new IOException("Снимок повреждён: неожиданный конец данных.");
+                }
+                map(position);
+            }
+        }
+
+        private void map(long offset) throws IOException {
+            long size = Math.min(WINDOW_SIZE, length - offset);
+            windowStart = offset;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start + offset, size);
+        }
+    }
+}
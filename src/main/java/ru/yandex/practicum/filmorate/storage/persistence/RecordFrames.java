@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Формат записи в файлах журнала: длина, контрольная сумма CRC32C и тело записи.
+ * Оборванная или повреждённая запись в конце файла считается концом журнала.
+ */
+final class RecordFrames {
+    static final int HEADER_SIZE = Integer.BYTES * 2;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private RecordFrames() {
+    }
+
+    static byte[] frame(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putInt(checksum(payload));
+        buffer.put(payload);
+        return buffer.array();
+    }
+
+    /**
+     * Читает записи файла по порядку и возвращает их количество.
+     */
+    static long read(Path file, Consumer<byte[]> consumer) throws IOException {
+        long count = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+             DataInputStream data = new DataInputStream(in)) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = data.readInt();
+                    checksum = data.readInt();
+                    if (length < 0 || length > MAX_RECORD_SIZE) {
+                        return count;
+                    }
+                    payload = new byte[length];
+                    data.readFully(payload);
+                } catch (EOFException e) {
+                    return count;
+                }
+                if (checksum(payload) != checksum) {
+                    return count;
+                }
+                consumer.accept(payload);
+                count++;
+            }
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
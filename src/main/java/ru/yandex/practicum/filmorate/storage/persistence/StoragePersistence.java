@@ -0,0 +1,255 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.JournalRecord;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Сохранение данных in-memory хранилищ: журнал упреждающей записи и периодические снимки.
+ * При старте загружается последний снимок и применяется хвост журнала.
+ *
+ * <p>Индексы похожих фильмов и поиска после загрузки строятся заново. Тренды не восстанавливаются:
+ * время лайка хранится только в записи журнала, в снимок оно не попадает. Поэтому после перезапуска
+ * в трендах есть только лайки из хвоста журнала, и окна заполняются заново по мере новых лайков.
+ */
+@Component
+@Profile("!jdbc & !offheap")
+@ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+public class StoragePersistence {
+    private static final Logger log = LoggerFactory.getLogger(StoragePersistence.class);
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final boolean groupCommit;
+    private final Duration snapshotInterval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private WriteAheadLog writeAheadLog;
+
+    public StoragePersistence(InMemoryFilmStorage filmStorage,
+                              InMemoryUserStorage userStorage,
+                              ObjectMapper objectMapper,
+                              @Value("${filmorate.persistence.directory:data}") String directory,
+                              @Value("${filmorate.persistence.group-commit:true}") boolean groupCommit,
+                              @Value("${filmorate.persistence.snapshot-interval:10m}") Duration snapshotInterval) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+        this.groupCommit = groupCommit;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        long nextSegment = recover();
+        writeAheadLog = new WriteAheadLog(directory, nextSegment, objectMapper, groupCommit);
+        filmStorage.setJournal(writeAheadLog);
+        userStorage.setJournal(writeAheadLog);
+        long interval = snapshotInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::snapshotSafely, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Журнал изменений включён: каталог {}, групповое подтверждение: {}", directory, groupCommit);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        scheduler.shutdownNow();
+        filmStorage.setJournal(StorageJournal.NONE);
+        userStorage.setJournal(StorageJournal.NONE);
+        writeAheadLog.close();
+    }
+
+    /**
+     * Снимает снимок хранилищ и удаляет сегменты журнала, которые он покрывает.
+     */
+    public void snapshot() throws IOException {
+        long segment = writeAheadLog.rotate();
+        Path tmp = directory.resolve(SNAPSHOT_PREFIX + "tmp");
+        try (BinarySnapshot.Writer writer = BinarySnapshot.write(tmp)) {
+            filmStorage.forEachFilm(film -> {
+                try {
+                    writer.writeFilm(film);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            userStorage.forEachUser(user -> {
+                try {
+                    writer.writeUser(user);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(tmp, snapshotFile(segment), StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+        deleteCoveredFiles(segment);
+        log.info("Снимок хранилищ сохранён, журнал начинается с сегмента {}", segment);
+    }
+
+    private long recover() throws IOException {
+        long fromSegment = 0;
+        long records = 0;
+        Path snapshot = latestSnapshot();
+        if (snapshot != null) {
+            fromSegment = snapshotNumber(snapshot);
+            long start = System.nanoTime();
+            BinarySnapshot.read(snapshot, filmStorage::restoreFilm, userStorage::restoreUser);
+            log.info("Снимок {} загружен за {} мс", snapshot.getFileName(), (System.nanoTime() - start) / 1_000_000);
+        }
+        long nextSegment = fromSegment;
+        for (Path segment : WriteAheadLog.segments(directory)) {
+            long number = WriteAheadLog.segmentNumber(segment);
+            if (number >= fromSegment) {
+                records += RecordFrames.read(segment, this::apply);
+                nextSegment = number + 1;
+            }
+        }
+        log.info("Хранилища восстановлены: применено записей {}", records);
+        long start = System.nanoTime();
+        filmStorage.rebuildSimilarityIndex();
+        log.info("Индекс похожих фильмов построен за {} мс", (System.nanoTime() - start) / 1_000_000);
+        start = System.nanoTime();
+        filmStorage.rebuildSearchIndex();
+        log.info("Поисковый индекс построен за {} мс", (System.nanoTime() - start) / 1_000_000);
+        // Снимок мог попасть на середину каскадного удаления пользователя.
+        int repaired = userStorage.repairFriendships() + filmStorage.repairLikes(userStorage::userExists);
+        if (repaired > 0) {
+            log.info("После восстановления исправлено расхождений: {}", repaired);
+        }
+        return nextSegment;
+    }
+
+    private void apply(byte[] payload) {
+        JournalRecord record;
+        try {
+            record = objectMapper.readValue(payload, JournalRecord.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Повреждённая запись журнала.", e);
+        }
+        switch (record.type()) {
+            case ADD_FILM, UPDATE_FILM -> filmStorage.restoreFilm(record.film());
+            case DELETE_FILM -> filmStorage.deleteFilm(record.id());
+            case ADD_LIKE -> {
+                if (filmStorage.getFilmById(record.id()) != null) {
+                    // Лайки из журнала без времени записаны до появления трендов и в тренды не попадают.
+                    long likedAt = record.timestamp() != null ? record.timestamp() : 0L;
+                    filmStorage.addLike(record.id(), record.otherId(), likedAt);
+                }
+            }
+            case REMOVE_LIKE -> {
+                if (filmStorage.getFilmById(record.id()) != null) {
+                    filmStorage.removeLike(record.id(), record.otherId());
+                }
+            }
+            case ADD_USER, UPDATE_USER -> userStorage.restoreUser(record.user());
+            case DELETE_USER -> {
+                if (userStorage.userExists(record.id())) {
+                    userStorage.deleteUser(record.id());
+                }
+            }
+            case ADD_FRIEND -> {
+                if (userStorage.userExists(record.id()) && userStorage.userExists(record.otherId())) {
+                    userStorage.addFriend(record.id(), record.otherId());
+                }
+            }
+            case REMOVE_FRIEND -> {
+                if (userStorage.userExists(record.id()) && userStorage.userExists(record.otherId())) {
+                    userStorage.removeFriend(record.id(), record.otherId());
+                }
+            }
+        }
+    }
+
+    private void snapshotSafely() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось сохранить снимок хранилищ: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Сбрасывает на диск запись каталога о переименовании снимка. Без этого после сбоя могли бы
+     * сохраниться удаления покрытых сегментов, но не сам снимок.
+     */
+    private void forceDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private void deleteCoveredFiles(long segment) throws IOException {
+        for (Path file : WriteAheadLog.segments(directory)) {
+            if (WriteAheadLog.segmentNumber(file) < segment) {
+                Files.deleteIfExists(file);
+            }
+        }
+        for (Path file : snapshots()) {
+            if (snapshotNumber(file) < segment) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private Path latestSnapshot() throws IOException {
+        List<Path> snapshots = snapshots();
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    private List<Path> snapshots() throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+            }).forEach(result::add);
+        }
+        result.sort((first, second) -> Long.compare(snapshotNumber(first), snapshotNumber(second)));
+        return result;
+    }
+
+    private Path snapshotFile(long segment) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+    }
+
+    private static long snapshotNumber(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+}
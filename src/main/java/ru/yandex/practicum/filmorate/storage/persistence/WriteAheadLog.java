@@ -0,0 +1,290 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.storage.JournalRecord;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Журнал упреждающей записи, разбитый на сегменты. В режиме группового подтверждения записи
+ * от параллельных запросов накапливаются и сбрасываются на диск одним fsync в отдельном потоке.
+ * Без него запись сразу пишется в файл, а fsync делает {@link #awaitDurable} уже после снятия
+ * блокировки сущности; один fsync подтверждает все записанные к этому моменту записи.
+ */
+public class WriteAheadLog implements StorageJournal, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final boolean groupCommit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasPending = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private final Thread flusher;
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedSequence;
+    private long durableSequence;
+    private long writtenSequence;
+    private long forcedSequence;
+    private IOException failure;
+    private boolean closed;
+    private FileChannel channel;
+    private long segment;
+
+    public WriteAheadLog(Path directory, long segment, ObjectMapper objectMapper, boolean groupCommit)
+            throws IOException {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        this.groupCommit = groupCommit;
+        this.segment = segment;
+        this.channel = openSegment(segment);
+        if (groupCommit) {
+            flusher = new Thread(this::flushLoop, "wal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    @Override
+    public long append(JournalRecord record) {
+        byte[] frame = RecordFrames.frame(serialize(record));
+        if (!groupCommit) {
+            ioLock.lock();
+            try {
+                write(ByteBuffer.wrap(frame));
+                return ++writtenSequence;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать журнал изменений.", e);
+            } finally {
+                ioLock.unlock();
+            }
+        }
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Журнал изменений недоступен.", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Журнал изменений закрыт.");
+            }
+            pending.write(frame, 0, frame.length);
+            hasPending.signal();
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+        if (sequence == 0) {
+            return;
+        }
+        if (!groupCommit) {
+            forceWritten(sequence);
+            return;
+        }
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Не удалось записать журнал изменений.", failure);
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает накопленные записи и начинает новый сегмент. Возвращает номер нового сегмента:
+     * все записи, добавленные после вызова, попадут в него или в более поздние сегменты.
+     */
+    public long rotate() throws IOException {
+        ioLock.lock();
+        try {
+            flushPending();
+            channel.force(false);
+            forcedSequence = writtenSequence;
+            channel.close();
+            segment++;
+            channel = openSegment(segment);
+            return segment;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            hasPending.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ioLock.lock();
+        try {
+            flushPending();
+            channel.force(false);
+            forcedSequence = writtenSequence;
+            channel.close();
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    public static List<Path> segments(Path directory) throws IOException {
+        List<Path> result = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return result;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(WriteAheadLog::isSegment).forEach(result::add);
+        }
+        result.sort(Comparator.comparingLong(WriteAheadLog::segmentNumber));
+        return result;
+    }
+
+    public static long segmentNumber(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        Path file = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void flushLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    hasPending.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            ioLock.lock();
+            try {
+                flushPending();
+            } catch (IOException e) {
+                log.error("Ошибка записи журнала изменений: {}", e.getMessage());
+                return;
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Без группового подтверждения: делает fsync, если запись sequence ещё не подтверждена. Пока
+     * идёт fsync, новые записи ждут ioLock, но не блокировки сущностей.
+     */
+    private void forceWritten(long sequence) {
+        ioLock.lock();
+        try {
+            if (forcedSequence < sequence) {
+                long target = writtenSequence;
+                channel.force(false);
+                forcedSequence = target;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать журнал изменений.", e);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private void flushPending() throws IOException {
+        byte[] batch;
+        long target;
+        lock.lock();
+        try {
+            if (pending.size() == 0) {
+                return;
+            }
+            batch = pending.toByteArray();
+            pending = new ByteArrayOutputStream(Math.max(32, batch.length));
+            target = appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            write(ByteBuffer.wrap(batch));
+            channel.force(false);
+        } catch (IOException e) {
+            lock.lock();
+            try {
+                failure = e;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        lock.lock();
+        try {
+            durableSequence = target;
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private byte[] serialize(JournalRecord record) {
+        try {
+            return objectMapper.writeValueAsBytes(record);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Не удалось сериализовать запись журнала.", e);
+        }
+    }
+}
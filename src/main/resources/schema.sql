@@ -0,0 +1,48 @@
+CREATE TABLE IF NOT EXISTS users (
+    id       INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE,
+    version  BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   INT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id INT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_idx ON friendships (friend_id);
+
+CREATE TABLE IF NOT EXISTS films (
+    id           INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE,
+    duration     INT NOT NULL,
+    version      BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date, id);
+CREATE INDEX IF NOT EXISTS films_duration_idx ON films (duration, id);
+
+-- Лайки без внешнего ключа на users: их снимает FilmStorage.removeUserLikes после удаления пользователя.
+CREATE TABLE IF NOT EXISTS likes (
+    film_id  INT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id  INT NOT NULL,
+    liked_at BIGINT,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_idx ON likes (user_id, film_id);
+CREATE INDEX IF NOT EXISTS likes_liked_at_idx ON likes (liked_at);
+
+CREATE TABLE IF NOT EXISTS film_terms (
+    term    VARCHAR(32) NOT NULL,
+    film_id INT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    tf      INT NOT NULL,
+    PRIMARY KEY (term, film_id)
+);
+
+CREATE INDEX IF NOT EXISTS film_terms_film_idx ON film_terms (film_id);
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.yandex.practicum.filmorate.controller.FilmController;
 import ru.yandex.practicum.filmorate.controller.UserController;
@@ -21,6 +22,13 @@ import java.time.LocalDate;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -158,4 +166,186 @@ class FilmorateApplicationTests {
 		assertEquals("Фильм с таким ID не найден.", exception.getMessage());
 	}
 
+	@Test
+	void getUsersByIdsTest() throws Exception {
+		User first = userController.addUser(validUser).getBody();
+		User second = new User();
+		second.setEmail("second@mail.com");
+		second.setLogin("secondLogin");
+		second.setBirthday(LocalDate.of(1990, 1, 1));
+		second = userController.addUser(second).getBody();
+
+		assertNotNull(first);
+		assertNotNull(second);
+		mockMvc.perform(get("/users").param("ids", second.getId() + "," + first.getId() + ",100000"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0].id").value(second.getId()))
+				.andExpect(jsonPath("$[1].id").value(first.getId()));
+	}
+
+	@Test
+	void getFilmsPageTest() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			Film pageFilm = new Film();
+			pageFilm.setName("Фильм " + i);
+			pageFilm.setReleaseDate(LocalDate.of(2000, 1, 1));
+			pageFilm.setDuration(90);
+			filmController.addFilm(pageFilm);
+		}
+
+		String cursor = mockMvc.perform(get("/films").param("limit", "2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(header().exists("X-Next-Cursor"))
+				.andReturn().getResponse().getHeader("X-Next-Cursor");
+
+		mockMvc.perform(get("/films").param("limit", "2").param("after", cursor))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].id").value(Integer.parseInt(cursor) + 1));
+
+		mockMvc.perform(get("/films").param("limit", "0"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void cursorWithoutLimitTest() throws Exception {
+		mockMvc.perform(get("/films").param("after", "1"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/users").param("after", "1"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void conditionalGetFilmTest() throws Exception {
+		Film etagFilm = new Film();
+		etagFilm.setName("Фильм с версией");
+		etagFilm.setReleaseDate(LocalDate.of(2000, 1, 1));
+		etagFilm.setDuration(90);
+		etagFilm = filmController.addFilm(etagFilm).getBody();
+		User liker = userController.addUser(validUser).getBody();
+		assertNotNull(etagFilm);
+		assertNotNull(liker);
+
+		String etag = mockMvc.perform(get("/films/" + etagFilm.getId()))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("ETag"))
+				.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(get("/films/" + etagFilm.getId()).header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		mockMvc.perform(put("/films/" + etagFilm.getId() + "/like/" + liker.getId()))
+				.andExpect(status().isOk());
+
+		String changed = mockMvc.perform(get("/films/" + etagFilm.getId()).header("If-None-Match", etag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.likesCount").value(1))
+				.andExpect(jsonPath("$.version").doesNotExist())
+				.andReturn().getResponse().getHeader("ETag");
+		assertNotEquals(etag, changed, "Лайк должен менять версию фильма.");
+
+		String popular = mockMvc.perform(get("/films/popular"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+		mockMvc.perform(get("/films/popular").header("If-None-Match", popular))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void conditionalGetFriendsTest() throws Exception {
+		User owner = userController.addUser(validUser).getBody();
+		User friend = new User();
+		friend.setEmail("friend@mail.com");
+		friend.setLogin("friendLogin");
+		friend.setBirthday(LocalDate.of(1990, 1, 1));
+		friend = userController.addUser(friend).getBody();
+		assertNotNull(owner);
+		assertNotNull(friend);
+		userController.addFriend(owner.getId(), friend.getId());
+
+		String etag = mockMvc.perform(get("/users/" + owner.getId() + "/friends"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(get("/users/" + owner.getId() + "/friends").header("If-None-Match", etag))
+				.andExpect(status().isNotModified());
+
+		friend.setName("Новое имя");
+		userController.updateUser(friend);
+
+		mockMvc.perform(get("/users/" + owner.getId() + "/friends").header("If-None-Match", etag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].name").value("Новое имя"));
+	}
+
+	@Test
+	void conditionalGetMissingFilmTest() throws Exception {
+		mockMvc.perform(get("/films/100000").header("If-None-Match", "\"0\""))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void filteredFilmsRejectCursorTest() throws Exception {
+		mockMvc.perform(get("/films").param("minDuration", "60").param("after", "5"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/films").param("minDuration", "60"))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void addFilmsBatchTest() throws Exception {
+		String films = "["
+				+ "{\"name\":\"Первый\",\"releaseDate\":\"2000-01-01\",\"duration\":100},"
+				+ "{\"name\":\"Слишком старый\",\"releaseDate\":\"1800-01-01\",\"duration\":100},"
+				+ "{\"name\":\"Третий\",\"releaseDate\":\"2001-01-01\",\"duration\":90}"
+				+ "]";
+
+		mockMvc.perform(post("/films/batch").contentType(MediaType.APPLICATION_JSON).content(films))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.received").value(3))
+				.andExpect(jsonPath("$.created").value(2))
+				.andExpect(jsonPath("$.errors[0].index").value(1));
+	}
+
+	@Test
+	void nullBatchItemIsValidationError() throws Exception {
+		String films = "["
+				+ "{\"name\":\"Первый\",\"releaseDate\":\"2000-01-01\",\"duration\":100},"
+				+ "null,"
+				+ "{\"name\":\"Третий\",\"releaseDate\":\"2001-01-01\",\"duration\":90}"
+				+ "]";
+
+		mockMvc.perform(post("/films/batch").contentType(MediaType.APPLICATION_JSON).content(films))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.received").value(3))
+				.andExpect(jsonPath("$.created").value(2))
+				.andExpect(jsonPath("$.errors[0].index").value(1));
+	}
+
+	@Test
+	void unreadableBatchItemDoesNotStopImport() throws Exception {
+		String users = "{\"email\":\"a@mail.com\",\"login\":\"a\",\"birthday\":\"2000-01-01\"}\n"
+				+ "{\"email\":\"b@mail.com\",\"login\":\"b\",\"birthday\":\"не дата\"}\n"
+				+ "{\"email\":\"c@mail.com\",\"login\":\"c\",\"birthday\":\"2000-01-01\"}\n";
+
+		mockMvc.perform(post("/users/batch").contentType("application/x-ndjson").content(users))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.received").value(3))
+				.andExpect(jsonPath("$.created").value(2))
+				.andExpect(jsonPath("$.errors[0].index").value(1));
+	}
+
+	@Test
+	void addUsersNdjsonBatchTest() throws Exception {
+		String users = "{\"email\":\"a@mail.com\",\"login\":\"a\",\"birthday\":\"2000-01-01\"}\n"
+				+ "{\"email\":\"b@mail.com\",\"login\":\"b\",\"birthday\":\"2000-01-01\"}\n";
+
+		mockMvc.perform(post("/users/batch").contentType("application/x-ndjson").content(users))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.created").value(2))
+				.andExpect(jsonPath("$.ids.length()").value(2));
+	}
+
 }
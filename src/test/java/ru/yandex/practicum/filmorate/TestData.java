@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Общие заготовки сущностей для тестов.
+ */
+public final class TestData {
+
+	private TestData() {
+	}
+
+	public static Film newFilm(String name) {
+		return newFilm(name, LocalDate.of(2000, 1, 1), 100);
+	}
+
+	public static Film newFilm(String name, LocalDate releaseDate, int duration) {
+		Film film = new Film();
+		film.setName(name);
+		film.setDescription("Описание");
+		film.setReleaseDate(releaseDate);
+		film.setDuration(duration);
+		return film;
+	}
+
+	public static User newUser(String login) {
+		User user = new User();
+		user.setEmail(login + "@mail.com");
+		user.setLogin(login);
+		user.setBirthday(LocalDate.of(2000, 1, 1));
+		return user;
+	}
+
+	public static List<Integer> filmIds(List<Film> films) {
+		return films.stream().map(Film::getId).toList();
+	}
+
+	public static List<Integer> userIds(List<User> users) {
+		return users.stream().map(User::getId).toList();
+	}
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Нагрузочный прогон с пулом платформенных потоков Tomcat.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadsLoadBenchmarkTest extends RequestLoadBenchmark {
+
+	@DynamicPropertySource
+	static void properties(DynamicPropertyRegistry registry) {
+		benchmarkProperties(registry);
+	}
+
+	@Override
+	String mode() {
+		return "platform";
+	}
+}
@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Нагрузочный прогон основных эндпоинтов на запущенном в процессе сервере. Запросы на изменение
+ * ждут fsync журнала, поэтому блокируют поток запроса. Подклассы задают режим потоков Tomcat.
+ */
+abstract class RequestLoadBenchmark {
+
+	private static final int CLIENTS = 400;
+	private static final int REQUESTS_PER_CLIENT = 200;
+	private static final int FILMS = 500;
+	private static final int USERS = 1000;
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(10))
+			.build();
+
+	@LocalServerPort
+	private int port;
+
+	static void benchmarkProperties(DynamicPropertyRegistry registry) {
+		try {
+			String directory = Files.createTempDirectory("filmorate-load").toString();
+			registry.add("filmorate.persistence.enabled", () -> "true");
+			registry.add("filmorate.persistence.directory", () -> directory);
+			registry.add("logging.level.org.zalando.logbook", () -> "WARN");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	abstract String mode();
+
+	@Test
+	void mainEndpointsUnderLoad() throws Exception {
+		for (int i = 0; i < FILMS; i++) {
+			send("POST", "/films", "{\"name\":\"Фильм " + i + "\",\"description\":\"Описание\","
+					+ "\"releaseDate\":\"2000-01-01\",\"duration\":100}");
+		}
+		for (int i = 0; i < USERS; i++) {
+			send("POST", "/users", "{\"email\":\"user" + i + "@mail.com\",\"login\":\"user" + i + "\","
+					+ "\"birthday\":\"2000-01-01\"}");
+		}
+
+		String[] endpoints = {"GET /films/{film}", "GET /films/popular", "PUT /films/{film}/like/{user}",
+				"PUT /users/{user}/friends/{other}", "GET /users/{user}/friends"};
+		long[][] latencies = new long[endpoints.length][CLIENTS * REQUESTS_PER_CLIENT];
+		AtomicInteger[] counts = new AtomicInteger[endpoints.length];
+		Arrays.setAll(counts, i -> new AtomicInteger());
+
+		ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+		long start = System.nanoTime();
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int c = 0; c < CLIENTS; c++) {
+				futures.add(clients.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+						int endpoint = random.nextInt(endpoints.length);
+						int film = 1 + random.nextInt(FILMS);
+						int user = 1 + random.nextInt(USERS);
+						int other = 1 + random.nextInt(USERS);
+						String[] parts = endpoints[endpoint].split(" ");
+						String path = parts[1].replace("{film}", String.valueOf(film))
+								.replace("{user}", String.valueOf(user))
+								.replace("{other}", String.valueOf(user == other ? other % USERS + 1 : other));
+						long requestStart = System.nanoTime();
+						send(parts[0], path, null);
+						latencies[endpoint][counts[endpoint].getAndIncrement()] = System.nanoTime() - requestStart;
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			clients.shutdown();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("Режим %s, %d клиентов: %.0f запросов/с%n", mode(), CLIENTS,
+				CLIENTS * (double) REQUESTS_PER_CLIENT / seconds);
+		for (int i = 0; i < endpoints.length; i++) {
+			long[] sample = Arrays.copyOf(latencies[i], counts[i].get());
+			Arrays.sort(sample);
+			System.out.printf("  %-36s p50 %6.2f мс, p95 %6.2f мс, p99 %6.2f мс%n", endpoints[i],
+					percentile(sample, 0.50), percentile(sample, 0.95), percentile(sample, 0.99));
+		}
+	}
+
+	private void send(String method, String path, String json) {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.timeout(Duration.ofSeconds(60));
+		if (json != null) {
+			request.header("Content-Type", "application/json")
+					.method(method, HttpRequest.BodyPublishers.ofString(json));
+		} else {
+			request.method(method, HttpRequest.BodyPublishers.noBody());
+		}
+		try {
+			HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+			assertEquals(2, response.statusCode() / 100, method + " " + path);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static double percentile(long[] sorted, double quantile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+}
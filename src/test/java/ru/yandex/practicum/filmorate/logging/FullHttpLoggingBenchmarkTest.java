@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Логирование каждого запроса и ответа синхронно (настройки по умолчанию).
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureMockMvc
+class FullHttpLoggingBenchmarkTest extends HttpLoggingBenchmark {
+
+	@Override
+	String mode() {
+		return "full";
+	}
+}
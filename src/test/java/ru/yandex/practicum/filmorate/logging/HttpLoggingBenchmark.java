@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Стоимость запроса вместе с HTTP-логированием: время и выделенная память на поток запроса.
+ * Подклассы задают режим логирования.
+ */
+abstract class HttpLoggingBenchmark {
+
+	private static final int FILMS = 200;
+	private static final int WARMUP = 2_000;
+	private static final int REQUESTS = 10_000;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	abstract String mode();
+
+	@Test
+	void perRequestOverhead() throws Exception {
+		for (int i = 0; i < FILMS; i++) {
+			mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+							.content("{\"name\":\"Фильм " + i + "\",\"description\":\"Описание\","
+									+ "\"releaseDate\":\"2000-01-01\",\"duration\":100}"))
+					.andExpect(status().isCreated());
+		}
+
+		measure("GET /films", get("/films"));
+		measure("GET /films/1", get("/films/1"));
+		measure("POST /users", post("/users").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"email\":\"user@mail.com\",\"login\":\"user\",\"birthday\":\"2000-01-01\"}"));
+	}
+
+	private void measure(String name, RequestBuilder request) throws Exception {
+		for (int i = 0; i < WARMUP; i++) {
+			mockMvc.perform(request);
+		}
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().threadId();
+		long[] latencies = new long[REQUESTS];
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < REQUESTS; i++) {
+			long start = System.nanoTime();
+			mockMvc.perform(request);
+			latencies[i] = System.nanoTime() - start;
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		Arrays.sort(latencies);
+		System.out.printf("Логирование %s, %s: среднее %.1f мкс, p99 %.1f мкс, %d байт на запрос%n", mode(), name,
+				Arrays.stream(latencies).average().orElse(0) / 1e3, latencies[REQUESTS * 99 / 100] / 1e3,
+				allocated / REQUESTS);
+	}
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Рабочий режим: асинхронная запись логов, выборка и пропуск тел больших ответов.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("prod")
+class SampledHttpLoggingBenchmarkTest extends HttpLoggingBenchmark {
+
+	@Override
+	String mode() {
+		return "sampled";
+	}
+}
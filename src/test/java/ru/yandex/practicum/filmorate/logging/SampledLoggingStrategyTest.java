@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Sink;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SampledLoggingStrategyTest {
+
+	private SampledLoggingStrategy strategy;
+	private Sink sink;
+
+	@BeforeEach
+	void setUp() {
+		HttpLoggingProperties properties = new HttpLoggingProperties();
+		properties.setDefaultSampleRate(0.0);
+		HttpLoggingProperties.Sampling always = new HttpLoggingProperties.Sampling();
+		always.setPath("/users/*/friends/**");
+		always.setRate(1.0);
+		properties.setSampling(List.of(always));
+		properties.setOmitResponseBody(List.of("/users/*/friends"));
+		properties.setSlowThreshold(Duration.ofMillis(100));
+		strategy = new SampledLoggingStrategy(properties);
+		sink = mock(Sink.class);
+	}
+
+	@Test
+	void onlySampledRequestsBufferBodies() throws Exception {
+		HttpRequest unsampled = request("/films/1");
+		HttpRequest sampled = request("/users/1/friends/common/2");
+
+		HttpRequest skipped = strategy.process(unsampled);
+		HttpRequest buffered = strategy.process(sampled);
+
+		verify(unsampled).withoutBody();
+		verify(unsampled, never()).withBody();
+		verify(sampled).withBody();
+		assertEquals("/users/1/friends/common/2", buffered.getPath());
+		HttpResponse skippedResponse = response(200);
+		HttpResponse bufferedResponse = response(200);
+		strategy.process(skipped, skippedResponse);
+		strategy.process(buffered, bufferedResponse);
+		verify(skippedResponse).withoutBody();
+		verify(bufferedResponse).withBody();
+	}
+
+	@Test
+	void fastSuccessfulRequestsAreLoggedOnlyWhenSampled() throws Exception {
+		HttpRequest skipped = strategy.process(request("/films/1"));
+		HttpRequest sampled = strategy.process(request("/users/1/friends/common/2"));
+		HttpResponse response = response(200);
+		Correlation correlation = correlation(Duration.ofMillis(5));
+
+		strategy.write(correlation, skipped, response, sink);
+		strategy.write(correlation, sampled, response, sink);
+
+		verify(sink, never()).writeBoth(correlation, skipped, response);
+		verify(sink).writeBoth(correlation, sampled, response);
+	}
+
+	@Test
+	void errorsAndSlowRequestsAreAlwaysLogged() throws Exception {
+		HttpRequest request = strategy.process(request("/films/1"));
+		HttpResponse error = response(404);
+		HttpResponse ok = response(200);
+		Correlation fast = correlation(Duration.ofMillis(5));
+		Correlation slow = correlation(Duration.ofMillis(150));
+
+		strategy.write(fast, request, error, sink);
+		strategy.write(slow, request, ok, sink);
+
+		verify(sink).writeBoth(fast, request, error);
+		verify(sink).writeBoth(slow, request, ok);
+	}
+
+	@Test
+	void responseBodyIsOmittedForListEndpoints() throws Exception {
+		HttpResponse response = response(200);
+
+		strategy.process(strategy.process(request("/users/1/friends")), response);
+
+		verify(response).withoutBody();
+		verify(response, never()).withBody();
+	}
+
+	private static HttpRequest request(String path) throws Exception {
+		HttpRequest request = mock(HttpRequest.class);
+		when(request.getPath()).thenReturn(path);
+		when(request.withBody()).thenReturn(request);
+		when(request.withoutBody()).thenReturn(request);
+		return request;
+	}
+
+	private static HttpResponse response(int status) throws Exception {
+		HttpResponse response = mock(HttpResponse.class);
+		when(response.getStatus()).thenReturn(status);
+		when(response.withBody()).thenReturn(response);
+		when(response.withoutBody()).thenReturn(response);
+		return response;
+	}
+
+	private static Correlation correlation(Duration duration) {
+		Correlation correlation = mock(Correlation.class);
+		when(correlation.getDuration()).thenReturn(duration);
+		return correlation;
+	}
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikePipeline;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+class ServiceMetricsTest {
+
+	private MeterRegistry registry;
+	private InMemoryFilmStorage filmStorage;
+	private InMemoryUserStorage userStorage;
+	private LikePipeline likePipeline;
+	private UserService userService;
+
+	@BeforeEach
+	void setUp() {
+		registry = new SimpleMeterRegistry();
+		filmStorage = new InMemoryFilmStorage();
+		userStorage = new InMemoryUserStorage();
+		likePipeline = new LikePipeline(filmStorage, 1, 1024, 64, false);
+		Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+		FilmService filmService = new FilmService(filmStorage, userStorage, validator, likePipeline, registry, 256);
+		UserService target = new UserService(userStorage, filmService, validator, registry, 1024, 1024);
+		AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAspect(new ServiceTimingAspect(registry));
+		userService = proxyFactory.getProxy();
+	}
+
+	@AfterEach
+	void tearDown() {
+		likePipeline.stop();
+	}
+
+	@Test
+	void timersAreTaggedByMethodAndOutcome() {
+		int id = userService.addUser(newUser("first")).getId();
+		userService.getUserById(id);
+		assertThrows(ValidationException.class, () -> userService.getUserById(id + 100));
+
+		assertEquals(1, timer("getUserById", "success").count());
+		assertEquals(1, timer("getUserById", "error").count());
+		assertEquals(1, timer("addUser", "success").count());
+	}
+
+	@Test
+	void countersAndGaugesTrackLikesAndFriendships() {
+		new StorageMetrics(filmStorage, userStorage).bindTo(registry);
+		int first = userService.addUser(newUser("first")).getId();
+		int second = userService.addUser(newUser("second")).getId();
+
+		userService.addFriend(first, second);
+		userService.addFriend(second, first);
+
+		assertEquals(2, registry.get("filmorate.friendships").tag("operation", "add").counter().count());
+		assertEquals(1, registry.get("filmorate.storage.friendships").gauge().value());
+		assertEquals(2, registry.get("filmorate.storage.users").gauge().value());
+		assertEquals(0, registry.get("filmorate.storage.likes").gauge().value());
+	}
+
+	private Timer timer(String method, String outcome) {
+		return registry.get(ServiceTimingAspect.TIMER_NAME)
+				.tag("class", "UserService")
+				.tag("method", method)
+				.tag("outcome", outcome)
+				.timer();
+	}
+}
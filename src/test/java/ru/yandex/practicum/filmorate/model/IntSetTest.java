@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntSetTest {
+
+	@Test
+	void behavesLikeHashSet() {
+		Random random = new Random(7);
+		IntSet set = new IntSet();
+		Set<Integer> expected = new HashSet<>();
+
+		for (int i = 0; i < 200_000; i++) {
+			int value = random.nextInt(3_000) - 5;
+			if (random.nextBoolean()) {
+				assertEquals(expected.add(value), set.add(value));
+			} else {
+				assertEquals(expected.remove(value), set.remove(value));
+			}
+		}
+
+		assertEquals(expected.size(), set.size());
+		for (int value = -5; value < 3_000; value++) {
+			assertEquals(expected.contains(value), set.contains(value), "Значение " + value);
+		}
+	}
+
+	@Test
+	void serializesAsJsonArray() throws Exception {
+		ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+		Film film = new Film();
+		film.setName("Фильм");
+		film.setReleaseDate(LocalDate.of(2000, 1, 1));
+		film.setDuration(100);
+		film.addLike(3);
+		film.addLike(1);
+		film.addLike(2);
+
+		String json = mapper.writeValueAsString(film);
+		assertTrue(json.contains("\"likes\":[1,2,3]"), json);
+
+		Film restored = mapper.readValue(json, Film.class);
+		assertEquals(IntSet.of(1, 2, 3), restored.getLikes());
+		assertEquals(3, restored.getLikesCount());
+	}
+}
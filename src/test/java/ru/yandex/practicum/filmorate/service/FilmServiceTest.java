@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.filmIds;
+
+class FilmServiceTest {
+
+	private static final int FILMS = 40;
+	private static final int USERS = 30;
+
+	private InMemoryFilmStorage filmStorage;
+	private LikePipeline likePipeline;
+	private FilmService filmService;
+
+	@BeforeEach
+	void setUp() {
+		filmStorage = new InMemoryFilmStorage();
+		InMemoryUserStorage userStorage = new InMemoryUserStorage();
+		for (int i = 0; i < USERS; i++) {
+			User user = new User();
+			user.setEmail("user" + i + "@mail.com");
+			user.setLogin("user" + i);
+			user.setBirthday(LocalDate.of(1990, 1, 1));
+			userStorage.addUser(user);
+		}
+		likePipeline = new LikePipeline(filmStorage, 2, 1024, 64, false);
+		filmService = new FilmService(filmStorage, userStorage,
+				Validation.buildDefaultValidatorFactory().getValidator(), likePipeline, new SimpleMeterRegistry(), 64);
+	}
+
+	@AfterEach
+	void tearDown() {
+		likePipeline.stop();
+	}
+
+	@Test
+	void cachedPopularFilmsFollowEveryMutation() {
+		Random random = new Random(11);
+		for (int i = 0; i < FILMS; i++) {
+			filmService.addFilm(newFilm(random));
+		}
+		FilmFilter recent = new FilmFilter(LocalDate.of(2005, 1, 1), null, null, null);
+
+		for (int step = 0; step < 3_000; step++) {
+			int filmId = 1 + random.nextInt(FILMS + step / 100);
+			int userId = 1 + random.nextInt(USERS);
+			int operation = random.nextInt(20);
+			if (filmStorage.getFilmById(filmId) == null) {
+				filmService.addFilm(newFilm(random));
+			} else if (operation < 12) {
+				filmService.addLike(filmId, userId);
+			} else if (operation < 17) {
+				filmService.removeLike(filmId, userId);
+			} else if (operation < 19) {
+				Film replacement = newFilm(random);
+				replacement.setId(filmId);
+				replacement.setLikes(filmStorage.getFilmById(filmId).getLikes());
+				filmService.updateFilm(replacement);
+			} else {
+				filmService.deleteFilm(filmId);
+			}
+
+			for (int count : new int[]{1, 5, 100}) {
+				assertEquals(filmIds(filmStorage.getPopularFilms(count)), filmIds(filmService.getPopularFilms(count)),
+						"Кэш популярных разошёлся с хранилищем на шаге " + step + ", count = " + count);
+				assertEquals(filmIds(filmStorage.getPopularFilms(recent, count)),
+						filmIds(filmService.getPopularFilms(count, recent)),
+						"Кэш популярных с фильтром разошёлся с хранилищем на шаге " + step + ", count = " + count);
+			}
+		}
+	}
+
+	@Test
+	void removingUserLikesRefreshesCachedPopularFilms() {
+		Random random = new Random(13);
+		for (int i = 0; i < FILMS; i++) {
+			filmService.addFilm(newFilm(random));
+		}
+		for (int step = 0; step < 600; step++) {
+			filmService.addLike(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS));
+		}
+		for (int userId = 1; userId <= 5; userId++) {
+			filmService.getPopularFilms(10);
+
+			filmService.removeUserLikes(userId);
+
+			assertEquals(filmIds(filmStorage.getPopularFilms(10)), filmIds(filmService.getPopularFilms(10)));
+			List<Film> popular = filmService.getPopularFilms(FILMS);
+			for (int i = 0; i < popular.size(); i++) {
+				assertEquals(filmStorage.getFilmById(popular.get(i).getId()).getLikesCount(),
+						popular.get(i).getLikesCount());
+			}
+		}
+	}
+
+	@Test
+	void nullBatchItemsAreReportedAsErrors() {
+		Random random = new Random(9);
+		BatchResult result = filmService.addFilms(Arrays.asList(newFilm(random), null, newFilm(random)).iterator());
+
+		assertEquals(3, result.getReceived());
+		assertEquals(2, result.getCreated());
+		assertEquals(1, result.getErrors().size());
+	}
+
+	@Test
+	void popularFallbackSkipsFilmsLikedByUser() {
+		Random random = new Random(4);
+		for (int i = 0; i < 5; i++) {
+			filmService.addFilm(newFilm(random));
+		}
+		filmStorage.addLike(1, 1);
+		filmStorage.addLike(2, 1);
+		filmStorage.addLike(1, 2);
+
+		List<Integer> recommended = filmIds(filmService.getRecommendations(1, 2));
+
+		assertEquals(2, recommended.size());
+		assertFalse(recommended.contains(1));
+		assertFalse(recommended.contains(2));
+	}
+
+	@Test
+	void unsupportedTrendingWindowListsStorageWindows() {
+		ValidationException e = assertThrows(ValidationException.class,
+				() -> filmService.getTrendingFilms(Duration.ofHours(2), 10));
+
+		assertEquals("Окно трендов должно быть одним из: 1h, 24h, 7d.", e.getMessage());
+	}
+
+	private static Film newFilm(Random random) {
+		Film film = new Film();
+		film.setName("Фильм");
+		film.setDescription("Описание");
+		film.setReleaseDate(LocalDate.of(2000, 1, 1).plusDays(random.nextInt(3650)));
+		film.setDuration(100);
+		return film;
+	}
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Пропускная способность лайков: прямые вызовы хранилища против конвейера с пакетной записью.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class LikePipelineBenchmarkTest {
+
+	private static final int THREADS = 32;
+	private static final int EVENTS_PER_THREAD = 50_000;
+	private static final int FILMS = 100;
+	private static final int USERS = 10_000;
+
+	@Test
+	void likeThroughput() throws Exception {
+		double direct = measureDirect();
+		double pipelineSync = measurePipeline(true);
+		double pipelineAsync = measurePipeline(false);
+		System.out.printf("Лайки, %d потоков: напрямую %.0f/с, конвейер с ожиданием %.0f/с, конвейер без ожидания %.0f/с%n",
+				THREADS, direct, pipelineSync, pipelineAsync);
+	}
+
+	private double measureDirect() throws Exception {
+		InMemoryFilmStorage storage = newStorage();
+		return run(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+				storage.addLike(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS));
+			}
+		});
+	}
+
+	private double measurePipeline(boolean waitEach) throws Exception {
+		InMemoryFilmStorage storage = newStorage();
+		LikePipeline pipeline = new LikePipeline(storage, 4, 65536, 1024, false);
+		try {
+			return run(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				CompletableFuture<Void> last = null;
+				for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+					last = pipeline.submit(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS), true);
+					if (waitEach) {
+						last.join();
+					}
+				}
+				last.join();
+			});
+		} finally {
+			pipeline.stop();
+		}
+	}
+
+	private double run(Runnable task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			long start = System.nanoTime();
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				futures.add(executor.submit(task));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			return THREADS * (double) EVENTS_PER_THREAD / seconds;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static InMemoryFilmStorage newStorage() {
+		InMemoryFilmStorage storage = new InMemoryFilmStorage();
+		for (int i = 0; i < FILMS; i++) {
+			Film film = new Film();
+			film.setName("Фильм " + i);
+			film.setDescription("Описание");
+			film.setReleaseDate(LocalDate.of(2000, 1, 1));
+			film.setDuration(100);
+			storage.addFilm(film);
+		}
+		return storage;
+	}
+}
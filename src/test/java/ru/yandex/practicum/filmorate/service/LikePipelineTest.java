@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.filmIds;
+
+class LikePipelineTest {
+
+	private InMemoryFilmStorage storage;
+	private LikePipeline pipeline;
+
+	@BeforeEach
+	void setUp() {
+		storage = new InMemoryFilmStorage();
+		pipeline = new LikePipeline(storage, 2, 1024, 64, false);
+	}
+
+	@AfterEach
+	void tearDown() {
+		pipeline.stop();
+	}
+
+	@Test
+	void lastEventPerUserWins() {
+		int filmId = storage.addFilm(newFilm()).getId();
+
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		futures.add(pipeline.submit(filmId, 1, true));
+		futures.add(pipeline.submit(filmId, 1, false));
+		futures.add(pipeline.submit(filmId, 2, false));
+		futures.add(pipeline.submit(filmId, 2, true));
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+		assertEquals(IntSet.of(2), storage.getFilmById(filmId).getLikes());
+	}
+
+	@Test
+	void pipelineMatchesDirectApplication() {
+		InMemoryFilmStorage expected = new InMemoryFilmStorage();
+		for (int i = 0; i < 20; i++) {
+			storage.addFilm(newFilm());
+			expected.addFilm(newFilm());
+		}
+
+		Random random = new Random(7);
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (int step = 0; step < 10_000; step++) {
+			int filmId = 1 + random.nextInt(20);
+			int userId = 1 + random.nextInt(30);
+			boolean like = random.nextInt(3) != 0;
+			futures.add(pipeline.submit(filmId, userId, like));
+			if (like) {
+				expected.addLike(filmId, userId);
+			} else {
+				expected.removeLike(filmId, userId);
+			}
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+		for (int filmId = 1; filmId <= 20; filmId++) {
+			assertEquals(expected.getFilmById(filmId).getLikes(), storage.getFilmById(filmId).getLikes());
+		}
+		assertEquals(filmIds(expected.getPopularFilms(10)), filmIds(storage.getPopularFilms(10)));
+	}
+
+	@Test
+	void failureFailsOnlyEventsOfItsFilm() {
+		int failingId = storage.addFilm(newFilm()).getId();
+		int filmId = storage.addFilm(newFilm()).getId();
+		InMemoryFilmStorage failing = new InMemoryFilmStorage() {
+			@Override
+			public void applyLikes(int id, int[] likes, long[] likedAt, int[] unlikes) {
+				if (id == failingId) {
+					throw new IllegalStateException("Сбой хранилища");
+				}
+				storage.applyLikes(id, likes, likedAt, unlikes);
+			}
+		};
+		LikePipeline singleShard = new LikePipeline(failing, 1, 1024, 64, false);
+		try {
+			CompletableFuture<Void> failed = singleShard.submit(failingId, 1, true);
+			CompletableFuture<Void> applied = singleShard.submit(filmId, 1, true);
+
+			assertThrows(CompletionException.class, failed::join);
+			applied.join();
+			assertEquals(IntSet.of(1), storage.getFilmById(filmId).getLikes());
+		} finally {
+			singleShard.stop();
+		}
+	}
+
+	@Test
+	void likeOfDeletedFilmFails() {
+		int filmId = storage.addFilm(newFilm()).getId();
+		storage.deleteFilm(filmId);
+
+		CompletionException e = assertThrows(CompletionException.class, pipeline.submit(filmId, 1, true)::join);
+		assertInstanceOf(IllegalArgumentException.class, e.getCause());
+	}
+
+	@Test
+	void repeatedLikeKeepsFilmVersion() {
+		int filmId = storage.addFilm(newFilm()).getId();
+		pipeline.submit(filmId, 1, true).join();
+		long version = storage.getFilmById(filmId).getVersion();
+
+		pipeline.submit(filmId, 1, true).join();
+		pipeline.submit(filmId, 2, false).join();
+
+		assertEquals(version, storage.getFilmById(filmId).getVersion());
+	}
+
+	@Test
+	void eventsAfterStopAreRejected() {
+		int filmId = storage.addFilm(newFilm()).getId();
+		pipeline.submit(filmId, 1, true).join();
+		pipeline.stop();
+
+		CompletableFuture<Void> rejected = pipeline.submit(filmId, 2, true);
+
+		CompletionException e = assertThrows(CompletionException.class, rejected::join);
+		assertInstanceOf(IllegalStateException.class, e.getCause());
+		assertEquals(IntSet.of(1), storage.getFilmById(filmId).getLikes());
+	}
+
+	private static Film newFilm() {
+		Film film = new Film();
+		film.setName("Фильм");
+		film.setDescription("Описание");
+		film.setReleaseDate(LocalDate.of(2000, 1, 1));
+		film.setDuration(100);
+		return film;
+	}
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+	private MeterRegistry registry;
+
+	@BeforeEach
+	void setUp() {
+		registry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	void repeatedReadsHitTheCache() {
+		ResultCache<Integer, String> cache = new ResultCache<>("test", 64, registry);
+		AtomicInteger loads = new AtomicInteger();
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals("значение", cache.get(1, () -> {
+				loads.incrementAndGet();
+				return "значение";
+			}));
+		}
+
+		assertEquals(1, loads.get());
+		assertEquals(2, requests("hit"), 1e-9);
+		assertEquals(1, requests("miss"), 1e-9);
+	}
+
+	@Test
+	void sizeStaysBoundedAndLeastRecentlyUsedEntriesAreEvicted() {
+		int maxSize = ResultCache.SEGMENTS * 4;
+		ResultCache<Integer, Integer> cache = new ResultCache<>("test", maxSize, registry);
+		cache.get(0, () -> 0);
+		for (int key = 1; key < maxSize * 10; key++) {
+			int value = key;
+			cache.get(key, () -> value);
+			cache.get(0, () -> -1);
+		}
+
+		assertTrue(cache.size() <= maxSize, "Размер кэша: " + cache.size());
+		assertEquals(0, cache.get(0, () -> -1), "Часто читаемый ключ не должен вытесняться.");
+		assertTrue(registry.get("filmorate.cache.evictions").counter().count() > 0);
+	}
+
+	@Test
+	void concurrentMissesAreCollapsedIntoOneLoad() throws Exception {
+		ResultCache<Integer, Integer> cache = new ResultCache<>("test", 64, registry);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		int threads = 16;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			results.add(executor.submit(() -> cache.get(7, () -> {
+				loads.incrementAndGet();
+				loading.countDown();
+				await(release);
+				return 42;
+			})));
+			assertTrue(loading.await(5, TimeUnit.SECONDS));
+			for (int i = 1; i < threads; i++) {
+				results.add(executor.submit(() -> cache.get(7, () -> {
+					loads.incrementAndGet();
+					return -1;
+				})));
+			}
+			release.countDown();
+			for (Future<Integer> result : results) {
+				assertEquals(42, result.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void invalidateIfRemovesOnlyAffectedEntries() {
+		ResultCache<Integer, List<Integer>> cache = new ResultCache<>("test", 64, registry);
+		cache.get(1, () -> List.of(1, 2, 3));
+		cache.get(2, () -> List.of(4, 5));
+
+		cache.invalidateIf((key, ids) -> ids.contains(5));
+
+		assertEquals(List.of(1, 2, 3), cache.get(1, () -> List.of()));
+		assertEquals(List.of(), cache.get(2, () -> List.of()));
+	}
+
+	@Test
+	void failedLoadIsNotCached() {
+		ResultCache<Integer, Integer> cache = new ResultCache<>("test", 64, registry);
+
+		assertThrows(IllegalStateException.class, () -> cache.get(1, () -> {
+			throw new IllegalStateException("Ошибка загрузки");
+		}));
+
+		assertEquals(1, cache.get(1, () -> 1));
+		assertEquals(1, cache.size());
+	}
+
+	private double requests(String result) {
+		return registry.get("filmorate.cache.requests").tag("result", result).counter().count();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
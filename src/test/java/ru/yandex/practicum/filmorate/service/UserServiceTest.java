@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.userIds;
+
+class UserServiceTest {
+
+	private static final int USERS = 40;
+
+	private InMemoryUserStorage userStorage;
+	private LikePipeline likePipeline;
+	private UserService userService;
+
+	@BeforeEach
+	void setUp() {
+		userStorage = new InMemoryUserStorage();
+		InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+		likePipeline = new LikePipeline(filmStorage, 1, 1024, 64, false);
+		Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+		FilmService filmService = new FilmService(filmStorage, userStorage, validator, likePipeline,
+				new SimpleMeterRegistry(), 64);
+		userService = new UserService(userStorage, filmService, validator, new SimpleMeterRegistry(), 64, 64);
+		for (int i = 0; i < USERS; i++) {
+			User user = new User();
+			user.setEmail("user" + i + "@mail.com");
+			user.setLogin("user" + i);
+			user.setBirthday(LocalDate.of(1990, 1, 1));
+			userService.addUser(user);
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		likePipeline.stop();
+	}
+
+	@Test
+	void cachedRecommendationsFollowEveryFriendshipChange() {
+		Random random = new Random(5);
+		for (int step = 0; step < 2_000; step++) {
+			int userId = 1 + random.nextInt(USERS);
+			int friendId = 1 + random.nextInt(USERS);
+			if (userId == friendId || !userStorage.userExists(userId) || !userStorage.userExists(friendId)) {
+				continue;
+			}
+			if (step % 500 == 499) {
+				userService.deleteUser(friendId);
+			} else if (random.nextInt(3) == 0) {
+				userService.removeFriend(userId, friendId);
+			} else {
+				userService.addFriend(userId, friendId);
+			}
+			int readerId = 1 + random.nextInt(USERS);
+			if (userStorage.userExists(readerId)) {
+				int limit = 1 + random.nextInt(8);
+				assertEquals(userIds(userStorage.getFriendRecommendations(readerId, limit)),
+						userIds(userService.getFriendRecommendations(readerId, limit)),
+						"Пользователь " + readerId + ", шаг " + step);
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSearchIndexTest {
+
+	private static final String[] WORDS = {
+			"кино", "драма", "комедия", "история", "любовь", "война", "город", "ночь", "дорога", "море",
+			"space", "love", "night", "city", "road", "war", "time", "dream", "house", "river"
+	};
+
+	private final FilmSearchIndex index = new FilmSearchIndex();
+
+	@Test
+	void tokenizesCyrillicAndLatinText() {
+		assertEquals(List.of("ежик", "в", "тумане", "hedgehog", "in", "the", "fog", "1975"),
+				FilmSearchIndex.tokenize("Ёжик в тумане (Hedgehog in the Fog, 1975)"));
+	}
+
+	@Test
+	void findsFilmsContainingAllTermsRankedByFrequency() {
+		index.add(film(1, "Матрица", "Хакер узнаёт правду о матрице и мире машин."));
+		index.add(film(2, "Матрица: Перезагрузка", "Продолжение. Матрица снова атакует."));
+		index.add(film(3, "Машина времени", "Путешествие во времени."));
+
+		assertArrayEquals(new int[]{2, 1}, index.search("матрица", 10, id -> 0));
+		assertArrayEquals(new int[]{2, 1}, index.search("матрица", Integer.MAX_VALUE, id -> 0));
+		assertArrayEquals(new int[]{3}, index.search("ВРЕМЕНИ машина", 10, id -> 0));
+		assertArrayEquals(new int[0], index.search("матрица времени", 10, id -> 0));
+		assertArrayEquals(new int[0], index.search("...", 10, id -> 0));
+	}
+
+	@Test
+	void popularityBreaksTies() {
+		index.add(film(1, "Дюна", null));
+		index.add(film(2, "Дюна", null));
+		index.add(film(3, "Дюна", null));
+
+		assertArrayEquals(new int[]{2, 3}, index.search("дюна", 2, id -> id == 2 ? 10 : id == 3 ? 5 : 0));
+	}
+
+	@Test
+	void updateAndRemoveChangeResults() {
+		Film original = film(1, "Solaris", "Океан планеты");
+		index.add(original);
+		index.add(film(2, "Сталкер", "Зона"));
+
+		index.update(original, film(1, "Солярис", "Океан планеты"));
+		assertArrayEquals(new int[0], index.search("solaris", 10, id -> 0));
+		assertArrayEquals(new int[]{1}, index.search("солярис океан", 10, id -> 0));
+
+		index.remove(film(2, "Сталкер", "Зона"));
+		assertArrayEquals(new int[0], index.search("зона", 10, id -> 0));
+		assertEquals(3, index.termCount());
+	}
+
+	@Test
+	void prunedSearchMatchesFullScan() {
+		Random random = new Random(9);
+		List<Map<String, Integer>> frequencies = new ArrayList<>();
+		Map<String, Integer> documentFrequencies = new HashMap<>();
+		for (int id = 1; id <= 20_000; id++) {
+			Film film = film(id, words(random, 1 + random.nextInt(3)), words(random, 5 + random.nextInt(10)));
+			index.add(film);
+			Map<String, Integer> tf = new HashMap<>();
+			FilmSearchIndex.tokenize(film.getName())
+					.forEach(term -> tf.merge(term, FilmSearchIndex.NAME_WEIGHT, Integer::sum));
+			FilmSearchIndex.tokenize(film.getDescription()).forEach(term -> tf.merge(term, 1, Integer::sum));
+			tf.keySet().forEach(term -> documentFrequencies.merge(term, 1, Integer::sum));
+			frequencies.add(tf);
+		}
+
+		for (int query = 0; query < 200; query++) {
+			String text = words(random, 1 + random.nextInt(2));
+			List<String> terms = FilmSearchIndex.tokenize(text).stream().distinct().toList();
+			List<double[]> expected = new ArrayList<>();
+			for (int i = 0; i < frequencies.size(); i++) {
+				Map<String, Integer> tf = frequencies.get(i);
+				if (tf.keySet().containsAll(terms)) {
+					double score = 0;
+					for (String term : terms) {
+						score += tf.get(term) * Math.log(1 + (double) frequencies.size() / documentFrequencies.get(term));
+					}
+					expected.add(new double[]{score, (i + 1) % 7, i + 1});
+				}
+			}
+			expected.sort(Comparator.<double[]>comparingDouble(e -> -e[0]).thenComparingDouble(e -> -e[1])
+					.thenComparingDouble(e -> e[2]));
+
+			int[] actual = index.search(text, 5, id -> id % 7);
+			assertEquals(Math.min(5, expected.size()), actual.length, text);
+			for (int i = 0; i < actual.length; i++) {
+				assertEquals((int) expected.get(i)[2], actual[i], text);
+			}
+		}
+	}
+
+	private static String words(Random random, int count) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			int word = (int) Math.min(WORDS.length - 1, Math.exp(random.nextDouble() * Math.log(WORDS.length)) - 1);
+			text.append(i == 0 ? "" : " ").append(WORDS[word]);
+		}
+		return text.toString();
+	}
+
+	private static Film film(int id, String name, String description) {
+		Film film = new Film();
+		film.setId(id);
+		film.setName(name);
+		film.setDescription(description);
+		return film;
+	}
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSimilarityIndexTest {
+
+	private static final int FILMS = 60;
+	private static final int USERS = 40;
+
+	@Test
+	void incrementalUpdatesMatchFullRebuild() {
+		FilmSimilarityIndex incremental = new FilmSimilarityIndex(FILMS, 12);
+		List<Film> films = new ArrayList<>();
+		for (int id = 1; id <= FILMS; id++) {
+			Film film = new Film();
+			film.setId(id);
+			films.add(film);
+		}
+
+		Random random = new Random(5);
+		for (int step = 0; step < 20_000; step++) {
+			Film film = films.get(random.nextInt(FILMS));
+			int userId = 1 + random.nextInt(USERS);
+			if (random.nextInt(5) == 0) {
+				film.addLike(userId);
+				incremental.like(film.getId(), userId);
+			} else {
+				film.removeLike(userId);
+				incremental.unlike(film.getId(), userId);
+			}
+		}
+
+		FilmSimilarityIndex rebuilt = new FilmSimilarityIndex(FILMS, 12);
+		rebuilt.rebuild(films);
+		for (int id = 1; id <= FILMS; id++) {
+			assertArrayEquals(rebuilt.neighbors(id), incremental.neighbors(id), "Соседи фильма " + id);
+		}
+		for (int userId = 1; userId <= USERS; userId++) {
+			assertArrayEquals(rebuilt.recommend(userId, 5), incremental.recommend(userId, 5),
+					"Рекомендации пользователю " + userId);
+		}
+	}
+
+	@Test
+	void recommendationsExcludeLikedFilmsAndFollowCoLikes() {
+		FilmSimilarityIndex index = new FilmSimilarityIndex();
+		index.like(1, 10);
+		index.like(2, 10);
+		index.like(1, 11);
+		index.like(2, 11);
+		index.like(3, 11);
+		index.like(1, 12);
+		index.like(3, 12);
+		index.like(4, 13);
+
+		index.like(1, 20);
+
+		assertArrayEquals(new int[]{2, 3}, index.recommend(20, 10));
+		assertArrayEquals(new int[0], index.recommend(99, 10));
+	}
+
+	@Test
+	void neighborListsStayBounded() {
+		FilmSimilarityIndex index = new FilmSimilarityIndex(3, 100);
+		for (int filmId = 1; filmId <= 20; filmId++) {
+			index.like(filmId, 1);
+		}
+		assertEquals(3, index.neighbors(1).length);
+		assertEquals(3, IntSet.of(index.neighbors(1)).size());
+	}
+
+	@Test
+	void rebuildKeepsLikesOfReverseIndex() {
+		FilmSimilarityIndex index = new FilmSimilarityIndex();
+		index.like(1, 10);
+		index.like(2, 10);
+		index.unlike(1, 10);
+		index.restoreLike(5, 11);
+
+		Film film = new Film();
+		film.setId(3);
+		film.setLikes(IntSet.of(10));
+		index.rebuild(List.of(film));
+
+		assertArrayEquals(new int[]{2, 3}, sorted(index.films(10)));
+		assertTrue(index.contains(11, 5));
+		assertFalse(index.contains(10, 1));
+		index.forgetLike(5, 11);
+		assertArrayEquals(new int[0], index.films(11));
+	}
+
+	@Test
+	void deletedFilmLeavesNeighborLists() {
+		FilmSimilarityIndex index = new FilmSimilarityIndex(2, 100);
+		index.like(2, 1);
+		index.like(3, 1);
+		index.like(2, 2);
+		index.like(4, 2);
+		index.like(2, 3);
+		index.like(1, 3);
+		assertTrue(IntSet.of(index.neighbors(2)).contains(1));
+
+		index.unlike(1, 3);
+		index.deleteFilm(1, IntSet.of(3));
+
+		assertArrayEquals(new int[0], index.neighbors(1));
+		assertFalse(IntSet.of(index.neighbors(2)).contains(1));
+		index.like(4, 5);
+		assertArrayEquals(new int[]{2}, index.recommend(5, 10));
+		assertArrayEquals(new int[0], index.recommend(5, 10, id -> id == 2));
+	}
+
+	private static int[] sorted(int[] values) {
+		Arrays.sort(values);
+		return values;
+	}
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+import static ru.yandex.practicum.filmorate.TestData.userIds;
+
+class FriendRecommenderTest {
+
+	@Test
+	void recommendationsMatchBruteForceRanking() {
+		FriendshipGraph graph = randomGraph(400, 6_000, 3);
+		FriendRecommender sequential = new FriendRecommender(graph, Integer.MAX_VALUE, Integer.MAX_VALUE);
+		FriendRecommender parallel = new FriendRecommender(graph, Integer.MAX_VALUE, 64);
+
+		for (int userId = 1; userId <= 400; userId += 7) {
+			int[] expected = bruteForce(graph, userId, 15);
+			assertArrayEquals(expected, sequential.compute(userId, 15), "Пользователь " + userId);
+			assertArrayEquals(expected, parallel.compute(userId, 15), "Пользователь " + userId);
+		}
+	}
+
+	@Test
+	void traversalStopsAfterVisitBudget() {
+		FriendshipGraph graph = new FriendshipGraph();
+		graph.addEdge(1, 2);
+		graph.addEdge(1, 3);
+		for (int i = 100; i < 200; i++) {
+			graph.addEdge(3, i);
+		}
+		graph.addEdge(2, 50);
+
+		FriendRecommender recommender = new FriendRecommender(graph, 3, Integer.MAX_VALUE);
+
+		int[] result = recommender.compute(1, 10);
+		assertEquals(50, result[0], "Сначала обходятся друзья с меньшим числом связей");
+		assertTrue(result.length <= 3);
+	}
+
+	@Test
+	void cacheIsInvalidatedByFriendshipChanges() {
+		InMemoryUserStorage storage = new InMemoryUserStorage();
+		for (int i = 0; i < 4; i++) {
+			storage.addUser(newUser("user" + i));
+		}
+		storage.addFriend(1, 2);
+		storage.addFriend(2, 3);
+		assertEquals(List.of(3), userIds(storage.getFriendRecommendations(1, 10)));
+
+		storage.addFriend(3, 4);
+		storage.addFriend(2, 4);
+		assertEquals(List.of(3, 4), userIds(storage.getFriendRecommendations(1, 10)));
+
+		storage.addFriend(1, 3);
+		assertEquals(List.of(4), userIds(storage.getFriendRecommendations(1, 10)));
+	}
+
+	private static int[] bruteForce(FriendshipGraph graph, int userId, int limit) {
+		int[] friends = graph.neighbors(userId);
+		Map<Integer, Integer> counts = new HashMap<>();
+		for (int friendId : friends) {
+			for (int candidate : graph.neighbors(friendId)) {
+				if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+					counts.merge(candidate, 1, Integer::sum);
+				}
+			}
+		}
+		List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(counts.entrySet());
+		ranked.sort(Comparator.<Map.Entry<Integer, Integer>>comparingInt(Map.Entry::getValue).reversed()
+				.thenComparingInt(Map.Entry::getKey));
+		return ranked.stream().limit(limit).mapToInt(Map.Entry::getKey).toArray();
+	}
+
+	private static FriendshipGraph randomGraph(int users, int edges, long seed) {
+		Random random = new Random(seed);
+		FriendshipGraph graph = new FriendshipGraph();
+		for (int i = 0; i < edges; i++) {
+			int userId = 1 + random.nextInt(users);
+			int friendId = 1 + random.nextInt(userId < 20 ? users : 60);
+			if (userId != friendId) {
+				graph.addEdge(userId, friendId);
+			}
+		}
+		return graph;
+	}
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendshipGraphTest {
+
+	@Test
+	void neighborsAndCommonNeighborsMatchReferenceSets() {
+		Random random = new Random(11);
+		FriendshipGraph graph = new FriendshipGraph();
+		Map<Integer, Set<Integer>> expected = new HashMap<>();
+		int usersCount = 300;
+
+		for (int step = 0; step < 100_000; step++) {
+			int userId = 1 + random.nextInt(usersCount);
+			int friendId = 1 + random.nextInt(userId < 10 ? usersCount : 40);
+			if (userId == friendId) {
+				continue;
+			}
+			if (random.nextInt(3) > 0) {
+				graph.addEdge(userId, friendId);
+				friends(expected, userId).add(friendId);
+				friends(expected, friendId).add(userId);
+			} else {
+				graph.removeEdge(userId, friendId);
+				friends(expected, userId).remove(friendId);
+				friends(expected, friendId).remove(userId);
+			}
+		}
+
+		for (int userId = 1; userId <= usersCount; userId++) {
+			assertArrayEquals(toArray(friends(expected, userId)), graph.neighbors(userId));
+			assertEquals(friends(expected, userId).size(), graph.degree(userId));
+			for (int otherId = 1; otherId <= usersCount; otherId += 17) {
+				Set<Integer> common = new TreeSet<>(friends(expected, userId));
+				common.retainAll(friends(expected, otherId));
+				assertArrayEquals(toArray(common), graph.commonNeighbors(userId, otherId),
+						"Общие друзья " + userId + " и " + otherId);
+			}
+		}
+	}
+
+	@Test
+	void gallopingIntersectionFindsAllCommonValues() {
+		int[] large = new int[10_000];
+		for (int i = 0; i < large.length; i++) {
+			large[i] = i * 3;
+		}
+		int[] small = {0, 2, 3, 299, 300, 29_997, 30_000};
+		int[] result = new int[small.length];
+
+		int count = FriendshipGraph.gallopingIntersect(small, large, result);
+
+		assertEquals(4, count);
+		assertArrayEquals(new int[]{0, 3, 300, 29_997}, Arrays.copyOf(result, count));
+	}
+
+	private static Set<Integer> friends(Map<Integer, Set<Integer>> graph, int userId) {
+		return graph.computeIfAbsent(userId, id -> new TreeSet<>());
+	}
+
+	private static int[] toArray(Set<Integer> values) {
+		return values.stream().mapToInt(Integer::intValue).toArray();
+	}
+}
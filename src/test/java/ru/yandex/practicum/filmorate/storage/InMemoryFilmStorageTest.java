@@ -0,0 +1,232 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.filmIds;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+
+class InMemoryFilmStorageTest {
+
+	private InMemoryFilmStorage storage;
+
+	@BeforeEach
+	void setUp() {
+		storage = new InMemoryFilmStorage();
+	}
+
+	@Test
+	void popularFilmsMatchFullSortAfterRandomLikes() {
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			storage.addFilm(newFilm("Фильм " + i));
+		}
+
+		for (int step = 0; step < 20_000; step++) {
+			int filmId = 1 + random.nextInt(200);
+			int userId = 1 + random.nextInt(50);
+			if (storage.getFilmById(filmId) == null) {
+				continue;
+			}
+			if (random.nextInt(3) == 0) {
+				storage.removeLike(filmId, userId);
+			} else {
+				storage.addLike(filmId, userId);
+			}
+			if (step % 5_000 == 0) {
+				storage.deleteFilm(filmId);
+				storage.addFilm(newFilm("Новый фильм " + step));
+			}
+		}
+
+		for (int count : new int[]{0, 1, 10, 57, 200, 500}) {
+			assertEquals(fullSort(count), filmIds(storage.getPopularFilms(count)),
+					"Индекс популярности должен совпадать с полной сортировкой, count = " + count);
+		}
+	}
+
+	@Test
+	void popularFilmsFollowUpdatedLikes() {
+		Film first = storage.addFilm(newFilm("Первый"));
+		Film second = storage.addFilm(newFilm("Второй"));
+		storage.addLike(second.getId(), 1);
+
+		Film replacement = newFilm("Первый, обновлённый");
+		replacement.setId(first.getId());
+		replacement.addLike(1);
+		replacement.addLike(2);
+		storage.updateFilm(replacement);
+
+		assertEquals(List.of(first.getId(), second.getId()), filmIds(storage.getPopularFilms(10)));
+	}
+
+	@Test
+	void rangeQueriesMatchFullScanAfterUpdatesAndDeletes() {
+		Random random = new Random(7);
+		for (int i = 0; i < 300; i++) {
+			storage.addFilm(newFilm("Фильм " + i, LocalDate.of(1990, 1, 1).plusDays(random.nextInt(10_000)),
+					60 + random.nextInt(120)));
+		}
+		for (int step = 0; step < 500; step++) {
+			int filmId = 1 + random.nextInt(300);
+			if (storage.getFilmById(filmId) == null) {
+				continue;
+			}
+			if (random.nextInt(10) == 0) {
+				storage.deleteFilm(filmId);
+			} else if (random.nextBoolean()) {
+				Film replacement = newFilm("Обновлённый " + step,
+						LocalDate.of(1990, 1, 1).plusDays(random.nextInt(10_000)), 60 + random.nextInt(120));
+				replacement.setId(filmId);
+				storage.updateFilm(replacement);
+			} else {
+				storage.addLike(filmId, 1 + random.nextInt(20));
+			}
+		}
+
+		List<FilmFilter> filters = List.of(
+				new FilmFilter(LocalDate.of(1995, 1, 1), LocalDate.of(2000, 12, 31), null, null),
+				new FilmFilter(null, LocalDate.of(1993, 6, 1), null, null),
+				new FilmFilter(null, null, 90, 120),
+				new FilmFilter(null, null, 150, null),
+				new FilmFilter(LocalDate.of(2000, 1, 1), null, 100, 140));
+		for (FilmFilter filter : filters) {
+			List<Film> matching = storage.getAllFilms().stream().filter(filter::matches).collect(Collectors.toList());
+			assertEquals(matching.stream().map(Film::getId).sorted().collect(Collectors.toList()),
+					filmIds(storage.findFilms(filter, Integer.MAX_VALUE)).stream().sorted()
+							.collect(Collectors.toList()),
+					"Диапазонный запрос должен совпадать с полным перебором: " + filter);
+			assertEquals(matching.stream()
+							.sorted(Comparator.comparingInt(Film::getLikesCount).reversed()
+									.thenComparingInt(Film::getId))
+							.limit(5)
+							.map(Film::getId)
+							.collect(Collectors.toList()),
+					filmIds(storage.getPopularFilms(filter, 5)),
+					"Популярные в диапазоне должны совпадать с полной сортировкой: " + filter);
+			assertEquals(matching.size(), storage.getPopularFilms(filter, Integer.MAX_VALUE).size());
+		}
+	}
+
+	@Test
+	void rangeQueryFollowsIndexOrderAndLimit() {
+		Film late = storage.addFilm(newFilm("Поздний", LocalDate.of(2010, 5, 1), 90));
+		Film early = storage.addFilm(newFilm("Ранний", LocalDate.of(2001, 5, 1), 90));
+		storage.addFilm(newFilm("Вне диапазона", LocalDate.of(1999, 5, 1), 90));
+		FilmFilter filter = new FilmFilter(LocalDate.of(2000, 1, 1), null, null, null);
+
+		assertEquals(List.of(early.getId(), late.getId()), filmIds(storage.findFilms(filter, 10)));
+		assertEquals(List.of(early.getId()), filmIds(storage.findFilms(filter, 1)));
+
+		Film moved = newFilm("Ранний", LocalDate.of(1980, 1, 1), 90);
+		moved.setId(early.getId());
+		storage.updateFilm(moved);
+
+		assertEquals(List.of(late.getId()), filmIds(storage.findFilms(filter, 10)));
+	}
+
+	@Test
+	void everyMutationBumpsFilmAndStorageVersions() {
+		Film film = storage.addFilm(newFilm("Фильм"));
+		Film other = storage.addFilm(newFilm("Другой"));
+		long version = storage.getFilmVersion(film.getId());
+		long total = storage.getVersion();
+		assertTrue(version > 0);
+
+		storage.addLike(film.getId(), 1);
+		assertTrue(storage.getFilmVersion(film.getId()) > version, "Лайк должен менять версию фильма.");
+		version = storage.getFilmVersion(film.getId());
+
+		storage.applyLikes(film.getId(), new int[]{2}, new long[]{0}, new int[]{1});
+		assertTrue(storage.getFilmVersion(film.getId()) > version, "Пачка лайков должна менять версию фильма.");
+		version = storage.getFilmVersion(film.getId());
+
+		Film replacement = newFilm("Фильм, обновлённый");
+		replacement.setId(film.getId());
+		storage.updateFilm(replacement);
+		assertTrue(storage.getFilmVersion(film.getId()) > version, "Обновление должно менять версию фильма.");
+		assertTrue(storage.getVersion() > total);
+
+		total = storage.getVersion();
+		storage.deleteFilm(other.getId());
+		assertTrue(storage.getVersion() > total, "Удаление должно менять общую версию.");
+		assertEquals(0, storage.getFilmVersion(other.getId()));
+	}
+
+	@Test
+	void removingUserLikesCascadesToFilmsAndPopularity() {
+		Random random = new Random(17);
+		for (int i = 0; i < 100; i++) {
+			storage.addFilm(newFilm("Фильм " + i));
+		}
+		for (int step = 0; step < 3_000; step++) {
+			storage.addLike(1 + random.nextInt(100), 1 + random.nextInt(20));
+		}
+		int deletedUser = 7;
+		List<Integer> liked = storage.getAllFilms().stream()
+				.filter(film -> film.getLikes().contains(deletedUser))
+				.map(Film::getId)
+				.collect(Collectors.toList());
+		long totalLikes = storage.getTotalLikes();
+
+		int[] affected = storage.removeUserLikes(deletedUser);
+
+		assertEquals(liked, Arrays.stream(affected).sorted().boxed().collect(Collectors.toList()));
+		assertEquals(totalLikes - liked.size(), storage.getTotalLikes());
+		assertTrue(storage.getAllFilms().stream().noneMatch(film -> film.getLikes().contains(deletedUser)));
+		assertEquals(fullSort(100), filmIds(storage.getPopularFilms(100)));
+		assertEquals(0, storage.removeUserLikes(deletedUser).length, "Повторное снятие ничего не меняет.");
+		assertEquals(0, storage.repairLikes(userId -> userId != deletedUser), "Обратный индекс согласован.");
+	}
+
+	@Test
+	void repairRemovesLikesOfMissingUsers() {
+		Film film = storage.addFilm(newFilm("Фильм"));
+		storage.addLike(film.getId(), 1);
+		storage.addLike(film.getId(), 2);
+
+		assertEquals(1, storage.repairLikes(userId -> userId == 1));
+
+		assertEquals(IntSet.of(1), storage.getFilmById(film.getId()).getLikes());
+		assertEquals(1, storage.getTotalLikes());
+		assertEquals(0, storage.repairLikes(userId -> userId == 1));
+	}
+
+	private List<Integer> fullSort(int count) {
+		return storage.getAllFilms().stream()
+				.sorted(Comparator.comparingInt(Film::getLikesCount).reversed()
+						.thenComparingInt(Film::getId))
+				.limit(count)
+				.map(Film::getId)
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	void callerChangesDoNotReachPublishedFilm() {
+		Film film = storage.addFilm(newFilm("Фильм"));
+		film.setName("Изменено");
+		film.addLike(5);
+
+		assertEquals("Фильм", storage.getFilmById(film.getId()).getName());
+		assertEquals(0, storage.getFilmById(film.getId()).getLikesCount());
+		assertEquals(storage.getFilmById(film.getId()).getVersion(), film.getVersion());
+
+		Film update = newFilm("Обновлённый");
+		update.setId(film.getId());
+		storage.updateFilm(update);
+		update.setName("Снова изменено");
+
+		assertEquals("Обновлённый", storage.getFilmById(film.getId()).getName());
+	}
+}
@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStorageConcurrencyTest {
+
+	private static final int THREADS = 16;
+	private static final int OPERATIONS_PER_THREAD = 2_000;
+
+	@Test
+	void concurrentAddsProduceUniqueIds() throws Exception {
+		InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+		InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+				filmStorage.addFilm(newFilm());
+				userStorage.addUser(newUser());
+			}
+		});
+
+		int expected = THREADS * OPERATIONS_PER_THREAD;
+		assertEquals(expected, filmStorage.getAllFilms().size(), "Фильмы не должны теряться.");
+		assertEquals(expected, userStorage.getAllUsers().size(), "Пользователи не должны теряться.");
+
+		Set<Integer> filmIds = new HashSet<>();
+		filmStorage.getAllFilms().forEach(film -> filmIds.add(film.getId()));
+		assertEquals(expected, filmIds.size(), "ID фильмов не должны повторяться.");
+	}
+
+	@Test
+	void concurrentLikesAreNotLost() throws Exception {
+		InMemoryFilmStorage storage = new InMemoryFilmStorage();
+		int filmsCount = 8;
+		for (int i = 0; i < filmsCount; i++) {
+			storage.addFilm(newFilm());
+		}
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+				int userId = thread * OPERATIONS_PER_THREAD + i + 1;
+				storage.addLike(1 + i % filmsCount, userId);
+			}
+		});
+
+		int total = 0;
+		for (Film film : storage.getAllFilms()) {
+			total += film.getLikesCount();
+		}
+		assertEquals(THREADS * OPERATIONS_PER_THREAD, total, "Лайки не должны теряться.");
+
+		List<Film> popular = storage.getPopularFilms(filmsCount);
+		assertEquals(filmsCount, popular.size(), "Индекс популярности должен содержать все фильмы.");
+		for (int i = 1; i < popular.size(); i++) {
+			assertTrue(popular.get(i - 1).getLikesCount() >= popular.get(i).getLikesCount());
+		}
+	}
+
+	@Test
+	void concurrentFriendshipsStaySymmetric() throws Exception {
+		InMemoryUserStorage storage = new InMemoryUserStorage();
+		int usersCount = 64;
+		for (int i = 0; i < usersCount; i++) {
+			storage.addUser(newUser());
+		}
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+				int userId = 1 + (thread * 7 + i) % usersCount;
+				int friendId = 1 + (i * 13 + thread) % usersCount;
+				if (userId == friendId) {
+					continue;
+				}
+				if (i % 5 == 0) {
+					storage.removeFriend(userId, friendId);
+				} else {
+					storage.addFriend(userId, friendId);
+				}
+			}
+		});
+
+		for (User user : storage.getAllUsers()) {
+			user.getFriends().forEach(friendId -> {
+				User friend = storage.getUserById(friendId);
+				assertTrue(friend.getFriends().contains(user.getId()),
+						"Дружба должна быть взаимной: " + user.getId() + " и " + friendId);
+			});
+		}
+	}
+
+	@Test
+	void publishedFilmsDoNotChangeUnderConcurrentWrites() throws Exception {
+		InMemoryFilmStorage storage = new InMemoryFilmStorage();
+		int filmsCount = 8;
+		for (int i = 0; i < filmsCount; i++) {
+			storage.addFilm(newFilm());
+		}
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+				if (thread % 2 == 0) {
+					int userId = thread * OPERATIONS_PER_THREAD + i + 1;
+					storage.addLike(1 + i % filmsCount, userId);
+					if (i % 3 == 0) {
+						storage.removeLike(1 + i % filmsCount, userId);
+					}
+					continue;
+				}
+				List<Film> snapshot = storage.getAllFilms();
+				long version = storage.getVersion();
+				int[] counts = new int[filmsCount];
+				for (int j = 0; j < filmsCount; j++) {
+					counts[j] = snapshot.get(j).getLikesCount();
+				}
+				for (int j = 0; j < filmsCount; j++) {
+					Film film = snapshot.get(j);
+					assertEquals(counts[j], film.getLikesCount(), "Опубликованный фильм не должен меняться.");
+					assertEquals(counts[j], film.getLikes().toArray().length, "Лайки должны читаться целиком.");
+					assertTrue(film.getVersion() <= version, "Версия хранилища не должна отставать от данных.");
+				}
+				assertEquals(filmsCount, snapshot.size());
+			}
+		});
+	}
+
+	private static void runConcurrently(ThreadTask task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				Callable<Void> callable = () -> {
+					start.await();
+					task.run(thread);
+					return null;
+				};
+				futures.add(executor.submit(callable));
+			}
+			start.countDown();
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Film newFilm() {
+		Film film = new Film();
+		film.setName("Фильм");
+		film.setReleaseDate(LocalDate.of(2000, 1, 1));
+		film.setDuration(100);
+		return film;
+	}
+
+	private static User newUser() {
+		User user = new User();
+		user.setEmail("user@mail.com");
+		user.setLogin("login");
+		user.setBirthday(LocalDate.of(2000, 1, 1));
+		return user;
+	}
+
+	@FunctionalInterface
+	private interface ThreadTask {
+		void run(int thread);
+	}
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+class InMemoryUserStorageTest {
+
+	private InMemoryUserStorage storage;
+
+	@BeforeEach
+	void setUp() {
+		storage = new InMemoryUserStorage();
+	}
+
+	@Test
+	void versionsStartFromClock() {
+		Instant now = Instant.parse("2024-03-01T00:00:00Z");
+		InMemoryUserStorage clocked = new InMemoryUserStorage(Clock.fixed(now, ZoneOffset.UTC));
+
+		User user = clocked.addUser(newUser("clocked"));
+
+		assertEquals(now.toEpochMilli() * 1000 + 1, user.getVersion());
+	}
+
+	@Test
+	void deletingUserRemovesHimFromFriendsOfFriends() {
+		Random random = new Random(9);
+		for (int i = 0; i < 50; i++) {
+			storage.addUser(newUser("user" + i));
+		}
+		for (int step = 0; step < 400; step++) {
+			int userId = 1 + random.nextInt(50);
+			int friendId = 1 + random.nextInt(50);
+			if (userId != friendId) {
+				storage.addFriend(userId, friendId);
+			}
+		}
+		int deletedId = 5;
+		int[] friends = storage.getUserById(deletedId).getFriends().toArray();
+		long friendships = storage.getFriendshipsCount();
+
+		storage.deleteUser(deletedId);
+
+		assertFalse(storage.userExists(deletedId));
+		assertEquals(friendships - friends.length, storage.getFriendshipsCount());
+		for (User user : storage.getAllUsers()) {
+			assertFalse(user.getFriends().contains(deletedId), "Пользователь " + user.getId());
+			user.getFriends().forEach(friendId ->
+					assertTrue(storage.getUserById(friendId).getFriends().contains(user.getId())));
+		}
+		for (int friendId : friends) {
+			assertFalse(storage.getFriends(friendId).stream().anyMatch(friend -> friend.getId() == deletedId));
+		}
+		assertEquals(0, storage.repairFriendships(), "После каскада расхождений нет.");
+	}
+
+	@Test
+	void repairDropsFriendshipsRestoredWithMissingUser() {
+		User first = newUser("first");
+		first.setId(1);
+		first.setFriends(IntSet.of(2, 3));
+		storage.restoreUser(first);
+		User second = newUser("second");
+		second.setId(2);
+		second.setFriends(IntSet.of(1));
+		storage.restoreUser(second);
+
+		assertEquals(1, storage.repairFriendships());
+
+		assertEquals(IntSet.of(2), storage.getUserById(1).getFriends());
+		assertEquals(1, storage.getFriendshipsCount());
+		assertEquals(0, storage.repairFriendships());
+	}
+}
@@ -0,0 +1,193 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.filmIds;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+class JdbcFilmStorageTest {
+	private static final Instant NOW = Instant.parse("2024-05-01T12:00:00Z");
+
+	private EmbeddedDatabase database;
+	private JdbcFilmStorage storage;
+	private JdbcUserStorage userStorage;
+
+	@BeforeEach
+	void setUp() {
+		database = new EmbeddedDatabaseBuilder()
+				.generateUniqueName(true)
+				.setType(EmbeddedDatabaseType.H2)
+				.addScript("schema.sql")
+				.build();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+		storage = new JdbcFilmStorage(jdbcTemplate, transactionTemplate, Clock.fixed(NOW, ZoneOffset.UTC));
+		userStorage = new JdbcUserStorage(jdbcTemplate, transactionTemplate);
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			users.add(newUser("user" + i));
+		}
+		userStorage.addUsers(users);
+	}
+
+	@AfterEach
+	void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	void popularFilmsMatchFullSortAfterRandomLikes() {
+		Random random = new Random(42);
+		List<Film> films = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			films.add(newFilm("Фильм " + i, LocalDate.of(1990 + i % 30, 1, 1), 60 + i));
+		}
+		storage.addFilms(films);
+		for (int step = 0; step < 1_500; step++) {
+			int filmId = films.get(random.nextInt(films.size())).getId();
+			int userId = 1 + random.nextInt(20);
+			if (random.nextInt(3) == 0) {
+				storage.removeLike(filmId, userId);
+			} else {
+				storage.addLike(filmId, userId);
+			}
+		}
+
+		for (int count : new int[]{0, 1, 10, 57, 100, 500}) {
+			assertEquals(fullSort(storage.getAllFilms(), count), filmIds(storage.getPopularFilms(count)));
+			List<Film> notLiked = storage.getAllFilms().stream()
+					.filter(film -> !film.getLikes().contains(3))
+					.collect(Collectors.toList());
+			assertEquals(fullSort(notLiked, count), filmIds(storage.getPopularFilmsNotLikedBy(3, count)));
+		}
+		FilmFilter filter = new FilmFilter(LocalDate.of(2000, 1, 1), LocalDate.of(2010, 1, 1), null, 130);
+		List<Film> matching = storage.getAllFilms().stream().filter(filter::matches).collect(Collectors.toList());
+		assertEquals(fullSort(matching, 10), filmIds(storage.getPopularFilms(filter, 10)));
+		assertEquals(matching.stream()
+						.sorted(Comparator.comparing(Film::getReleaseDate).thenComparingInt(Film::getId))
+						.map(Film::getId)
+						.collect(Collectors.toList()),
+				filmIds(storage.findFilms(filter, Integer.MAX_VALUE)));
+		assertEquals(storage.getAllFilms().stream().mapToLong(Film::getLikesCount).sum(), storage.getTotalLikes());
+	}
+
+	@Test
+	void pagesLoadLikesOfEveryFilm() {
+		List<Film> films = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			Film film = newFilm("Фильм " + i, LocalDate.of(2000, 1, 1), 100);
+			film.setLikes(IntSet.of(1 + i % 20, 1 + (i * 7) % 20));
+			films.add(film);
+		}
+		storage.addFilms(films);
+
+		List<Film> page = storage.getFilmsPage(films.get(9).getId(), 10);
+
+		assertEquals(filmIds(films.subList(10, 20)), filmIds(page));
+		for (int i = 0; i < page.size(); i++) {
+			assertEquals(films.get(10 + i).getLikes(), page.get(i).getLikes());
+		}
+		int[] requested = {films.get(3).getId(), films.get(1).getId(), films.get(3).getId(), -1};
+		assertEquals(List.of(films.get(3).getId(), films.get(1).getId()), filmIds(storage.getFilmsByIds(requested)));
+	}
+
+	@Test
+	void removingUserLikesReturnsAffectedFilms() {
+		Film first = storage.addFilm(newFilm("Первый", LocalDate.of(2000, 1, 1), 100));
+		Film second = storage.addFilm(newFilm("Второй", LocalDate.of(2000, 1, 1), 100));
+		storage.addLike(first.getId(), 7);
+		storage.addLike(second.getId(), 7);
+		storage.addLike(second.getId(), 8);
+		long version = storage.getFilmVersion(second.getId());
+
+		int[] affected = storage.removeUserLikes(7);
+
+		Arrays.sort(affected);
+		assertArrayEquals(new int[]{first.getId(), second.getId()}, affected);
+		assertEquals(IntSet.of(8), storage.getFilmById(second.getId()).getLikes());
+		assertTrue(storage.getFilmVersion(second.getId()) > version);
+		assertEquals(0, storage.removeUserLikes(7).length);
+	}
+
+	@Test
+	void appliedLikesSkipDeletedUsers() {
+		Film film = storage.addFilm(newFilm("Фильм", LocalDate.of(2000, 1, 1), 100));
+		userStorage.deleteUser(3);
+		long now = NOW.toEpochMilli();
+
+		storage.applyLikes(film.getId(), new int[]{1, 2, 3}, new long[]{now, now, now}, new int[]{2});
+
+		assertEquals(IntSet.of(1), storage.getFilmById(film.getId()).getLikes());
+		long version = storage.getFilmVersion(film.getId());
+		storage.applyLikes(film.getId(), new int[]{1, 3}, new long[]{now, now}, new int[]{2});
+		assertEquals(version, storage.getFilmVersion(film.getId()), "Пачка без изменений не меняет версию.");
+		assertThrows(IllegalArgumentException.class,
+				() -> storage.applyLikes(-1, new int[]{1}, new long[]{now}, new int[0]));
+	}
+
+	@Test
+	void searchRanksNameAboveDescription() {
+		Film inName = newFilm("Летят журавли", LocalDate.of(1957, 10, 12), 97);
+		Film inDescription = newFilm("Фильм", LocalDate.of(1957, 10, 12), 97);
+		inDescription.setDescription("Журавли летят на юг");
+		Film partial = newFilm("Журавли", LocalDate.of(1957, 10, 12), 97);
+		storage.addFilms(new ArrayList<>(List.of(inDescription, inName, partial)));
+
+		assertEquals(List.of(inName.getId(), inDescription.getId()),
+				filmIds(storage.searchFilms("летят ЖУРАВЛИ", 10)));
+		assertEquals(List.of(), storage.searchFilms("Летят утки", 10));
+
+		partial.setName("Журавли летят");
+		storage.updateFilm(partial);
+		assertEquals(3, storage.searchFilms("журавли летят", 10).size());
+	}
+
+	@Test
+	void trendingCountsOnlyLikesInsideWindow() {
+		Film recent = storage.addFilm(newFilm("Свежий", LocalDate.of(2000, 1, 1), 100));
+		Film old = storage.addFilm(newFilm("Старый", LocalDate.of(2000, 1, 1), 100));
+		long now = NOW.toEpochMilli();
+		storage.addLike(recent.getId(), 1, now - Duration.ofMinutes(10).toMillis());
+		for (int userId = 2; userId <= 5; userId++) {
+			storage.addLike(old.getId(), userId, now - Duration.ofHours(5).toMillis());
+		}
+
+		assertEquals(List.of(recent.getId()), filmIds(storage.getTrendingFilms(Duration.ofHours(1), 10)));
+		assertEquals(List.of(old.getId(), recent.getId()), filmIds(storage.getTrendingFilms(Duration.ofHours(24), 10)));
+	}
+
+	private static List<Integer> fullSort(List<Film> films, int count) {
+		return films.stream()
+				.sorted(Comparator.comparingInt(Film::getLikesCount).reversed()
+						.thenComparingInt(Film::getId))
+				.limit(count)
+				.map(Film::getId)
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+import static ru.yandex.practicum.filmorate.TestData.userIds;
+
+class JdbcUserStorageTest {
+
+	private EmbeddedDatabase database;
+	private JdbcUserStorage storage;
+	private InMemoryUserStorage expected;
+
+	@BeforeEach
+	void setUp() {
+		database = new EmbeddedDatabaseBuilder()
+				.generateUniqueName(true)
+				.setType(EmbeddedDatabaseType.H2)
+				.addScript("schema.sql")
+				.build();
+		storage = new JdbcUserStorage(new JdbcTemplate(database),
+				new TransactionTemplate(new DataSourceTransactionManager(database)));
+		expected = new InMemoryUserStorage();
+	}
+
+	@AfterEach
+	void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	void friendQueriesMatchInMemoryStorage() {
+		Random random = new Random(9);
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			users.add(newUser("user" + i));
+			expected.addUser(newUser("user" + i));
+		}
+		storage.addUsers(users);
+		for (int step = 0; step < 300; step++) {
+			int userId = 1 + random.nextInt(40);
+			int friendId = 1 + random.nextInt(40);
+			if (userId == friendId) {
+				continue;
+			}
+			if (random.nextInt(4) == 0) {
+				storage.removeFriend(userId, friendId);
+				expected.removeFriend(userId, friendId);
+			} else {
+				storage.addFriend(userId, friendId);
+				expected.addFriend(userId, friendId);
+			}
+		}
+
+		assertEquals(expected.getFriendshipsCount(), storage.getFriendshipsCount());
+		for (int userId = 1; userId <= 40; userId++) {
+			assertEquals(expected.getUserById(userId).getFriends(), storage.getUserById(userId).getFriends());
+			assertEquals(userIds(expected.getFriends(userId)), userIds(storage.getFriends(userId)));
+			int otherUserId = 1 + userId % 40;
+			assertEquals(userIds(expected.getCommonFriends(userId, otherUserId)),
+					userIds(storage.getCommonFriends(userId, otherUserId)));
+			assertEquals(userIds(expected.getFriendRecommendations(userId, 5)),
+					userIds(storage.getFriendRecommendations(userId, 5)), "Пользователь " + userId);
+		}
+	}
+
+	@Test
+	void deletingUserRemovesHimFromFriendsAndChangesTheirVersions() {
+		User first = storage.addUser(newUser("first"));
+		User second = storage.addUser(newUser("second"));
+		User third = storage.addUser(newUser("third"));
+		storage.addFriend(first.getId(), second.getId());
+		storage.addFriend(first.getId(), third.getId());
+		long friendsVersion = storage.getFriendsVersion(second.getId());
+
+		storage.deleteUser(first.getId());
+
+		assertFalse(storage.userExists(first.getId()));
+		assertEquals(new IntSet(), storage.getUserById(second.getId()).getFriends());
+		assertEquals(List.of(), storage.getFriends(third.getId()));
+		assertEquals(0, storage.getFriendshipsCount());
+		assertTrue(storage.getFriendsVersion(second.getId()) > friendsVersion);
+		assertEquals(0, storage.getFriendsVersion(first.getId()));
+		assertThrows(IllegalArgumentException.class, () -> storage.deleteUser(first.getId()));
+	}
+
+	@Test
+	void updatingFriendChangesFriendsVersion() {
+		User user = storage.addUser(newUser("user"));
+		User friend = storage.addUser(newUser("friend"));
+		storage.addFriend(user.getId(), friend.getId());
+		long friendsVersion = storage.getFriendsVersion(user.getId());
+
+		friend.setName("Друг");
+		User updated = storage.updateUser(friend);
+
+		assertEquals(IntSet.of(user.getId()), updated.getFriends());
+		assertEquals("Друг", storage.getUserById(friend.getId()).getName());
+		assertTrue(storage.getFriendsVersion(user.getId()) > friendsVersion);
+		User missing = newUser("missing");
+		missing.setId(100);
+		assertThrows(IllegalArgumentException.class, () -> storage.updateUser(missing));
+	}
+}
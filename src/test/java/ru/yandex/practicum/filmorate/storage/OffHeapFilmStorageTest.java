@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.filmIds;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+
+class OffHeapFilmStorageTest {
+
+	private OffHeapFilmStorage storage;
+	private InMemoryFilmStorage expected;
+
+	@BeforeEach
+	void setUp() {
+		storage = new OffHeapFilmStorage();
+		expected = new InMemoryFilmStorage();
+	}
+
+	@Test
+	void scansMatchInMemoryStorageAfterRandomChanges() {
+		Random random = new Random(11);
+		List<Film> films = new ArrayList<>();
+		List<Film> copies = new ArrayList<>();
+		for (int i = 0; i < 1_500; i++) {
+			Film film = newFilm("Фильм " + i, i % 50 == 0 ? null : LocalDate.of(1990, 1, 1).plusDays(random.nextInt(10_000)),
+					60 + random.nextInt(120));
+			films.add(film);
+			copies.add(film.copy());
+		}
+		storage.addFilms(films);
+		expected.addFilms(copies);
+		for (int step = 0; step < 20_000; step++) {
+			int filmId = 1 + random.nextInt(1_600);
+			int userId = 1 + random.nextInt(100);
+			if (expected.getFilmById(filmId) == null) {
+				continue;
+			}
+			switch (random.nextInt(20)) {
+				case 0 -> {
+					storage.deleteFilm(filmId);
+					expected.deleteFilm(filmId);
+					storage.addFilm(newFilm("Новый " + step, LocalDate.of(2000, 1, 1), 90));
+					expected.addFilm(newFilm("Новый " + step, LocalDate.of(2000, 1, 1), 90));
+				}
+				case 1 -> {
+					Film film = newFilm("Обновлённый " + step, LocalDate.of(1995, 6, 1).plusDays(step % 300), 100);
+					film.setId(filmId);
+					film.setLikes(IntSet.of(userId, userId + 1));
+					storage.updateFilm(film.copy());
+					expected.updateFilm(film);
+				}
+				case 2, 3, 4, 5 -> {
+					storage.removeLike(filmId, userId);
+					expected.removeLike(filmId, userId);
+				}
+				default -> {
+					storage.addLike(filmId, userId);
+					expected.addLike(filmId, userId);
+				}
+			}
+		}
+		assertArrayEquals(sorted(expected.removeUserLikes(7)), sorted(storage.removeUserLikes(7)));
+
+		assertEquals(fields(expected.getAllFilms()), fields(storage.getAllFilms()));
+		assertEquals(expected.getFilmsCount(), storage.getFilmsCount());
+		assertEquals(expected.getTotalLikes(), storage.getTotalLikes());
+		for (int count : new int[]{0, 1, 10, 57, 1_500, 5_000}) {
+			assertEquals(filmIds(expected.getPopularFilms(count)), filmIds(storage.getPopularFilms(count)),
+					"count = " + count);
+			assertEquals(filmIds(expected.getPopularFilmsNotLikedBy(3, count)),
+					filmIds(storage.getPopularFilmsNotLikedBy(3, count)), "count = " + count);
+		}
+		List<FilmFilter> filters = List.of(
+				new FilmFilter(LocalDate.of(1995, 1, 1), LocalDate.of(2000, 1, 1), null, null),
+				new FilmFilter(null, LocalDate.of(1993, 1, 1), 90, 120),
+				new FilmFilter(null, null, 100, null),
+				FilmFilter.NONE);
+		for (FilmFilter filter : filters) {
+			assertEquals(filmIds(expected.getPopularFilms(filter, 20)), filmIds(storage.getPopularFilms(filter, 20)),
+					filter.toString());
+			assertEquals(filmIds(expected.findFilms(filter, 200)), filmIds(storage.findFilms(filter, 200)),
+					filter.toString());
+		}
+		assertEquals(filmIds(expected.searchFilms("обновлённый", 10)),
+				filmIds(storage.searchFilms("обновлённый", 10)));
+		assertEquals(filmIds(expected.getFilmsPage(700, 25)), filmIds(storage.getFilmsPage(700, 25)));
+	}
+
+	@Test
+	void filmsAreDetachedFromColumns() {
+		Film film = storage.addFilm(newFilm("Фильм", LocalDate.of(2000, 1, 1), 100));
+		long version = storage.getFilmVersion(film.getId());
+
+		Film found = storage.getFilmById(film.getId());
+		found.addLike(5);
+		found.setName("Изменено");
+
+		assertEquals(IntSet.of(), storage.getFilmById(film.getId()).getLikes());
+		assertEquals("Фильм", storage.getFilmById(film.getId()).getName());
+		storage.addLike(film.getId(), 5);
+		assertTrue(storage.getFilmVersion(film.getId()) > version);
+		assertEquals(storage.getFilmVersion(film.getId()), storage.getVersion());
+	}
+
+	@Test
+	void missingFilmsAreReported() {
+		Film film = storage.addFilm(newFilm("Фильм", LocalDate.of(2000, 1, 1), 100));
+		storage.deleteFilm(film.getId());
+
+		assertNull(storage.getFilmById(film.getId()));
+		assertEquals(0, storage.getFilmVersion(film.getId()));
+		assertNull(storage.getFilmById(0));
+		assertThrows(IllegalArgumentException.class, () -> storage.addLike(film.getId(), 1));
+		assertThrows(IllegalArgumentException.class, () -> storage.updateFilm(film));
+		assertThrows(IllegalArgumentException.class,
+				() -> storage.applyLikes(film.getId(), new int[]{1}, new long[]{0}, new int[0]));
+		assertEquals(0, storage.getTotalLikes());
+	}
+
+	@Test
+	void rewrittenStringsAreCompacted() {
+		Film film = storage.addFilm(newFilm("Фильм", LocalDate.of(2000, 1, 1), 100));
+		String description = "д".repeat(200);
+		for (int i = 0; i < 20_000; i++) {
+			Film update = newFilm("Фильм " + i, LocalDate.of(2000, 1, 1), 100);
+			update.setId(film.getId());
+			update.setDescription(description);
+			storage.updateFilm(update);
+		}
+
+		assertEquals("Фильм 19999", storage.getFilmById(film.getId()).getName());
+		assertEquals(description, storage.getFilmById(film.getId()).getDescription());
+		assertTrue(storage.getOffHeapBytes() < 8L * OffHeapStrings.CHUNK_SIZE);
+	}
+
+	@Test
+	void concurrentLikesKeepCountsAndPopularity() throws InterruptedException {
+		for (int i = 0; i < 20; i++) {
+			storage.addFilm(newFilm("Фильм " + i, LocalDate.of(2000, 1, 1), 100));
+		}
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			int thread = t;
+			threads[t] = new Thread(() -> {
+				for (int userId = 1; userId <= 500; userId++) {
+					storage.addLike(1 + (userId + thread) % 20, userId * threads.length + thread);
+					storage.getPopularFilms(5);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(4_000, storage.getTotalLikes());
+		List<Film> popular = storage.getPopularFilms(20);
+		assertEquals(20, popular.size());
+		for (int i = 1; i < popular.size(); i++) {
+			assertTrue(popular.get(i - 1).getLikesCount() >= popular.get(i).getLikesCount());
+		}
+		assertEquals(4_000, popular.stream().mapToInt(Film::getLikesCount).sum());
+	}
+
+	private static int[] sorted(int[] values) {
+		Arrays.sort(values);
+		return values;
+	}
+
+	private static List<String> fields(List<Film> films) {
+		return films.stream()
+				.map(film -> film.getId() + "|" + film.getName() + "|" + film.getDescription() + "|"
+						+ film.getReleaseDate() + "|" + film.getDuration() + "|" + film.getLikes())
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentIntMapTest {
+
+	@Test
+	void randomChangesMatchSortedMap() {
+		Random random = new Random(5);
+		TreeMap<Integer, Integer> expected = new TreeMap<>();
+		PersistentIntMap<Integer> map = PersistentIntMap.empty();
+		for (int step = 0; step < 50_000; step++) {
+			int key = random.nextInt(8) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(5_000);
+			if (random.nextInt(3) == 0) {
+				expected.remove(key);
+				map = map.remove(key);
+			} else {
+				expected.put(key, step);
+				map = map.put(key, step);
+			}
+			assertEquals(expected.size(), map.size());
+		}
+
+		for (int key = 0; key < 5_000; key++) {
+			assertEquals(expected.get(key), map.get(key));
+		}
+		assertEquals(new ArrayList<>(expected.values()), map.values());
+		List<Integer> values = map.values();
+		for (int i = 0; i < values.size(); i += 97) {
+			assertEquals(new ArrayList<>(expected.values()).get(i), values.get(i));
+		}
+		for (int from : new int[]{0, 1, 777, 4_999, 5_000, 1 << 20, Integer.MAX_VALUE}) {
+			List<Integer> tail = new ArrayList<>();
+			map.valuesFrom(from).forEachRemaining(tail::add);
+			assertEquals(new ArrayList<>(expected.tailMap(from, true).values()), tail, "С ключа " + from);
+		}
+	}
+
+	@Test
+	void oldVersionsStayUnchanged() {
+		PersistentIntMap<String> first = PersistentIntMap.<String>empty().put(1, "a").put(40, "b");
+		PersistentIntMap<String> second = first.put(1, "c").put(100_000, "d").remove(40);
+
+		assertEquals(List.of("a", "b"), first.values());
+		assertEquals(List.of("c", "d"), second.values());
+		assertSame(second, second.remove(40));
+	}
+
+	@Test
+	void removingEverythingGivesEmptyMap() {
+		PersistentIntMap<Integer> map = PersistentIntMap.empty();
+		for (int key = 0; key < 1_000; key += 3) {
+			map = map.put(key, key);
+		}
+		for (int key = 0; key < 1_000; key += 3) {
+			map = map.remove(key);
+		}
+
+		assertTrue(map.isEmpty());
+		Iterator<Integer> iterator = map.valuesFrom(0);
+		assertFalse(iterator.hasNext());
+		assertThrows(IllegalArgumentException.class, () -> PersistentIntMap.empty().put(-1, 1));
+	}
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingsTest {
+
+	@Test
+	void randomChangesMatchSortedMap() {
+		Random random = new Random(3);
+		TreeMap<Integer, Integer> expected = new TreeMap<>();
+		Postings postings = Postings.EMPTY;
+		for (int step = 0; step < 50_000; step++) {
+			int filmId = 1 + random.nextInt(5_000);
+			int tf = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(300);
+			if (tf == 0) {
+				expected.remove(filmId);
+			} else {
+				expected.put(filmId, tf);
+			}
+			Postings next = postings.with(filmId, tf);
+			postings = next == null ? Postings.EMPTY : next;
+			assertEquals(expected.size(), postings.size());
+		}
+
+		Postings.Cursor cursor = postings.cursor();
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+			assertTrue(cursor.next());
+			assertEquals(entry.getKey(), cursor.id());
+			assertEquals(entry.getValue(), cursor.tf());
+		}
+		assertFalse(cursor.next());
+	}
+
+	@Test
+	void advanceToSkipsToFirstIdNotBelowTarget() {
+		Postings postings = Postings.EMPTY;
+		for (int filmId = 10; filmId <= 100_000; filmId += 10) {
+			postings = postings.with(filmId, 1);
+		}
+		postings = postings.with(55, 2).with(50_000, 0);
+
+		Postings.Cursor cursor = postings.cursor();
+		assertTrue(cursor.advanceTo(51));
+		assertEquals(55, cursor.id());
+		assertEquals(2, cursor.tf());
+		assertTrue(cursor.advanceTo(49_991));
+		assertEquals(50_010, cursor.id());
+		assertTrue(cursor.advanceTo(50_000));
+		assertEquals(50_010, cursor.id());
+		assertTrue(cursor.advanceTo(50_011));
+		assertEquals(50_020, cursor.id());
+		assertTrue(cursor.advanceTo(100_000));
+		assertEquals(100_000, cursor.id());
+		assertFalse(cursor.advanceTo(100_001));
+	}
+
+	@Test
+	void batchChangesMatchSingleChanges() {
+		Random random = new Random(11);
+		Postings single = Postings.EMPTY;
+		Postings batched = Postings.EMPTY;
+		for (int round = 0; round < 200; round++) {
+			int count = 1 + random.nextInt(300);
+			int[] ids = random.ints(count, 1, 20_000).distinct().sorted().toArray();
+			int[] tfs = new int[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				tfs[i] = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(5);
+				Postings next = single.with(ids[i], tfs[i]);
+				single = next == null ? Postings.EMPTY : next;
+			}
+			Postings next = batched.withAll(ids, tfs, ids.length);
+			batched = next == null ? Postings.EMPTY : next;
+			assertEquals(single.size(), batched.size());
+		}
+
+		Postings.Cursor expected = single.cursor();
+		Postings.Cursor actual = batched.cursor();
+		while (expected.next()) {
+			assertTrue(actual.next());
+			assertEquals(expected.id(), actual.id());
+			assertEquals(expected.tf(), actual.tf());
+		}
+		assertFalse(actual.next());
+	}
+
+	@Test
+	void removingLastEntryEmptiesList() {
+		assertNull(Postings.EMPTY.with(1, 3).with(1, 0));
+		assertNull(Postings.EMPTY.with(1, 0));
+	}
+}
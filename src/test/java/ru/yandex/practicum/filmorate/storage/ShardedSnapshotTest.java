@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedSnapshotTest {
+
+	@Test
+	void mergedTraversalMatchesSortedMap() {
+		ShardedSnapshot<Integer> snapshot = new ShardedSnapshot<>(0, value -> value);
+		TreeMap<Integer, Integer> expected = new TreeMap<>();
+		Random random = new Random(3);
+		for (int step = 0; step < 5_000; step++) {
+			int id = random.nextInt(2_000);
+			if (random.nextInt(4) == 0) {
+				snapshot.remove(id, step);
+				expected.remove(id);
+			} else {
+				snapshot.put(id, id, step);
+				expected.put(id, id);
+			}
+		}
+
+		assertEquals(new ArrayList<>(expected.values()), snapshot.values());
+		assertEquals(expected.size(), snapshot.size());
+		assertEquals(4_999, snapshot.version());
+		for (int from : new int[]{0, 1, 63, 64, 65, 1_000, 1_999, 2_000}) {
+			List<Integer> actual = new ArrayList<>();
+			Iterator<Integer> values = snapshot.valuesFrom(from);
+			while (values.hasNext()) {
+				actual.add(values.next());
+			}
+			assertEquals(new ArrayList<>(expected.tailMap(from).values()), actual, "from = " + from);
+		}
+		for (int id = 0; id < 2_000; id++) {
+			assertEquals(expected.get(id), snapshot.get(id));
+		}
+		assertNull(snapshot.get(-1));
+	}
+}
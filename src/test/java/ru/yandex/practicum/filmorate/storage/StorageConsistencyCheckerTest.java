@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+class StorageConsistencyCheckerTest {
+
+	@Test
+	void likesQueuedBeforeUserDeletionAreRemoved() {
+		InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+		InMemoryUserStorage userStorage = new InMemoryUserStorage();
+		MeterRegistry registry = new SimpleMeterRegistry();
+		StorageConsistencyChecker checker =
+				new StorageConsistencyChecker(filmStorage, userStorage, registry, Duration.ofHours(1));
+		int kept = userStorage.addUser(newUser("kept")).getId();
+		int deleted = userStorage.addUser(newUser("deleted")).getId();
+		Film film = new Film();
+		film.setName("Фильм");
+		film.setReleaseDate(LocalDate.of(2000, 1, 1));
+		film.setDuration(100);
+		int filmId = filmStorage.addFilm(film).getId();
+		filmStorage.addLike(filmId, kept);
+
+		userStorage.deleteUser(deleted);
+		filmStorage.removeUserLikes(deleted);
+		filmStorage.applyLikes(filmId, new int[]{deleted}, new long[]{0}, new int[0]);
+
+		assertEquals(1, checker.check());
+		assertEquals(IntSet.of(kept), filmStorage.getFilmById(filmId).getLikes());
+		assertEquals(1, registry.get("filmorate.storage.repairs").tag("kind", "likes").counter().count(), 1e-9);
+		assertEquals(0, checker.check());
+	}
+}
@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingIndexTest {
+
+	private static final Duration HOUR = Duration.ofHours(1);
+	private static final Duration DAY = Duration.ofHours(24);
+	private static final Duration WEEK = Duration.ofDays(7);
+
+	private final MutableClock clock = new MutableClock(Instant.parse("2024-03-01T00:00:00Z"));
+
+	@Test
+	void recentLikesOutweighOlderOnes() {
+		TrendingIndex index = new TrendingIndex(clock);
+		for (int i = 0; i < 3; i++) {
+			index.like(1, clock.millis());
+		}
+		clock.advance(Duration.ofHours(20));
+		for (int i = 0; i < 2; i++) {
+			index.like(2, clock.millis());
+		}
+
+		assertEquals(List.of(2, 1), index.top(DAY, 10));
+		assertEquals(List.of(2), index.top(HOUR, 10));
+		assertEquals(2.0, index.score(DAY, 2), 1e-9);
+		assertEquals(3 * Math.pow(2, -20.0 / 12), index.score(DAY, 1), 1e-9);
+	}
+
+	@Test
+	void likesLeaveWindowsAndFilmsAreFreedAfterAWeek() {
+		TrendingIndex index = new TrendingIndex(clock);
+		index.like(1, clock.millis());
+		index.like(2, clock.millis() - Duration.ofHours(2).toMillis());
+
+		assertEquals(List.of(1), index.top(HOUR, 10));
+		assertEquals(List.of(1, 2), index.top(DAY, 10));
+
+		clock.advance(Duration.ofHours(1));
+		assertEquals(List.of(), index.top(HOUR, 10));
+
+		clock.advance(Duration.ofHours(22));
+		assertEquals(List.of(1), index.top(DAY, 10));
+		assertEquals(List.of(1, 2), index.top(WEEK, 10));
+
+		clock.advance(Duration.ofDays(7));
+		assertEquals(List.of(), index.top(WEEK, 10));
+		assertEquals(0, index.activeFilms());
+	}
+
+	@Test
+	void incrementalScoresMatchDirectSum() {
+		TrendingIndex index = new TrendingIndex(clock);
+		Random random = new Random(17);
+		long start = clock.millis();
+		double[] expected = new double[21];
+		long[][] likes = new long[21][];
+		for (int filmId = 1; filmId <= 20; filmId++) {
+			likes[filmId] = new long[1 + random.nextInt(30)];
+			for (int i = 0; i < likes[filmId].length; i++) {
+				likes[filmId][i] = start - random.nextInt((int) Duration.ofHours(30).toMillis());
+				index.like(filmId, likes[filmId][i]);
+			}
+		}
+		clock.advance(Duration.ofHours(5));
+
+		long bucket = TrendingIndex.BUCKET.toMillis();
+		long now = Math.floorDiv(clock.millis(), bucket);
+		for (int filmId = 1; filmId <= 20; filmId++) {
+			for (long likedAt : likes[filmId]) {
+				long age = now - Math.floorDiv(likedAt, bucket);
+				if (age < 96) {
+					expected[filmId] += Math.pow(2, -age / 48.0);
+				}
+			}
+			assertEquals(expected[filmId], index.score(DAY, filmId), 1e-9, "Счёт фильма " + filmId);
+		}
+		List<Integer> top = index.top(DAY, 20);
+		for (int i = 1; i < top.size(); i++) {
+			assertTrue(expected[top.get(i - 1)] >= expected[top.get(i)]);
+		}
+	}
+
+	@Test
+	void scoresSurviveRebase() {
+		TrendingIndex index = new TrendingIndex(clock);
+		for (int step = 0; step < 60; step++) {
+			index.like(1, clock.millis());
+			index.like(2, clock.millis());
+			index.like(2, clock.millis());
+			clock.advance(Duration.ofHours(12));
+		}
+		index.like(1, clock.millis());
+
+		assertEquals(List.of(1, 2), index.top(DAY, 10));
+		assertEquals(1.5, index.score(DAY, 1), 1e-9);
+		assertEquals(1.0, index.score(DAY, 2), 1e-9);
+		double week = 0;
+		for (int k = 1; k < 14; k++) {
+			week += 2 * Math.pow(2, -k / 7.0);
+		}
+		assertEquals(week, index.score(WEEK, 2), 1e-9);
+	}
+
+	@Test
+	void removedFilmLeavesRanking() {
+		TrendingIndex index = new TrendingIndex(clock);
+		index.like(1, clock.millis());
+		index.like(2, clock.millis());
+		index.remove(1);
+
+		assertEquals(List.of(2), index.top(DAY, 10));
+	}
+
+	@Test
+	void unsupportedWindowIsRejected() {
+		TrendingIndex index = new TrendingIndex(clock);
+
+		assertThrows(IllegalArgumentException.class, () -> index.top(Duration.ofHours(2), 10));
+	}
+
+	private static final class MutableClock extends Clock {
+		private Instant now;
+
+		MutableClock(Instant now) {
+			this.now = now;
+		}
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void roundTripPreservesFilmsAndUsers() throws IOException {
+		Path file = directory.resolve("snapshot.dat");
+		Film film = new Film();
+		film.setId(7);
+		film.setName("Фильм");
+		film.setReleaseDate(LocalDate.of(1999, 3, 31));
+		film.setDuration(136);
+		film.setLikes(IntSet.of(1, 2, 3));
+		User user = new User();
+		user.setId(3);
+		user.setEmail("neo@matrix.com");
+		user.setLogin("neo");
+		user.setName("Нео");
+		user.setBirthday(LocalDate.of(1964, 9, 2));
+		user.setFriends(IntSet.of(1, 2));
+
+		try (BinarySnapshot.Writer writer = BinarySnapshot.write(file)) {
+			writer.writeFilm(film);
+			writer.writeUser(user);
+		}
+
+		List<Film> films = new ArrayList<>();
+		List<User> users = new ArrayList<>();
+		BinarySnapshot.read(file, films::add, users::add);
+
+		assertEquals(List.of(film), films);
+		assertEquals(List.of(user), users);
+	}
+
+	@Test
+	void corruptedBodyIsRejected() throws IOException {
+		Path file = directory.resolve("snapshot.dat");
+		try (BinarySnapshot.Writer writer = BinarySnapshot.write(file)) {
+			User user = new User();
+			user.setId(1);
+			user.setEmail("user@mail.com");
+			user.setLogin("user");
+			user.setBirthday(LocalDate.of(2000, 1, 1));
+			writer.writeUser(user);
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{42}), BinarySnapshot.HEADER_SIZE + 10);
+		}
+
+		assertThrows(IOException.class, () -> BinarySnapshot.read(file, film -> { }, user -> { }));
+	}
+}
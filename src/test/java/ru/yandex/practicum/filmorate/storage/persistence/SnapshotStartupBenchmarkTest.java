@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Время записи и загрузки двоичного снимка. Размер задаётся свойством benchmark.entities
+ * (по умолчанию 1 000 000 пользователей и столько же фильмов).
+ * Запуск: mvn test -Pbenchmark -Dbenchmark.entities=10000000
+ */
+@Tag("benchmark")
+class SnapshotStartupBenchmarkTest {
+
+	private static final int DEGREE = 10;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void startupFromSnapshot() throws IOException {
+		int entities = Integer.getInteger("benchmark.entities", 1_000_000);
+		Random random = new Random(1);
+		InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+		InMemoryUserStorage userStorage = new InMemoryUserStorage();
+		for (int i = 0; i < entities; i++) {
+			userStorage.addUser(newUser(i));
+			Film film = filmStorage.addFilm(newFilm(i));
+			for (int like = 0; like < DEGREE; like++) {
+				film.addLike(1 + random.nextInt(entities));
+			}
+		}
+		for (int i = 1; i <= entities; i++) {
+			for (int friend = 0; friend < DEGREE / 2; friend++) {
+				int friendId = 1 + random.nextInt(entities);
+				if (friendId != i) {
+					userStorage.addFriend(i, friendId);
+				}
+			}
+		}
+
+		Path file = directory.resolve("snapshot.dat");
+		long writeStart = System.nanoTime();
+		try (BinarySnapshot.Writer writer = BinarySnapshot.write(file)) {
+			filmStorage.forEachFilm(film -> write(() -> writer.writeFilm(film)));
+			userStorage.forEachUser(user -> write(() -> writer.writeUser(user)));
+		}
+		long writeMillis = (System.nanoTime() - writeStart) / 1_000_000;
+
+		InMemoryFilmStorage restoredFilms = new InMemoryFilmStorage();
+		InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+		long readStart = System.nanoTime();
+		BinarySnapshot.read(file, restoredFilms::restoreFilm, restoredUsers::restoreUser);
+		long readMillis = (System.nanoTime() - readStart) / 1_000_000;
+
+		System.out.printf("Снимок: %d фильмов и %d пользователей, %d МБ, запись %d мс, загрузка %d мс%n",
+				entities, entities, Files.size(file) / (1024 * 1024), writeMillis, readMillis);
+	}
+
+	private static void write(IoAction action) {
+		try {
+			action.run();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Film newFilm(int i) {
+		Film film = new Film();
+		film.setName("Фильм " + i);
+		film.setDescription("Описание фильма " + i);
+		film.setReleaseDate(LocalDate.of(1950, 1, 1).plusDays(i % 25_000));
+		film.setDuration(60 + i % 120);
+		return film;
+	}
+
+	private static User newUser(int i) {
+		User user = new User();
+		user.setEmail("user" + i + "@mail.com");
+		user.setLogin("user" + i);
+		user.setBirthday(LocalDate.of(1970, 1, 1).plusDays(i % 15_000));
+		return user;
+	}
+
+	@FunctionalInterface
+	private interface IoAction {
+		void run() throws IOException;
+	}
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+class StoragePersistenceTest {
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void stateIsRestoredFromSnapshotAndJournalTail() throws Exception {
+		InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+		InMemoryUserStorage userStorage = new InMemoryUserStorage();
+		StoragePersistence persistence = newPersistence(filmStorage, userStorage);
+		persistence.start();
+
+		User first = userStorage.addUser(newUser("first"));
+		User second = userStorage.addUser(newUser("second"));
+		User third = userStorage.addUser(newUser("third"));
+		Film film = filmStorage.addFilm(newFilm("Фильм"));
+		Film deleted = filmStorage.addFilm(newFilm("Удалённый"));
+		filmStorage.addLike(film.getId(), first.getId());
+		userStorage.addFriend(first.getId(), second.getId());
+
+		persistence.snapshot();
+
+		filmStorage.addLike(film.getId(), second.getId());
+		filmStorage.removeLike(film.getId(), first.getId());
+		filmStorage.deleteFilm(deleted.getId());
+		userStorage.addFriend(first.getId(), third.getId());
+		userStorage.removeFriend(first.getId(), second.getId());
+		persistence.stop();
+
+		InMemoryFilmStorage restoredFilms = new InMemoryFilmStorage();
+		InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+		StoragePersistence restored = newPersistence(restoredFilms, restoredUsers);
+		restored.start();
+
+		assertEquals(1, restoredFilms.getAllFilms().size());
+		Film restoredFilm = restoredFilms.getFilmById(film.getId());
+		assertEquals(IntSet.of(second.getId()), restoredFilm.getLikes());
+		assertEquals(List.of(restoredFilm), restoredFilms.getTrendingFilms(Duration.ofHours(24), 10),
+				"Лайк из хвоста журнала должен попасть в тренды.");
+		assertEquals(3, restoredUsers.getAllUsers().size());
+		assertEquals(IntSet.of(third.getId()), restoredUsers.getUserById(first.getId()).getFriends());
+		assertTrue(restoredUsers.getFriends(second.getId()).isEmpty());
+
+		Film next = restoredFilms.addFilm(newFilm("Новый"));
+		assertEquals(deleted.getId() + 1, next.getId(), "ID не должны повторяться после восстановления.");
+		restored.stop();
+	}
+
+	private StoragePersistence newPersistence(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage) {
+		return new StoragePersistence(filmStorage, userStorage, objectMapper, directory.toString(), true,
+				Duration.ofHours(1));
+	}
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.storage.JournalRecord;
+import ru.yandex.practicum.filmorate.storage.JournalRecord.Type;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Пропускная способность записи в журнал с групповым fsync и без него.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class WriteAheadLogBenchmarkTest {
+
+	private static final int THREADS = 32;
+	private static final int RECORDS_PER_THREAD = 500;
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void groupCommitThroughput() throws Exception {
+		double withoutGroupCommit = measure(false);
+		double withGroupCommit = measure(true);
+		System.out.printf("WAL, %d потоков: без группового fsync %.0f записей/с, с групповым fsync %.0f записей/с%n",
+				THREADS, withoutGroupCommit, withGroupCommit);
+	}
+
+	private double measure(boolean groupCommit) throws Exception {
+		Path logDirectory = Files.createDirectories(directory.resolve(groupCommit ? "group" : "single"));
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try (WriteAheadLog log = new WriteAheadLog(logDirectory, 0, objectMapper, groupCommit)) {
+			long start = System.nanoTime();
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+						long sequence = log.append(JournalRecord.of(Type.ADD_LIKE, thread + 1, i + 1));
+						log.awaitDurable(sequence);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			return THREADS * RECORDS_PER_THREAD / seconds;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}